@@ -0,0 +1,60 @@
+package com.alancortez.project.controller;
+
+import com.alancortez.project.service.QueryStatisticsService;
+import com.alancortez.project.utils.QUERY_STAT_ORDER;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Query statistics at /actuator/queries, on the management port only: the
+// list shows raw SQL, and switching collection on or resetting it is an
+// operator's call, not something the public API should offer.
+//   GET    /actuator/queries?order=max&limit=20   top queries
+//   GET    /actuator/queries/entities             entity and collection loads
+//   POST   /actuator/queries {"enabled": true}    switch collection on or off
+//   DELETE /actuator/queries                      reset
+@Component
+@Endpoint(id = "queries")
+public class QueryStatisticsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    @Autowired
+    private QueryStatisticsService queryStatisticsService;
+
+    // Top queries by max, avg or total execution time, plus the statements
+    // that crossed the slow-query threshold since the last reset.
+    @ReadOperation
+    public Map<String, Object> getTopQueries(@Nullable String order, @Nullable Integer limit) {
+        try {
+            return queryStatisticsService.getTopQueries(
+                    QUERY_STAT_ORDER.fromParam(order), limit != null ? limit : DEFAULT_LIMIT);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    // Unknown sections answer 404.
+    @ReadOperation
+    public Map<String, Object> getSection(@Selector String section) {
+        return section.equals("entities") ? queryStatisticsService.getEntityLoads() : null;
+    }
+
+    @WriteOperation
+    public Map<String, Object> setStatisticsEnabled(boolean enabled) {
+        return queryStatisticsService.setEnabled(enabled);
+    }
+
+    @DeleteOperation
+    public void resetStatistics() {
+        queryStatisticsService.reset();
+    }
+}
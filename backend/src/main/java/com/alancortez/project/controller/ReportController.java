@@ -1,15 +1,31 @@
 package com.alancortez.project.controller;
 
 import com.alancortez.project.model.Report;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_ENGINE;
 import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.SERIES_METRIC;
+import com.alancortez.project.utils.ReportRangeDefaults;
+import com.alancortez.project.service.ChartSeries;
 import com.alancortez.project.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -17,23 +33,64 @@ import java.util.Map;
 @RequestMapping("/api/reports")
 public class ReportController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private ReportService reportService;
 
     @PostMapping
     public ResponseEntity<Report> createReport(@RequestBody ReportRequest request) {
         try {
-            Report report = reportService.createReport(
+            Report report = new Report(
                     request.getReportType(),
                     request.getEntityId(),
                     request.getEntityName()
             );
-            return new ResponseEntity<>(report, HttpStatus.CREATED);
-        } catch (Exception e) {
+            switch (reportService.submitReport(report)) {
+                case QUEUED:
+                    return new ResponseEntity<>(report, HttpStatus.ACCEPTED);
+                case WRITTEN:
+                    return new ResponseEntity<>(report, HttpStatus.CREATED);
+                default:
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .build();
+            }
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            // The synchronous write failed; the event was not stored.
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+
+    @PostMapping(value = "/bulk", consumes = {NDJSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Map<String, Object>> bulkCreateReports(InputStream body) {
+        try {
+            return ResponseEntity.ok(reportService.bulkCreateReports(body));
+        } catch (IOException | UncheckedIOException | IllegalArgumentException | DataIntegrityViolationException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (DataAccessException | TransactionException e) {
+            // The database is unreachable or failed mid-load; nothing was
+            // committed, so the client can send the same body again.
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
         }
     }
 
+    @GetMapping("/ingest/metrics")
+    public ResponseEntity<Map<String, Object>> getIngestMetrics() {
+        return ResponseEntity.ok(reportService.getIngestMetrics());
+    }
+
+    @GetMapping("/event-log/metrics")
+    public ResponseEntity<Map<String, Object>> getEventLogMetrics() {
+        return ResponseEntity.ok(reportService.getEventLogMetrics());
+    }
+
     @GetMapping
     public ResponseEntity<List<Report>> getAllReports() {
         return ResponseEntity.ok(reportService.getAllReports());
@@ -52,30 +109,124 @@ public class ReportController {
         return ResponseEntity.ok(reportService.getReportsByDateRange(start, end));
     }
 
+    // Keyset-paged variants of the listings above, newest first. Pass the
+    // returned nextCursor back as cursor to get the following page.
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> getReportsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(reportService.getReportsPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/type/{reportType}/page")
+    public ResponseEntity<Map<String, Object>> getReportsPageByType(
+            @PathVariable REPORT_TYPE reportType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(reportService.getReportsPageByType(reportType, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/range/page")
+    public ResponseEntity<Map<String, Object>> getReportsPageByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(reportService.getReportsPageByDateRange(start, end, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // NDJSON variants of the listings above, picked with Accept: application/x-ndjson.
+    // Rows are written as they come off the cursor instead of being collected first.
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllReports() {
+        return ndjson(out -> reportService.streamAllReports(out));
+    }
+
+    @GetMapping(value = "/type/{reportType}", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamReportsByType(@PathVariable REPORT_TYPE reportType) {
+        return ndjson(out -> reportService.streamReportsByType(reportType, out));
+    }
+
+    @GetMapping(value = "/range", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamReportsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+    ) {
+        return ndjson(out -> reportService.streamReportsByDateRange(start, end, out));
+    }
+
     @GetMapping("/summary")
     public ResponseEntity<Map<String, Object>> getReportSummary(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "sql") String engine
     ) {
-        LocalDateTime startDate = start != null ? start : LocalDateTime.now().minusDays(30);
-        LocalDateTime endDate = end != null ? end : LocalDateTime.now();
+        LocalDateTime startDate = ReportRangeDefaults.start(start);
+        LocalDateTime endDate = ReportRangeDefaults.end(end);
 
-        return ResponseEntity.ok(reportService.getReportSummary(startDate, endDate));
+        try {
+            return ResponseEntity.ok(reportService.getReportSummary(startDate, endDate, REPORT_ENGINE.fromParam(engine)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     @GetMapping("/chart")
-    public ResponseEntity<List<Map<String, Object>>> getChartData(
+    public ResponseEntity<ChartSeries> getChartData(
             @RequestParam REPORT_TYPE reportType,
             @RequestParam(defaultValue = "day") String groupBy,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "sql") String engine
     ) {
-        LocalDateTime startDate = start != null ? start : LocalDateTime.now().minusDays(30);
-        LocalDateTime endDate = end != null ? end : LocalDateTime.now();
+        LocalDateTime startDate = ReportRangeDefaults.start(start);
+        LocalDateTime endDate = ReportRangeDefaults.end(end);
 
-        return ResponseEntity.ok(
-                reportService.getChartData(reportType, startDate, endDate, groupBy)
-        );
+        try {
+            return ResponseEntity.ok(
+                    reportService.getChartData(reportType, startDate, endDate, groupBy, REPORT_ENGINE.fromParam(engine))
+            );
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Several charts in one request; see ReportService.getSeries.
+    @PostMapping("/series")
+    public ResponseEntity<Map<String, Object>> getSeries(
+            @RequestBody List<SeriesRequest> requests,
+            @RequestParam(defaultValue = "sql") String engine
+    ) {
+        try {
+            List<ReportService.SeriesSpec> specs = new ArrayList<>(requests.size());
+            for (SeriesRequest request : requests) {
+                specs.add(new ReportService.SeriesSpec(
+                        request.getReportType(),
+                        CHART_GROUPING.fromParam(request.getGroupBy()),
+                        ReportRangeDefaults.start(request.getStart()),
+                        ReportRangeDefaults.end(request.getEnd()),
+                        SERIES_METRIC.fromParam(request.getMetric())
+                ));
+            }
+            return ResponseEntity.ok(reportService.getSeries(specs, REPORT_ENGINE.fromParam(engine)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     @GetMapping("/top")
@@ -83,13 +234,74 @@ public class ReportController {
             @RequestParam REPORT_TYPE reportType,
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "false") boolean includeOthers,
+            @RequestParam(defaultValue = "sql") String engine
     ) {
-        LocalDateTime startDate = start != null ? start : LocalDateTime.now().minusDays(30);
-        LocalDateTime endDate = end != null ? end : LocalDateTime.now();
+        LocalDateTime startDate = ReportRangeDefaults.start(start);
+        LocalDateTime endDate = ReportRangeDefaults.end(end);
+
+        try {
+            return ResponseEntity.ok(reportService.getTopEntities(
+                    reportType, startDate, endDate, limit, includeOthers, REPORT_ENGINE.fromParam(engine)
+            ));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/top/live")
+    public ResponseEntity<Map<String, Object>> getLiveTopEntities(
+            @RequestParam REPORT_TYPE reportType,
+            @RequestParam(defaultValue = "hour") String window,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(reportService.getLiveTopEntities(reportType, window, limit));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // Server-Sent Events stream of report activity for live dashboards: a
+    // "ready" event, then at most one "delta" event per interval. See
+    // ReportLiveService for what a delta holds.
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeLive(
+            @RequestParam(defaultValue = "hour") String groupBy,
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "5") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(reportService.subscribeLive(groupBy, window, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+    }
+
+    @GetMapping("/live/metrics")
+    public ResponseEntity<Map<String, Object>> getLiveMetrics() {
+        return ResponseEntity.ok(reportService.getLiveMetrics());
+    }
+
+    @GetMapping("/distinct")
+    public ResponseEntity<Map<String, Object>> getDistinctEntityCount(
+            @RequestParam REPORT_TYPE reportType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "false") boolean exact
+    ) {
+        LocalDateTime startDate = ReportRangeDefaults.start(start);
+        LocalDateTime endDate = ReportRangeDefaults.end(end);
 
         return ResponseEntity.ok(
-                reportService.getTopEntities(reportType, startDate, endDate, limit)
+                reportService.getDistinctEntityCount(reportType, startDate, endDate, exact)
         );
     }
 
@@ -98,10 +310,50 @@ public class ReportController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
     ) {
-        LocalDateTime startDate = start != null ? start : LocalDateTime.now().minusDays(30);
-        LocalDateTime endDate = end != null ? end : LocalDateTime.now();
+        LocalDateTime startDate = ReportRangeDefaults.start(start);
+        LocalDateTime endDate = ReportRangeDefaults.end(end);
+
+        try {
+            return ResponseEntity.ok(reportService.getDashboardData(startDate, endDate));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(reportService.getCacheStats());
+    }
 
-        return ResponseEntity.ok(reportService.getDashboardData(startDate, endDate));
+    @GetMapping("/column-store/stats")
+    public ResponseEntity<Map<String, Object>> getColumnStoreStats() {
+        return ResponseEntity.ok(reportService.getColumnStoreStats());
+    }
+
+    @GetMapping("/retention")
+    public ResponseEntity<Map<String, Object>> getRetentionStatus() {
+        return ResponseEntity.ok(reportService.getRetentionStatus());
+    }
+
+    @PostMapping("/retention/run")
+    public ResponseEntity<Map<String, Object>> runRetention() {
+        try {
+            return ResponseEntity.ok(reportService.purgeExpiredReports());
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Void> rebuildRollups() {
+        reportService.rebuildRollups();
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
     public static class ReportRequest {
@@ -133,4 +385,52 @@ public class ReportController {
             this.entityName = entityName;
         }
     }
-}
\ No newline at end of file
+
+    public static class SeriesRequest {
+        private REPORT_TYPE reportType;
+        private String groupBy;
+        private LocalDateTime start;
+        private LocalDateTime end;
+        private String metric;
+
+        public REPORT_TYPE getReportType() {
+            return reportType;
+        }
+
+        public void setReportType(REPORT_TYPE reportType) {
+            this.reportType = reportType;
+        }
+
+        public String getGroupBy() {
+            return groupBy;
+        }
+
+        public void setGroupBy(String groupBy) {
+            this.groupBy = groupBy;
+        }
+
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        public void setStart(LocalDateTime start) {
+            this.start = start;
+        }
+
+        public LocalDateTime getEnd() {
+            return end;
+        }
+
+        public void setEnd(LocalDateTime end) {
+            this.end = end;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public void setMetric(String metric) {
+            this.metric = metric;
+        }
+    }
+}
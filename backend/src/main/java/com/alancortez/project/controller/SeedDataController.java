@@ -3,6 +3,7 @@ package com.alancortez.project.controller;
 import com.alancortez.project.model.Report;
 import com.alancortez.project.model.User;
 import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.service.ReportRollupService;
 import com.alancortez.project.service.UserService;
 import com.alancortez.project.utils.REPORT_TYPE;
 import com.alancortez.project.utils.USER_ROLE;
@@ -23,6 +24,9 @@ public class SeedDataController {
     @Autowired
     private ReportRepository reportRepository;
 
+    @Autowired
+    private ReportRollupService reportRollupService;
+
     @Autowired
     private UserService userService;
 
@@ -129,7 +133,7 @@ public class SeedDataController {
             }
         }
 
-        reportRepository.saveAll(reports);
+        reportRollupService.record(reportRepository.saveAll(reports));
 
         return ResponseEntity.ok("Successfully generated " + reports.size() + " report entries!");
     }
@@ -137,6 +141,7 @@ public class SeedDataController {
     @DeleteMapping("/reports/clear")
     public ResponseEntity<String> clearReports() {
         reportRepository.deleteAll();
+        reportRollupService.deleteAll();
         return ResponseEntity.ok("All reports cleared!");
     }
 
@@ -0,0 +1,46 @@
+package com.alancortez.project.model;
+
+import com.alancortez.project.utils.REPORT_TYPE;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// HyperLogLog registers of the entity ids reported for one type on one
+// closed day. An empty array is a day without reports. sourceReports is the
+// day's report count in the daily rollup when the sketch was built; a sketch
+// whose day no longer has that count is stale.
+@Entity(name = "report_distinct_daily")
+@IdClass(ReportSketchId.class)
+public class DailyDistinctSketch {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_type", nullable = false)
+    private REPORT_TYPE reportType;
+
+    @Id
+    @Column(name = "bucket", nullable = false)
+    private LocalDateTime bucket;
+
+    @Column(name = "registers", nullable = false)
+    private byte[] registers;
+
+    @Column(name = "source_reports")
+    private Long sourceReports;
+
+    public REPORT_TYPE getReportType() {
+        return reportType;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    public byte[] getRegisters() {
+        return registers;
+    }
+
+    public Long getSourceReports() {
+        return sourceReports;
+    }
+}
@@ -0,0 +1,9 @@
+package com.alancortez.project.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+
+@Entity(name = "report_rollup_hourly")
+@IdClass(ReportRollupId.class)
+public class HourlyReportRollup extends ReportRollup {
+}
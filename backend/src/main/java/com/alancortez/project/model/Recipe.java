@@ -1,6 +1,8 @@
 package com.alancortez.project.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import java.util.List;
 
 @Entity
@@ -15,13 +17,17 @@ public class Recipe {
     @Column(name = "recipe_name", nullable = false)
     private String recipeName;
 
+    // Subselect fetching loads these collections for every recipe of a list
+    // in one query each, instead of one query per recipe.
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Fetch(FetchMode.SUBSELECT)
     private List<RecipeComponent> recipeComponents;
 
     @Column(name = "use_count")
     private Integer useCount = 0;
 
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Fetch(FetchMode.SUBSELECT)
     private List<RecipeUseHistory> useHistory;
 
     public Integer getRecipeID() {
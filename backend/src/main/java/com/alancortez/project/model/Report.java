@@ -1,6 +1,7 @@
 package com.alancortez.project.model;
 
 import com.alancortez.project.utils.REPORT_TYPE;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -28,6 +29,12 @@ public class Report {
     @Column
     private Integer count;
 
+    // How many report events a coalesced row stands for. Null on rows written
+    // one event at a time, which count as one; see ReportCoalescingService.
+    @Column
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer events;
+
     public Report() {
         this.timestamp = LocalDateTime.now();
         this.count = 1;
@@ -88,4 +95,17 @@ public class Report {
     public void setCount(Integer count) {
         this.count = count;
     }
-}
\ No newline at end of file
+
+    public Integer getEvents() {
+        return events;
+    }
+
+    public void setEvents(Integer events) {
+        this.events = events;
+    }
+
+    // Events this row counts for in report totals.
+    public int eventCount() {
+        return events == null ? 1 : events;
+    }
+}
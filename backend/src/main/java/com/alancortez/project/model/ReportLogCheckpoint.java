@@ -0,0 +1,41 @@
+package com.alancortez.project.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// How far the replayer has got through one local report event log: every
+// record before (segment, position) is in the reports table. Written in the
+// same transaction as the rows it covers.
+@Entity(name = "report_event_log_checkpoint")
+public class ReportLogCheckpoint {
+
+    @Id
+    @Column(name = "log_id", nullable = false)
+    private String logId;
+
+    @Column(name = "segment", nullable = false)
+    private Long segment;
+
+    @Column(name = "position", nullable = false)
+    private Integer position;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public Long getSegment() {
+        return segment;
+    }
+
+    public Integer getPosition() {
+        return position;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.alancortez.project.model;
+
+import com.alancortez.project.utils.REPORT_TYPE;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// One row per (reportType, entityId, bucket). reportCount backs report-count
+// aggregates (one per report event, coalesced rows included), totalCount
+// backs SUM(r.count).
+@MappedSuperclass
+public abstract class ReportRollup {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_type", nullable = false)
+    protected REPORT_TYPE reportType;
+
+    @Id
+    @Column(name = "entity_id", nullable = false)
+    protected Long entityId;
+
+    @Id
+    @Column(name = "bucket", nullable = false)
+    protected LocalDateTime bucket;
+
+    @Column(name = "entity_name", nullable = false)
+    protected String entityName;
+
+    @Column(name = "report_count", nullable = false)
+    protected Long reportCount;
+
+    @Column(name = "total_count", nullable = false)
+    protected Long totalCount;
+
+    public REPORT_TYPE getReportType() {
+        return reportType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public Long getReportCount() {
+        return reportCount;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+}
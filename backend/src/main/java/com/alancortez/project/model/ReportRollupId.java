@@ -0,0 +1,54 @@
+package com.alancortez.project.model;
+
+import com.alancortez.project.utils.REPORT_TYPE;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class ReportRollupId implements Serializable {
+
+    private REPORT_TYPE reportType;
+    private Long entityId;
+    private LocalDateTime bucket;
+
+    public ReportRollupId() {
+    }
+
+    public ReportRollupId(REPORT_TYPE reportType, Long entityId, LocalDateTime bucket) {
+        this.reportType = reportType;
+        this.entityId = entityId;
+        this.bucket = bucket;
+    }
+
+    public REPORT_TYPE getReportType() {
+        return reportType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReportRollupId)) {
+            return false;
+        }
+        ReportRollupId that = (ReportRollupId) o;
+        return reportType == that.reportType
+                && Objects.equals(entityId, that.entityId)
+                && Objects.equals(bucket, that.bucket);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(reportType, entityId, bucket);
+    }
+}
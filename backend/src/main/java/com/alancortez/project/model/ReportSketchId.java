@@ -0,0 +1,46 @@
+package com.alancortez.project.model;
+
+import com.alancortez.project.utils.REPORT_TYPE;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class ReportSketchId implements Serializable {
+
+    private REPORT_TYPE reportType;
+    private LocalDateTime bucket;
+
+    public ReportSketchId() {
+    }
+
+    public ReportSketchId(REPORT_TYPE reportType, LocalDateTime bucket) {
+        this.reportType = reportType;
+        this.bucket = bucket;
+    }
+
+    public REPORT_TYPE getReportType() {
+        return reportType;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReportSketchId)) {
+            return false;
+        }
+        ReportSketchId that = (ReportSketchId) o;
+        return reportType == that.reportType && Objects.equals(bucket, that.bucket);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(reportType, bucket);
+    }
+}
@@ -0,0 +1,62 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.DailyDistinctSketch;
+import com.alancortez.project.model.ReportSketchId;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Bucket ranges are half-open, like the rollup tables.
+@Repository
+public interface DailyDistinctSketchRepository extends JpaRepository<DailyDistinctSketch, ReportSketchId> {
+
+    @Query("SELECT s FROM report_distinct_daily s " +
+            "WHERE s.reportType = :type AND s.bucket >= :start AND s.bucket < :end")
+    List<DailyDistinctSketch> findByTypeAndBucketRange(
+            @Param("type") REPORT_TYPE type,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    // Concurrent readers may build the same day from different snapshots.
+    // The stored sketch is replaced only when the report count it was built
+    // from differs, and a stale one is caught again on the next read.
+    @Modifying
+    @Query(value = "INSERT INTO report_distinct_daily (report_type, bucket, registers, source_reports) " +
+            "VALUES (:type, :bucket, :registers, :sourceReports) " +
+            "ON CONFLICT (report_type, bucket) DO UPDATE SET " +
+            "registers = EXCLUDED.registers, source_reports = EXCLUDED.source_reports " +
+            "WHERE report_distinct_daily.source_reports IS DISTINCT FROM EXCLUDED.source_reports",
+            nativeQuery = true)
+    void upsert(
+            @Param("type") String type,
+            @Param("bucket") LocalDateTime bucket,
+            @Param("registers") byte[] registers,
+            @Param("sourceReports") long sourceReports
+    );
+
+    @Modifying
+    @Query("DELETE FROM report_distinct_daily s WHERE s.reportType = :type AND s.bucket IN :buckets")
+    int deleteByTypeAndBuckets(
+            @Param("type") REPORT_TYPE type,
+            @Param("buckets") Collection<LocalDateTime> buckets
+    );
+
+    @Modifying
+    @Query("DELETE FROM report_distinct_daily s WHERE s.reportType = :type AND s.bucket < :end")
+    int deleteByTypeBefore(
+            @Param("type") REPORT_TYPE type,
+            @Param("end") LocalDateTime end
+    );
+
+    @Modifying
+    @Query("DELETE FROM report_distinct_daily s WHERE s.bucket < :end")
+    int deleteBefore(@Param("end") LocalDateTime end);
+}
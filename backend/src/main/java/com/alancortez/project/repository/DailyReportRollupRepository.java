@@ -0,0 +1,33 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.DailyReportRollup;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyReportRollupRepository extends ReportRollupRepository<DailyReportRollup> {
+
+    // (bucket, entityId, reportCount) rows, for building the per-day
+    // distinct sketches and recording the count each was built from.
+    @Query("SELECT d.bucket, d.entityId, d.reportCount FROM report_rollup_daily d " +
+            "WHERE d.reportType = :type AND d.bucket >= :start AND d.bucket < :end")
+    List<Object[]> findEntityIdsByDay(
+            @Param("type") REPORT_TYPE type,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    // Report count per day, to tell whether a stored sketch is still current.
+    @Query("SELECT d.bucket, SUM(d.reportCount) FROM report_rollup_daily d " +
+            "WHERE d.reportType = :type AND d.bucket >= :start AND d.bucket < :end GROUP BY d.bucket")
+    List<Object[]> sumReportCountsByDay(
+            @Param("type") REPORT_TYPE type,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+}
@@ -0,0 +1,18 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.HourlyReportRollup;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HourlyReportRollupRepository extends ReportRollupRepository<HourlyReportRollup> {
+
+    List<HourlyReportRollup> findByReportTypeInAndBucketGreaterThanEqual(
+            Collection<REPORT_TYPE> reportTypes,
+            LocalDateTime since
+    );
+}
@@ -0,0 +1,60 @@
+package com.alancortez.project.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Indexes on the reports table. Hibernate's schema update cannot see indexes
+// on a partitioned table and would try to recreate them on every start, so
+// they are declared here instead of in @Table. Each is created on the parent
+// table and PostgreSQL builds it on every partition.
+@Repository
+public class ReportIndexRepository {
+
+    public static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        // Keyset pages over all reports or a date range.
+        INDEXES.put("idx_reports_timestamp_id", "(timestamp DESC, id DESC)");
+        // Type plus time range: counts, charts, per-type pages, retention chunks.
+        // id is appended so per-type pages are read in index order.
+        INDEXES.put("idx_reports_type_timestamp", "(report_type, timestamp, id)");
+        // Index-only scans for getTopEntitiesByType.
+        INDEXES.put("idx_reports_top_entities", "(report_type, timestamp) INCLUDE (entity_id, entity_name, count)");
+        // Rows arrive in timestamp order, so a BRIN index stays tiny and still
+        // narrows wide range scans such as the summary.
+        INDEXES.put("idx_reports_timestamp_brin", "USING brin (timestamp)");
+    }
+
+    public static final Map<String, String> UNIQUE_INDEXES = new LinkedHashMap<>();
+
+    static {
+        // Conflict target for coalesced upserts. Only coalesced rows carry
+        // events, so rows written one event at a time may still share a
+        // timestamp.
+        UNIQUE_INDEXES.put("idx_reports_coalesced", "(report_type, entity_id, timestamp) WHERE events IS NOT NULL");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void createIndexes() {
+        for (Map.Entry<String, String> index : INDEXES.entrySet()) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON reports " + index.getValue());
+        }
+        for (Map.Entry<String, String> index : UNIQUE_INDEXES.entrySet()) {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + index.getKey() + " ON reports " + index.getValue());
+        }
+    }
+
+    public List<String> findIndexNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT indexrelid::regclass::text FROM pg_index WHERE indrelid = 'reports'::regclass",
+                String.class
+        );
+    }
+}
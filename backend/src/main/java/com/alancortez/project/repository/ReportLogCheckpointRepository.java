@@ -0,0 +1,24 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.ReportLogCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReportLogCheckpointRepository extends JpaRepository<ReportLogCheckpoint, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO report_event_log_checkpoint (log_id, segment, position, updated_at) " +
+            "VALUES (:logId, :segment, :position, now()) " +
+            "ON CONFLICT (log_id) DO UPDATE SET segment = EXCLUDED.segment, " +
+            "position = EXCLUDED.position, updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    void advance(
+            @Param("logId") String logId,
+            @Param("segment") long segment,
+            @Param("position") int position
+    );
+}
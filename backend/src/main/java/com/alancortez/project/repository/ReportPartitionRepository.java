@@ -0,0 +1,156 @@
+package com.alancortez.project.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+
+// DDL and catalog queries for the monthly partitions of the reports table.
+// Partitions are named reports_pYYYYMM and cover [first of month, first of
+// next month). reports_default catches rows outside every partition.
+@Repository
+public class ReportPartitionRepository {
+
+    public static final String DEFAULT_PARTITION = "reports_default";
+
+    private static final String PARTITION_PREFIX = "reports_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Hibernate's schema update does not manage the partitioned table, so
+    // columns Report gained after the conversion are added here, one
+    // idempotent ALTER per column.
+    public void addMissingColumns() {
+        jdbcTemplate.execute("ALTER TABLE reports ADD COLUMN IF NOT EXISTS events integer");
+    }
+
+    public List<String> findColumns() {
+        return jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'reports'",
+                String.class
+        );
+    }
+
+    // Serializes partition DDL across instances until the caller's
+    // transaction ends. Keyed by schema, so instances sharing a database but
+    // not a schema do not wait on each other.
+    public void lock() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(current_schema() || '.reports_partitioning'))");
+    }
+
+    public boolean isPartitioned() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass('reports')",
+                String.class
+        );
+        return "p".equals(kind);
+    }
+
+    // Swaps the plain table Hibernate created for a partitioned one with the
+    // same columns and constraints, keeping every row. The caller holds the
+    // transaction; nothing else may be writing reports while this runs.
+    public long convertToPartitioned(Collection<YearMonth> months) {
+        jdbcTemplate.execute("LOCK TABLE reports IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE reports RENAME TO reports_unpartitioned");
+        jdbcTemplate.execute("ALTER TABLE reports_unpartitioned RENAME CONSTRAINT reports_pkey TO reports_unpartitioned_pkey");
+        for (String index : ReportIndexRepository.INDEXES.keySet()) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+        for (String index : ReportIndexRepository.UNIQUE_INDEXES.keySet()) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+
+        jdbcTemplate.execute("CREATE TABLE reports (LIKE reports_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS) " +
+                "PARTITION BY RANGE (timestamp)");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS reports_partitioned_id_seq OWNED BY reports.id");
+        jdbcTemplate.execute("ALTER TABLE reports ALTER COLUMN id SET DEFAULT nextval('reports_partitioned_id_seq')");
+        jdbcTemplate.execute("ALTER TABLE reports ADD CONSTRAINT reports_pkey PRIMARY KEY (id, timestamp)");
+
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF reports DEFAULT");
+        for (YearMonth month : months) {
+            createPartition(month);
+        }
+
+        long copied = jdbcTemplate.update("INSERT INTO reports (id, report_type, entity_id, entity_name, timestamp, count, events) " +
+                "SELECT id, report_type, entity_id, entity_name, timestamp, count, events FROM reports_unpartitioned");
+        jdbcTemplate.execute("SELECT setval('reports_partitioned_id_seq', " +
+                "GREATEST((SELECT COALESCE(MAX(id), 0) FROM reports), 1))");
+        jdbcTemplate.execute("DROP TABLE reports_unpartitioned");
+        return copied;
+    }
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'reports'::regclass ORDER BY c.relname",
+                String.class
+        );
+    }
+
+    public void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF reports FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    // A month that already has rows in the default partition cannot simply be
+    // created: the rows are moved into a standalone table which is then
+    // attached in their place. Returns the number of rows moved.
+    public long absorbFromDefault(YearMonth month) {
+        String name = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String range = "timestamp >= '" + from + "' AND timestamp < '" + to + "'";
+
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE reports INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        long moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range + " RETURNING *) " +
+                "INSERT INTO " + name + " SELECT * FROM moved");
+        jdbcTemplate.execute("ALTER TABLE " + name + " ADD CONSTRAINT " + name + "_bounds CHECK (" + range + ")");
+        jdbcTemplate.execute("ALTER TABLE reports ATTACH PARTITION " + name +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        jdbcTemplate.execute("ALTER TABLE " + name + " DROP CONSTRAINT " + name + "_bounds");
+        return moved;
+    }
+
+    // Months that have at least one row in the given table or partition.
+    public List<YearMonth> findMonths(String table) {
+        return jdbcTemplate.query(
+                "SELECT DISTINCT date_trunc('month', timestamp) AS month FROM " + table + " ORDER BY 1",
+                (rs, i) -> YearMonth.from(rs.getTimestamp(1).toLocalDateTime())
+        );
+    }
+
+    // Planner estimate, so dropping a partition does not first scan it.
+    public long estimateRows(String partition) {
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = to_regclass(?)",
+                Long.class,
+                partition
+        );
+        return rows == null ? 0L : rows;
+    }
+
+    public void dropPartition(String partition) {
+        jdbcTemplate.execute("ALTER TABLE reports DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    // Null for names that are not monthly partitions, such as the default.
+    public static YearMonth monthOf(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+    }
+}
@@ -3,14 +3,20 @@ package com.alancortez.project.repository;
 import com.alancortez.project.model.Report;
 import com.alancortez.project.utils.REPORT_TYPE;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReportRepository extends JpaRepository<Report, Long> {
+public interface ReportRepository extends JpaRepository<Report, Long>, ReportRepositoryCustom {
 
     List<Report> findByReportType(REPORT_TYPE reportType);
 
@@ -26,7 +32,76 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
             @Param("end") LocalDateTime end
     );
 
-    @Query("SELECT r.reportType as type, COUNT(r) as count FROM Report r " +
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM reports)", nativeQuery = true)
+    boolean hasAnyReports();
+
+    // Cursor-backed streams for NDJSON exports. They must be consumed inside a
+    // transaction so PostgreSQL fetches STREAM_FETCH_SIZE rows at a time.
+    String STREAM_FETCH_SIZE = "500";
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Report r ORDER BY r.id")
+    Stream<Report> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Report r WHERE r.reportType = :type ORDER BY r.id")
+    Stream<Report> streamByReportType(@Param("type") REPORT_TYPE reportType);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Report r WHERE r.timestamp >= :start AND r.timestamp <= :end ORDER BY r.timestamp DESC")
+    Stream<Report> streamByDateRange(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    // Keyset pages, newest first. Rows strictly after the (timestamp, id)
+    // cursor in that order, so a page costs the same at any depth.
+    @Query(value = "SELECT * FROM reports r " +
+            "WHERE (r.timestamp, r.id) < (:cursorTimestamp, :cursorId) " +
+            "ORDER BY r.timestamp DESC, r.id DESC " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<Report> findPage(
+            @Param("cursorTimestamp") LocalDateTime cursorTimestamp,
+            @Param("cursorId") long cursorId,
+            @Param("limit") int limit
+    );
+
+    @Query(value = "SELECT * FROM reports r " +
+            "WHERE r.report_type = :type AND (r.timestamp, r.id) < (:cursorTimestamp, :cursorId) " +
+            "ORDER BY r.timestamp DESC, r.id DESC " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<Report> findPageByReportType(
+            @Param("type") String type,
+            @Param("cursorTimestamp") LocalDateTime cursorTimestamp,
+            @Param("cursorId") long cursorId,
+            @Param("limit") int limit
+    );
+
+    // The range end is applied through the first cursor, see ReportPageCursor.
+    @Query(value = "SELECT * FROM reports r " +
+            "WHERE r.timestamp >= :start AND (r.timestamp, r.id) < (:cursorTimestamp, :cursorId) " +
+            "ORDER BY r.timestamp DESC, r.id DESC " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<Report> findPageByDateRange(
+            @Param("start") LocalDateTime start,
+            @Param("cursorTimestamp") LocalDateTime cursorTimestamp,
+            @Param("cursorId") long cursorId,
+            @Param("limit") int limit
+    );
+
+    @Query("SELECT r.reportType as type, SUM(COALESCE(r.events, 1)) as count FROM Report r " +
             "WHERE r.timestamp >= :start AND r.timestamp <= :end " +
             "GROUP BY r.reportType")
     List<Object[]> getReportSummary(
@@ -34,17 +109,44 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
             @Param("end") LocalDateTime end
     );
 
-    @Query("SELECT r.entityName as name, r.entityId as id, SUM(r.count) as total FROM Report r " +
-            "WHERE r.reportType = :type AND r.timestamp >= :start AND r.timestamp <= :end " +
-            "GROUP BY r.entityName, r.entityId " +
-            "ORDER BY total DESC")
-    List<Object[]> getTopEntitiesByType(
-            @Param("type") REPORT_TYPE type,
+    // Top entities for an inclusive [start, end], ranked and limited in one
+    // statement. Whole days come from the daily rollup, whole hours from the
+    // hourly rollup and the partial hours at either edge from raw reports;
+    // the boundaries are ReportRangePlan.Bounds, and empty pieces simply
+    // match nothing.
+    @Query(value = "WITH totals AS (" +
+            "SELECT entity_name, entity_id, SUM(total)::bigint AS total FROM (" +
+            "SELECT r.entity_name, r.entity_id, COALESCE(r.count, 0) AS total FROM reports r " +
+            "WHERE r.report_type = :type " +
+            "AND ((r.timestamp >= :start AND r.timestamp < :hourStart) " +
+            "OR (r.timestamp >= :hourEnd AND r.timestamp <= :end)) " +
+            "UNION ALL " +
+            "SELECT h.entity_name, h.entity_id, h.total_count FROM report_rollup_hourly h " +
+            "WHERE h.report_type = :type " +
+            "AND ((h.bucket >= :hourStart AND h.bucket < :dayStart) " +
+            "OR (h.bucket >= :dayEnd AND h.bucket < :hourEnd)) " +
+            "UNION ALL " +
+            "SELECT d.entity_name, d.entity_id, d.total_count FROM report_rollup_daily d " +
+            "WHERE d.report_type = :type AND d.bucket >= :dayStart AND d.bucket < :dayEnd" +
+            ") AS sources " +
+            "GROUP BY entity_name, entity_id) " +
+            "SELECT entity_name AS name, entity_id AS id, total, (SUM(total) OVER ())::bigint AS grandTotal " +
+            "FROM totals " +
+            "ORDER BY total DESC, entity_id " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<TopEntity> getTopEntitiesByType(
+            @Param("type") String type,
             @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end
+            @Param("hourStart") LocalDateTime hourStart,
+            @Param("dayStart") LocalDateTime dayStart,
+            @Param("dayEnd") LocalDateTime dayEnd,
+            @Param("hourEnd") LocalDateTime hourEnd,
+            @Param("end") LocalDateTime end,
+            @Param("limit") int limit
     );
 
-    @Query("SELECT DATE(r.timestamp) as date, COUNT(r) as count FROM Report r " +
+    @Query("SELECT DATE(r.timestamp) as date, SUM(COALESCE(r.events, 1)) as count FROM Report r " +
             "WHERE r.reportType = :type AND r.timestamp >= :start AND r.timestamp <= :end " +
             "GROUP BY DATE(r.timestamp) " +
             "ORDER BY date ASC")
@@ -54,13 +156,112 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
             @Param("end") LocalDateTime end
     );
 
-    @Query("SELECT COUNT(r) FROM Report r WHERE r.reportType = :type AND r.timestamp >= :start AND r.timestamp <= :end")
+    @Query(value = "SELECT date_trunc(:unit, r.timestamp) AS bucket, SUM(COALESCE(r.events, 1)) FROM reports r " +
+            "WHERE r.report_type = :type AND r.timestamp >= :start AND r.timestamp <= :end " +
+            "GROUP BY 1 " +
+            "ORDER BY 1 ASC",
+            nativeQuery = true)
+    List<Object[]> getBucketedTimeSeries(
+            @Param("type") String type,
+            @Param("unit") String unit,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    // Report count and count total per bucket for several types at once.
+    @Query(value = "SELECT date_trunc(:unit, r.timestamp) AS bucket, r.report_type, SUM(COALESCE(r.events, 1)), " +
+            "COALESCE(SUM(r.count), 0) FROM reports r " +
+            "WHERE r.report_type IN (:types) AND r.timestamp >= :start AND r.timestamp <= :end " +
+            "GROUP BY 1, 2",
+            nativeQuery = true)
+    List<Object[]> getBucketedTimeSeries(
+            @Param("types") Collection<String> types,
+            @Param("unit") String unit,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    // Entity totals per minute since a point in time, for rebuilding the
+    // heavy-hitter hour window.
+    @Query(value = "SELECT r.report_type, r.entity_id, MAX(r.entity_name), date_trunc('minute', r.timestamp), " +
+            "COALESCE(SUM(r.count), 0) FROM reports r " +
+            "WHERE r.report_type IN (:types) AND r.timestamp >= :since " +
+            "GROUP BY 1, 2, 4",
+            nativeQuery = true)
+    List<Object[]> getMinuteTotalsSince(
+            @Param("types") Collection<String> types,
+            @Param("since") LocalDateTime since
+    );
+
+    @Query("SELECT SUM(COALESCE(r.events, 1)) FROM Report r " +
+            "WHERE r.reportType = :type AND r.timestamp >= :start AND r.timestamp <= :end")
     Long countByTypeAndDateRange(
             @Param("type") REPORT_TYPE type,
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end
     );
 
-    @Query("SELECT DISTINCT r.entityName FROM Report r WHERE r.reportType = :type")
-    List<String> findDistinctEntityNamesByType(@Param("type") REPORT_TYPE type);
+    // One retention chunk. The row limit keeps each DELETE, and the locks it
+    // holds, short. The outer cutoff lets PostgreSQL prune partitions, and
+    // matching on the full (id, timestamp) key keeps it on the primary key.
+    @Modifying
+    @Query(value = "DELETE FROM reports WHERE timestamp < :cutoff AND (id, timestamp) IN (" +
+            "SELECT id, timestamp FROM reports WHERE report_type = :type AND timestamp < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunkOlderThan(
+            @Param("type") String type,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("limit") int limit
+    );
+
+    // Exact number of distinct entities reported in an inclusive [start, end],
+    // split over the raw table and the rollups like getTopEntitiesByType.
+    @Query(value = "SELECT COUNT(DISTINCT entity_id) FROM (" +
+            "SELECT r.entity_id FROM reports r " +
+            "WHERE r.report_type = :type " +
+            "AND ((r.timestamp >= :start AND r.timestamp < :hourStart) " +
+            "OR (r.timestamp >= :hourEnd AND r.timestamp <= :end)) " +
+            "UNION ALL " +
+            "SELECT h.entity_id FROM report_rollup_hourly h " +
+            "WHERE h.report_type = :type " +
+            "AND ((h.bucket >= :hourStart AND h.bucket < :dayStart) " +
+            "OR (h.bucket >= :dayEnd AND h.bucket < :hourEnd)) " +
+            "UNION ALL " +
+            "SELECT d.entity_id FROM report_rollup_daily d " +
+            "WHERE d.report_type = :type AND d.bucket >= :dayStart AND d.bucket < :dayEnd" +
+            ") AS sources",
+            nativeQuery = true)
+    long countDistinctEntities(
+            @Param("type") String type,
+            @Param("start") LocalDateTime start,
+            @Param("hourStart") LocalDateTime hourStart,
+            @Param("dayStart") LocalDateTime dayStart,
+            @Param("dayEnd") LocalDateTime dayEnd,
+            @Param("hourEnd") LocalDateTime hourEnd,
+            @Param("end") LocalDateTime end
+    );
+
+    // Distinct entities in the partial days at either edge of a range, the
+    // part the per-day sketches do not cover.
+    @Query(value = "SELECT DISTINCT entity_id FROM (" +
+            "SELECT r.entity_id FROM reports r " +
+            "WHERE r.report_type = :type " +
+            "AND ((r.timestamp >= :start AND r.timestamp < :hourStart) " +
+            "OR (r.timestamp >= :hourEnd AND r.timestamp <= :end)) " +
+            "UNION ALL " +
+            "SELECT h.entity_id FROM report_rollup_hourly h " +
+            "WHERE h.report_type = :type " +
+            "AND ((h.bucket >= :hourStart AND h.bucket < :dayStart) " +
+            "OR (h.bucket >= :dayEnd AND h.bucket < :hourEnd))" +
+            ") AS sources",
+            nativeQuery = true)
+    List<Long> findEntityIdsOutsideDays(
+            @Param("type") String type,
+            @Param("start") LocalDateTime start,
+            @Param("hourStart") LocalDateTime hourStart,
+            @Param("dayStart") LocalDateTime dayStart,
+            @Param("dayEnd") LocalDateTime dayEnd,
+            @Param("hourEnd") LocalDateTime hourEnd,
+            @Param("end") LocalDateTime end
+    );
 }
@@ -0,0 +1,33 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.Report;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+
+public interface ReportRepositoryCustom {
+
+    // Multi-row INSERT for write-behind batches. Generated ids are not read
+    // back, so the passed reports keep a null id.
+    int insertBatch(List<Report> reports);
+
+    // Multi-row upsert of coalesced rows, keyed on (reportType, entityId,
+    // timestamp) among rows that carry events. An existing row takes the
+    // latest name and adds the count and events. Keys must be unique
+    // within one call.
+    int upsertCoalesced(List<Report> reports);
+
+    // Streams reports into the table with COPY ... FROM STDIN on the current
+    // transaction's connection, pulling rows from the iterator as it goes.
+    long copyReports(Iterator<Report> reports);
+
+    // Reads the columns analytics need for every report at or after since,
+    // without building entities. Rows arrive in no particular order.
+    void scanColumns(LocalDateTime since, ColumnHandler handler);
+
+    @FunctionalInterface
+    interface ColumnHandler {
+        void row(String reportType, long entityId, String entityName, LocalDateTime timestamp, int count, int events);
+    }
+}
@@ -0,0 +1,161 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.Report;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.List;
+
+public class ReportRepositoryImpl implements ReportRepositoryCustom {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO reports (report_type, entity_id, entity_name, timestamp, count) VALUES ";
+    private static final String COPY_SQL =
+            "COPY reports (report_type, entity_id, entity_name, timestamp, count) FROM STDIN WITH (FORMAT csv)";
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO reports (report_type, entity_id, entity_name, timestamp, count, events) VALUES ";
+    private static final String UPSERT_SUFFIX =
+            " ON CONFLICT (report_type, entity_id, timestamp) WHERE events IS NOT NULL DO UPDATE SET " +
+                    "entity_name = EXCLUDED.entity_name, " +
+                    "count = reports.count + EXCLUDED.count, " +
+                    "events = reports.events + EXCLUDED.events";
+    private static final int COLUMNS = 5;
+    private static final int UPSERT_COLUMNS = 6;
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+    private static final int SCAN_FETCH_SIZE = 10_000;
+
+    // PostgreSQL caps a statement at 32767 bind parameters.
+    public static final int MAX_ROWS_PER_INSERT = Short.MAX_VALUE / COLUMNS;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertBatch(List<Report> reports) {
+        int inserted = 0;
+
+        for (int from = 0; from < reports.size(); from += MAX_ROWS_PER_INSERT) {
+            List<Report> chunk = reports.subList(from, Math.min(reports.size(), from + MAX_ROWS_PER_INSERT));
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * 18).append(INSERT_PREFIX);
+            Object[] args = new Object[chunk.size() * COLUMNS];
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Report report = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+                args[i * COLUMNS] = report.getReportType().name();
+                args[i * COLUMNS + 1] = report.getEntityId();
+                args[i * COLUMNS + 2] = report.getEntityName();
+                args[i * COLUMNS + 3] = report.getTimestamp();
+                args[i * COLUMNS + 4] = report.getCount();
+            }
+
+            inserted += jdbcTemplate.update(sql.toString(), args);
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public int upsertCoalesced(List<Report> reports) {
+        int written = 0;
+        int maxRows = Short.MAX_VALUE / UPSERT_COLUMNS;
+
+        for (int from = 0; from < reports.size(); from += maxRows) {
+            List<Report> chunk = reports.subList(from, Math.min(reports.size(), from + maxRows));
+            StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + UPSERT_SUFFIX.length() + chunk.size() * 21)
+                    .append(UPSERT_PREFIX);
+            Object[] args = new Object[chunk.size() * UPSERT_COLUMNS];
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Report report = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+                args[i * UPSERT_COLUMNS] = report.getReportType().name();
+                args[i * UPSERT_COLUMNS + 1] = report.getEntityId();
+                args[i * UPSERT_COLUMNS + 2] = report.getEntityName();
+                args[i * UPSERT_COLUMNS + 3] = report.getTimestamp();
+                args[i * UPSERT_COLUMNS + 4] = report.getCount();
+                args[i * UPSERT_COLUMNS + 5] = report.getEvents();
+            }
+
+            written += jdbcTemplate.update(sql.append(UPSERT_SUFFIX).toString(), args);
+        }
+
+        return written;
+    }
+
+    @Override
+    public long copyReports(Iterator<Report> reports) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_CHUNK_BYTES + 1024);
+            StringBuilder line = new StringBuilder(128);
+
+            try {
+                while (reports.hasNext()) {
+                    appendCsv(line, reports.next());
+                    buffer.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+                    line.setLength(0);
+
+                    if (buffer.size() >= COPY_CHUNK_BYTES) {
+                        copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                        buffer.reset();
+                    }
+                }
+                if (buffer.size() > 0) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                }
+                return copyIn.endCopy();
+            } catch (SQLException | RuntimeException e) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw e;
+            }
+        });
+    }
+
+    // Needs a transaction, since the driver only streams with a fetch size
+    // when autocommit is off.
+    @Override
+    public void scanColumns(LocalDateTime since, ColumnHandler handler) {
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            "SELECT report_type, entity_id, entity_name, timestamp, COALESCE(count, 0), COALESCE(events, 1) " +
+                                    "FROM reports WHERE timestamp >= ?"
+                    );
+                    statement.setFetchSize(SCAN_FETCH_SIZE);
+                    statement.setObject(1, since);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> handler.row(
+                        rs.getString(1),
+                        rs.getLong(2),
+                        rs.getString(3),
+                        rs.getObject(4, LocalDateTime.class),
+                        rs.getInt(5),
+                        rs.getInt(6)
+                )
+        );
+    }
+
+    private static void appendCsv(StringBuilder line, Report report) {
+        line.append(report.getReportType().name()).append(',')
+                .append(report.getEntityId()).append(',')
+                .append('"').append(report.getEntityName().replace("\"", "\"\"")).append('"').append(',')
+                .append(report.getTimestamp().truncatedTo(ChronoUnit.MICROS)).append(',')
+                .append(report.getCount())
+                .append('\n');
+    }
+}
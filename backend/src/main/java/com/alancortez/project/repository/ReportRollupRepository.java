@@ -0,0 +1,140 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.model.ReportRollup;
+import com.alancortez.project.model.ReportRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Shared queries for the hourly and daily rollup tables. Bucket ranges are
+// half-open: bucket >= :start AND bucket < :end.
+@NoRepositoryBean
+public interface ReportRollupRepository<T extends ReportRollup> extends JpaRepository<T, ReportRollupId> {
+
+    @Modifying
+    @Query(value = "INSERT INTO #{#entityName} " +
+            "(report_type, entity_id, bucket, entity_name, report_count, total_count) " +
+            "VALUES (:type, :entityId, :bucket, :entityName, :reportCount, :totalCount) " +
+            "ON CONFLICT (report_type, entity_id, bucket) DO UPDATE SET " +
+            "entity_name = EXCLUDED.entity_name, " +
+            "report_count = #{#entityName}.report_count + EXCLUDED.report_count, " +
+            "total_count = #{#entityName}.total_count + EXCLUDED.total_count",
+            nativeQuery = true)
+    void upsert(
+            @Param("type") String type,
+            @Param("entityId") Long entityId,
+            @Param("bucket") LocalDateTime bucket,
+            @Param("entityName") String entityName,
+            @Param("reportCount") long reportCount,
+            @Param("totalCount") long totalCount
+    );
+
+    @Query(value = "SELECT report_type, SUM(report_count) FROM #{#entityName} " +
+            "WHERE bucket >= :start AND bucket < :end " +
+            "GROUP BY report_type",
+            nativeQuery = true)
+    List<Object[]> getReportSummary(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Query(value = "SELECT COALESCE(SUM(report_count), 0) FROM #{#entityName} " +
+            "WHERE report_type = :type AND bucket >= :start AND bucket < :end",
+            nativeQuery = true)
+    Long countByTypeAndDateRange(
+            @Param("type") String type,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Query(value = "SELECT date_trunc(:unit, bucket) AS chart_bucket, SUM(report_count) FROM #{#entityName} " +
+            "WHERE report_type = :type AND bucket >= :start AND bucket < :end " +
+            "GROUP BY 1 " +
+            "ORDER BY 1 ASC",
+            nativeQuery = true)
+    List<Object[]> getTimeSeriesData(
+            @Param("type") String type,
+            @Param("unit") String unit,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Query(value = "SELECT date_trunc(:unit, bucket) AS chart_bucket, report_type, " +
+            "SUM(report_count), SUM(total_count) FROM #{#entityName} " +
+            "WHERE report_type IN (:types) AND bucket >= :start AND bucket < :end " +
+            "GROUP BY 1, 2",
+            nativeQuery = true)
+    List<Object[]> getTimeSeriesData(
+            @Param("types") Collection<String> types,
+            @Param("unit") String unit,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM #{#entityName})", nativeQuery = true)
+    boolean hasAnyBuckets();
+
+    @Modifying
+    @Query(value = "INSERT INTO #{#entityName} " +
+            "(report_type, entity_id, bucket, entity_name, report_count, total_count) " +
+            "SELECT r.report_type, r.entity_id, date_trunc(:unit, r.timestamp), MAX(r.entity_name), " +
+            "SUM(COALESCE(r.events, 1)), COALESCE(SUM(r.count), 0) " +
+            "FROM reports r " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildFromReports(@Param("unit") String unit);
+
+    @Modifying
+    @Query(value = "INSERT INTO #{#entityName} " +
+            "(report_type, entity_id, bucket, entity_name, report_count, total_count) " +
+            "SELECT r.report_type, r.entity_id, date_trunc(:unit, r.timestamp), MAX(r.entity_name), " +
+            "SUM(COALESCE(r.events, 1)), COALESCE(SUM(r.count), 0) " +
+            "FROM reports r " +
+            "WHERE r.timestamp >= :start AND r.timestamp < :end " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildFromReports(
+            @Param("unit") String unit,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Modifying
+    @Query(value = "INSERT INTO #{#entityName} " +
+            "(report_type, entity_id, bucket, entity_name, report_count, total_count) " +
+            "SELECT r.report_type, r.entity_id, date_trunc(:unit, r.timestamp), MAX(r.entity_name), " +
+            "SUM(COALESCE(r.events, 1)), COALESCE(SUM(r.count), 0) " +
+            "FROM reports r " +
+            "WHERE r.report_type = :type AND r.timestamp >= :start AND r.timestamp < :end " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildFromReports(
+            @Param("unit") String unit,
+            @Param("type") String type,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM #{#entityName} " +
+            "WHERE report_type = :type AND bucket >= :start AND bucket < :end",
+            nativeQuery = true)
+    int deleteByTypeAndBucketRange(
+            @Param("type") String type,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM #{#entityName} WHERE bucket >= :start AND bucket < :end", nativeQuery = true)
+    int deleteByBucketRange(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+}
@@ -0,0 +1,7 @@
+package com.alancortez.project.repository;
+
+// One row of a top-entities ranking. grandTotal is the sum over every entity
+// in the range, not just the returned rows, so callers can size the
+// remainder without a second query.
+public record TopEntity(String name, Long id, Long total, Long grandTotal) {
+}
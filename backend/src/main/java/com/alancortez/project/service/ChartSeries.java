@@ -0,0 +1,165 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Chart counts for one report type with one slot per bucket, from the bucket
+// holding start to the one holding end. Sources add into slots by bucket
+// ordinal, so empty buckets are zeros and rows can come in any order. Labels
+// are shared arrays cached per (grouping, first bucket). The series writes
+// itself as the [{date, count}] array the chart endpoint returns.
+@JsonSerialize(using = ChartSeries.Serializer.class)
+public final class ChartSeries {
+
+    private static final long MAX_CACHED_LABELS = 1_000_000;
+    private static final String[] NO_LABELS = new String[0];
+
+    private record LabelKey(CHART_GROUPING grouping, LocalDateTime first) {
+    }
+
+    private static final Cache<LabelKey, String[]> LABELS = Caffeine.newBuilder()
+            .maximumWeight(MAX_CACHED_LABELS)
+            .weigher((LabelKey key, String[] labels) -> labels.length)
+            .build();
+
+    private final CHART_GROUPING grouping;
+    private final LocalDateTime first;
+    private final long[] counts;
+
+    // May be longer than counts; only the first counts.length are used.
+    private final String[] labels;
+
+    private ChartSeries(CHART_GROUPING grouping, LocalDateTime first, long[] counts, String[] labels) {
+        this.grouping = grouping;
+        this.first = first;
+        this.counts = counts;
+        this.labels = labels;
+    }
+
+    public static ChartSeries of(CHART_GROUPING grouping, LocalDateTime start, LocalDateTime end) {
+        long buckets = buckets(grouping, start, end);
+        if (buckets > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chart buckets: " + buckets);
+        }
+        LocalDateTime first = grouping.truncate(start);
+        int size = (int) buckets;
+        return new ChartSeries(grouping, first, new long[size], labels(grouping, first, size));
+    }
+
+    // The size of(grouping, start, end) would have, without allocating it,
+    // so callers can reject a range before building anything for it.
+    public static long buckets(CHART_GROUPING grouping, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime first = grouping.truncate(start);
+        return end.isBefore(first) ? 0 : ordinal(grouping, first, end) + 1;
+    }
+
+    // Adds to the bucket holding the given time; times outside the series
+    // are ignored.
+    public void add(LocalDateTime time, long count) {
+        long index = ordinal(grouping, first, time);
+        if (index >= 0 && index < counts.length) {
+            counts[(int) index] += count;
+        }
+    }
+
+    public void add(int index, long count) {
+        counts[index] += count;
+    }
+
+    public int size() {
+        return counts.length;
+    }
+
+    public CHART_GROUPING getGrouping() {
+        return grouping;
+    }
+
+    public LocalDateTime getFirst() {
+        return first;
+    }
+
+    public LocalDateTime bucket(int index) {
+        return first.plus(index, grouping.getStep());
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    public long count(int index) {
+        return counts[index];
+    }
+
+    // Months vary in length, so they are counted by calendar month; every
+    // other grouping has a fixed width.
+    private static long ordinal(CHART_GROUPING grouping, LocalDateTime first, LocalDateTime time) {
+        if (grouping == CHART_GROUPING.MONTH) {
+            return (time.getYear() * 12L + time.getMonthValue()) - (first.getYear() * 12L + first.getMonthValue());
+        }
+        long seconds = time.toEpochSecond(ZoneOffset.UTC) - first.toEpochSecond(ZoneOffset.UTC);
+        return Math.floorDiv(seconds, grouping.getStep().getDuration().getSeconds());
+    }
+
+    // A cached array that is too short is extended and replaces the entry,
+    // so a longer range from the same first bucket only formats the new tail.
+    private static String[] labels(CHART_GROUPING grouping, LocalDateTime first, int size) {
+        if (size == 0) {
+            return NO_LABELS;
+        }
+
+        LabelKey key = new LabelKey(grouping, first);
+        String[] cached = LABELS.getIfPresent(key);
+        if (cached != null && cached.length >= size) {
+            return cached;
+        }
+
+        int from = cached == null ? 0 : cached.length;
+        String[] labels = new String[size];
+        if (cached != null) {
+            System.arraycopy(cached, 0, labels, 0, from);
+        }
+        LocalDateTime bucket = first.plus(from, grouping.getStep());
+        for (int i = from; i < size; i++) {
+            labels[i] = grouping.label(bucket);
+            bucket = grouping.next(bucket);
+        }
+
+        LABELS.put(key, labels);
+        return labels;
+    }
+
+    public static final class Serializer extends StdSerializer<ChartSeries> {
+
+        private static final SerializedString DATE = new SerializedString("date");
+        private static final SerializedString COUNT = new SerializedString("count");
+
+        public Serializer() {
+            super(ChartSeries.class);
+        }
+
+        @Override
+        public void serialize(ChartSeries series, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            int size = series.counts.length;
+            generator.writeStartArray(series, size);
+            for (int i = 0; i < size; i++) {
+                generator.writeStartObject();
+                generator.writeFieldName(DATE);
+                generator.writeString(series.labels[i]);
+                generator.writeFieldName(COUNT);
+                generator.writeNumber(series.counts[i]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.alancortez.project.service;
 
 import com.alancortez.project.model.Ingredient;
 import com.alancortez.project.repository.IngredientRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
 @Service
+@Timed(value = "app.service", histogram = true)
 public class IngredientService {
 
     @Autowired
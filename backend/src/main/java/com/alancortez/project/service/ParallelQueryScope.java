@@ -0,0 +1,106 @@
+package com.alancortez.project.service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// A small stand-in for StructuredTaskScope.ShutdownOnFailure, which is still a
+// preview API. Subtasks are forked onto a shared executor and all of them are
+// joined before the scope closes. join() takes subtasks in completion order,
+// so the first failure or the timeout cancels the rest as soon as it happens.
+//
+// Each subtask runs in its own read-only transaction, so it holds at most one
+// pooled connection. The semaphore caps how many of those one scope holds at
+// a time. The transaction timeout doubles as the per-query statement timeout.
+public final class ParallelQueryScope implements AutoCloseable {
+
+    private final CompletionService<Object> completionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxConnections;
+    private final Semaphore connections;
+    private final long timeoutMillis;
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    public ParallelQueryScope(
+            ExecutorService executor,
+            PlatformTransactionManager transactionManager,
+            int maxConnections,
+            long timeoutMillis
+    ) {
+        this.completionService = new ExecutorCompletionService<>(executor);
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connections = new Semaphore(this.maxConnections);
+        this.timeoutMillis = timeoutMillis;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout((int) Math.max(1, (timeoutMillis + 999) / 1000));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Supplier<T> fork(Callable<T> query) {
+        Future<T> future = (Future<T>) completionService.submit(() -> {
+            connections.acquire();
+            try {
+                return transactionTemplate.execute(status -> {
+                    try {
+                        return query.call();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                });
+            } finally {
+                connections.release();
+            }
+        });
+        futures.add(future);
+
+        return () -> {
+            try {
+                return future.get(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("Subtask result is not available; call join() first", e);
+            }
+        };
+    }
+
+    // Waits for every subtask. A subtask gets timeoutMillis once it holds a
+    // connection, so queued subtasks get extra time for the rounds ahead of them.
+    public void join() throws InterruptedException, ExecutionException, TimeoutException {
+        int rounds = Math.max(1, (futures.size() + maxConnections - 1) / maxConnections);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis * rounds);
+
+        try {
+            for (int done = 0; done < futures.size(); done++) {
+                Future<?> future = completionService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new TimeoutException("Subtasks did not finish within " + timeoutMillis * rounds + " ms");
+                }
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.QUERY_STAT_ORDER;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Read side of the query statistics for the queries actuator endpoint: per-statement
+// execution time and row counts from QueryTimingService, entity and
+// collection load counts from Hibernate, and the statements that crossed
+// hibernate.log_slow_query. Query strings are the prepared SQL, so the list
+// shows bind-parameter shape, never values.
+// Collection is off unless query-stats.enabled is set or it is switched on at
+// runtime through setEnabled.
+@Service
+public class QueryStatisticsService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private QueryTimingService queryTimingService;
+
+    @Value("${query-stats.slow-threshold-ms:200}")
+    private long slowThresholdMs;
+
+    @Value("${query-stats.max-limit:100}")
+    private int maxLimit;
+
+    public Map<String, Object> getTopQueries(QUERY_STAT_ORDER order, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        Statistics statistics = statistics();
+
+        List<Map<String, Object>> queries = queryTimingService.snapshot();
+        for (Map<String, Object> entry : queries) {
+            entry.put("slow", slowThresholdMs > 0 && (Double) entry.get("maxMs") >= slowThresholdMs);
+        }
+        queries.sort(Comparator.comparingDouble((Map<String, Object> entry) -> rank(entry, order)).reversed());
+
+        List<Map<String, Object>> slowStatements = new ArrayList<>();
+        statistics.getSlowQueries().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(slow -> {
+                    Map<String, Object> entry = new HashMap<>();
+                    entry.put("sql", slow.getKey());
+                    entry.put("ms", slow.getValue());
+                    slowStatements.add(entry);
+                });
+
+        Map<String, Object> result = status(statistics);
+        result.put("order", order.getParam());
+        result.put("queryExecutions", statistics.getQueryExecutionCount());
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("untrackedExecutions", queryTimingService.getUntracked());
+        result.put("queries", queries.subList(0, Math.min(limit, queries.size())));
+        result.put("slowStatements", slowStatements);
+        return result;
+    }
+
+    public Map<String, Object> getEntityLoads() {
+        Statistics statistics = statistics();
+
+        List<Map<String, Object>> entities = new ArrayList<>();
+        for (String name : statistics.getEntityNames()) {
+            EntityStatistics stats = statistics.getEntityStatistics(name);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("entity", name);
+            entry.put("loads", stats.getLoadCount());
+            entry.put("fetches", stats.getFetchCount());
+            entry.put("inserts", stats.getInsertCount());
+            entry.put("updates", stats.getUpdateCount());
+            entry.put("deletes", stats.getDeleteCount());
+            entities.add(entry);
+        }
+        entities.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("loads")).reversed());
+
+        // A collection with many fetches per load is the usual N+1 suspect.
+        List<Map<String, Object>> collections = new ArrayList<>();
+        for (String role : statistics.getCollectionRoleNames()) {
+            CollectionStatistics stats = statistics.getCollectionStatistics(role);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("collection", role);
+            entry.put("loads", stats.getLoadCount());
+            entry.put("fetches", stats.getFetchCount());
+            collections.add(entry);
+        }
+        collections.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("fetches")).reversed());
+
+        Map<String, Object> result = status(statistics);
+        result.put("entityLoads", statistics.getEntityLoadCount());
+        result.put("entityFetches", statistics.getEntityFetchCount());
+        result.put("collectionLoads", statistics.getCollectionLoadCount());
+        result.put("collectionFetches", statistics.getCollectionFetchCount());
+        result.put("entities", entities);
+        result.put("collections", collections);
+        return result;
+    }
+
+    public Map<String, Object> setEnabled(boolean enabled) {
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(enabled);
+        queryTimingService.setEnabled(enabled);
+        return status(statistics);
+    }
+
+    public void reset() {
+        statistics().clear();
+        queryTimingService.reset();
+    }
+
+    private Map<String, Object> status(Statistics statistics) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("since", statistics.getStart().toString());
+        result.put("slowThresholdMs", slowThresholdMs);
+        return result;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static double rank(Map<String, Object> entry, QUERY_STAT_ORDER order) {
+        switch (order) {
+            case AVG:
+                return (Double) entry.get("avgMs");
+            case TOTAL:
+                return (Double) entry.get("totalMs");
+            default:
+                return (Double) entry.get("maxMs");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.alancortez.project.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Execution time per SQL statement, measured around the JDBC execute call by
+// QueryTimingDataSource. Hibernate's own query statistics start their clock
+// after the statement has run for native queries and round every execution
+// down to whole milliseconds, so they cannot rank queries by cost. Keys are
+// the prepared SQL with ? placeholders, never bound values.
+@Service
+public class QueryTimingService {
+
+    @Value("${query-stats.enabled:false}")
+    private volatile boolean enabled;
+
+    @Value("${query-stats.max-queries:5000}")
+    private int maxQueries;
+
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+    private final AtomicLong untracked = new AtomicLong();
+    private volatile Instant since = Instant.now();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void record(String sql, long nanos, long rows) {
+        if (!enabled || sql == null) {
+            return;
+        }
+        Timing timing = timings.get(sql);
+        if (timing == null) {
+            // Past the cap new statements are only counted, so a stream of
+            // one-off SQL cannot grow the map without bound.
+            if (timings.size() >= maxQueries) {
+                untracked.incrementAndGet();
+                return;
+            }
+            timing = timings.computeIfAbsent(sql, key -> new Timing());
+        }
+        timing.add(nanos, rows);
+    }
+
+    // Rows of a result set are only known once it has been read, after the
+    // execution itself was recorded.
+    public void addRows(String sql, long rows) {
+        Timing timing = sql == null ? null : timings.get(sql);
+        if (timing != null) {
+            timing.addRows(rows);
+        }
+    }
+
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> queries = new ArrayList<>();
+        timings.forEach((sql, timing) -> {
+            Map<String, Object> entry = timing.toMap();
+            entry.put("query", sql);
+            queries.add(entry);
+        });
+        return queries;
+    }
+
+    public long getUntracked() {
+        return untracked.get();
+    }
+
+    public Instant getSince() {
+        return since;
+    }
+
+    public void reset() {
+        timings.clear();
+        untracked.set(0);
+        since = Instant.now();
+    }
+
+    private static final class Timing {
+        private long executions;
+        private long rows;
+        private long totalNanos;
+        private long maxNanos;
+        private long minNanos = Long.MAX_VALUE;
+
+        synchronized void add(long nanos, long rowCount) {
+            executions++;
+            rows += rowCount;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            minNanos = Math.min(minNanos, nanos);
+        }
+
+        synchronized void addRows(long rowCount) {
+            rows += rowCount;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("executions", executions);
+            entry.put("rows", rows);
+            entry.put("avgMs", millis(totalNanos / (double) executions));
+            entry.put("maxMs", millis(maxNanos));
+            entry.put("minMs", millis(minNanos));
+            entry.put("totalMs", millis(totalNanos));
+            return entry;
+        }
+
+        private static double millis(double nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+}
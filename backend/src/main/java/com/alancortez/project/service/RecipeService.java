@@ -4,6 +4,7 @@ import com.alancortez.project.model.Recipe;
 import com.alancortez.project.model.RecipeComponent;
 import com.alancortez.project.model.RecipeUseHistory;
 import com.alancortez.project.repository.RecipeRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -11,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Service
+@Timed(value = "app.service", histogram = true)
 public class RecipeService {
 
     @Autowired
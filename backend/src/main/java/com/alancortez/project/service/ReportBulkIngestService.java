@@ -0,0 +1,235 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Bulk report loads. The body is parsed one record at a time and fed straight
+// into COPY. What stays in memory is the current record, the rollup deltas,
+// and the raw ReportColumns of rows inside the column store's window, which
+// the batch keeps for ReportColumnStore.
+// Each record has the ReportRequest shape plus optional timestamp and count.
+@Service
+public class ReportBulkIngestService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Accepts NDJSON or a single JSON array, detected from the first byte.
+    @Transactional
+    public Map<String, Object> load(InputStream body) throws IOException {
+        long started = System.nanoTime();
+        BufferedInputStream input = new BufferedInputStream(body);
+        ReportRollupBatch rollups = reportRollupService.newBatch();
+
+        RecordReader reader = startsWithArray(input)
+                ? new JsonArrayReader(input, rollups)
+                : new NdjsonReader(input, rollups);
+
+        long copied = reportRepository.copyReports(reader);
+        reportRollupService.record(rollups);
+
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("accepted", copied);
+        result.put("rejected", reader.rejected);
+        result.put("errors", reader.errors);
+        result.put("elapsedMillis", Math.round(seconds * 1000));
+        result.put("rowsPerSecond", seconds > 0 ? Math.round(copied / seconds) : copied);
+        return result;
+    }
+
+    private static boolean startsWithArray(BufferedInputStream input) throws IOException {
+        input.mark(4096);
+        int b;
+        do {
+            b = input.read();
+        } while (b != -1 && (Character.isWhitespace(b) || b == 0xEF || b == 0xBB || b == 0xBF));
+        input.reset();
+        return b == '[';
+    }
+
+    // Pulls records on demand for COPY; malformed ones are counted and skipped.
+    private abstract class RecordReader implements Iterator<Report> {
+        private final ReportRollupBatch rollups;
+        private final ObjectReader reportReader = objectMapper.readerFor(Report.class);
+        private Report nextReport;
+        protected long position;
+        long rejected;
+        final List<Map<String, Object>> errors = new ArrayList<>();
+
+        RecordReader(ReportRollupBatch rollups) {
+            this.rollups = rollups;
+        }
+
+        // Returns the next record as a tree, or null at the end of the body.
+        protected abstract JsonNode readNode() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (nextReport == null) {
+                    JsonNode node;
+                    try {
+                        node = readNode();
+                    } catch (JsonProcessingException e) {
+                        reject(e.getOriginalMessage());
+                        if (!canResume()) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    if (node == null) {
+                        return false;
+                    }
+                    nextReport = toReport(node);
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Report next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Report report = nextReport;
+            nextReport = null;
+            rollups.add(report);
+            return report;
+        }
+
+        protected boolean canResume() {
+            return true;
+        }
+
+        private Report toReport(JsonNode node) {
+            Report report;
+            try {
+                report = reportReader.treeToValue(node, Report.class);
+            } catch (JsonProcessingException e) {
+                reject(e.getOriginalMessage());
+                return null;
+            }
+
+            if (report == null) {
+                reject("record must be a JSON object");
+                return null;
+            }
+
+            report.setId(null);
+            report.setEvents(null);
+            if (report.getCount() == null) {
+                report.setCount(1);
+            }
+
+            if (report.getReportType() == null || report.getEntityId() == null
+                    || report.getEntityName() == null || report.getTimestamp() == null) {
+                reject("reportType, entityId and entityName are required");
+                return null;
+            }
+            if (report.getCount() < 1) {
+                reject("count must be positive");
+                return null;
+            }
+            return report;
+        }
+
+        private void reject(String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("record", position);
+                error.put("error", message);
+                errors.add(error);
+            }
+        }
+    }
+
+    private class NdjsonReader extends RecordReader {
+        private final BufferedReader lines;
+
+        NdjsonReader(InputStream input, ReportRollupBatch rollups) {
+            super(rollups);
+            this.lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        protected JsonNode readNode() throws IOException {
+            String line;
+            do {
+                line = lines.readLine();
+                if (line == null) {
+                    return null;
+                }
+                position++;
+            } while (line.isBlank());
+
+            return objectMapper.readTree(line);
+        }
+    }
+
+    // A syntax error inside an array leaves the parser with no safe place to
+    // resume, so the load keeps the rows read so far and stops there.
+    private class JsonArrayReader extends RecordReader {
+        private final JsonParser parser;
+        private boolean broken;
+
+        JsonArrayReader(InputStream input, ReportRollupBatch rollups) throws IOException {
+            super(rollups);
+            this.parser = objectMapper.getFactory().createParser(input);
+            parser.nextToken();
+        }
+
+        @Override
+        protected JsonNode readNode() throws IOException {
+            if (broken) {
+                return null;
+            }
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                position++;
+                return parser.readValueAsTree();
+            } catch (JsonProcessingException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        @Override
+        protected boolean canResume() {
+            return !broken;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Ingest mode (reports.ingest.mode=coalesce) that merges report events before
+// they reach the table. Events with the same (reportType, entityId) inside
+// one bucket of reports.ingest.coalesce-bucket-seconds add up in a concurrent
+// map; a flusher thread drains it and upserts one row per key, stamped with
+// the bucket start, whose count and events grow with every flush that hits
+// it. Report counts read events rather than rows, so aggregates match what
+// the same events written one row each would give at every grouping; only
+// ranges that start or end inside a bucket can see its events move to the
+// bucket start. Rows are returned as stored, so GET /api/reports and the
+// page endpoints show one row per key with the bucket start as its
+// timestamp and the events it stands for.
+@Service
+public class ReportCoalescingService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportCoalescingService.class);
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // queue: one row per event through ReportIngestService.
+    // coalesce: one row per (type, entity, bucket) through this service.
+    @Value("${reports.ingest.mode:queue}")
+    private String mode;
+
+    // Must divide an hour, so a bucket never straddles a rollup bucket.
+    @Value("${reports.ingest.coalesce-bucket-seconds:60}")
+    private int bucketSeconds;
+
+    // Past this many pending keys, events for new keys go to the ingest queue.
+    @Value("${reports.ingest.coalesce-max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${reports.ingest.coalesce-flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong acceptedEvents = new AtomicLong();
+    private final AtomicLong overflowEvents = new AtomicLong();
+    private final AtomicLong flushedEvents = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    private Counter shutdownDroppedCounter;
+
+    private volatile boolean running;
+    private volatile Thread flusher;
+    private TransactionTemplate transactionTemplate;
+
+    // Shares reports.ingest.dropped with ReportIngestService.
+    @PostConstruct
+    public void registerMetrics() {
+        shutdownDroppedCounter = Counter.builder("reports.ingest.dropped")
+                .description("Report events dropped without being written")
+                .tag("reason", "shutdown")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return "coalesce".equalsIgnoreCase(mode);
+    }
+
+    // False when the mode is off, the service is stopping, the map is full
+    // and the event's key is new, or the event would take its key's count or
+    // events past what a row holds; the caller then writes it the usual way.
+    public boolean accept(Report report) {
+        if (!running) {
+            return false;
+        }
+
+        long seconds = report.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        Key key = new Key(report.getReportType(), report.getEntityId(), seconds - Math.floorMod(seconds, bucketSeconds));
+        if (pending.size() >= maxKeys && !pending.containsKey(key)) {
+            overflowEvents.incrementAndGet();
+            LockSupport.unpark(flusher);
+            return false;
+        }
+
+        long count = report.getCount() == null ? 0 : report.getCount();
+        boolean[] full = new boolean[1];
+        pending.compute(key, (k, cell) -> {
+            Pending merged = cell == null ? new Pending() : cell;
+            if (merged.count + count > Integer.MAX_VALUE || merged.events + report.eventCount() > Integer.MAX_VALUE) {
+                full[0] = true;
+                return cell;
+            }
+            merged.entityName = report.getEntityName();
+            merged.count += count;
+            merged.events += report.eventCount();
+            return merged;
+        });
+        if (full[0]) {
+            overflowEvents.incrementAndGet();
+            LockSupport.unpark(flusher);
+            return false;
+        }
+        acceptedEvents.incrementAndGet();
+        return true;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long flushes = flushCount.get();
+        long rows = flushedRows.get();
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", isEnabled());
+        metrics.put("bucketSeconds", bucketSeconds);
+        metrics.put("pendingKeys", pending.size());
+        metrics.put("acceptedEvents", acceptedEvents.get());
+        metrics.put("overflowEvents", overflowEvents.get());
+        metrics.put("flushedEvents", flushedEvents.get());
+        metrics.put("flushedRows", rows);
+        metrics.put("eventsPerRow", rows == 0 ? 0.0 : flushedEvents.get() / (double) rows);
+        metrics.put("failedFlushes", failedFlushes.get());
+        metrics.put("droppedEvents", droppedEvents.get());
+        metrics.put("flushCount", flushes);
+        metrics.put("lastFlushMillis", lastFlushNanos.get() / 1_000_000.0);
+        metrics.put("avgFlushMillis", flushes == 0 ? 0.0 : flushNanosTotal.get() / (double) flushes / 1_000_000.0);
+        return metrics;
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (bucketSeconds <= 0 || 3600 % bucketSeconds != 0) {
+            throw new IllegalStateException("reports.ingest.coalesce-bucket-seconds must divide 3600, was " + bucketSeconds);
+        }
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+
+        Thread thread = new Thread(this::runFlusher, "report-coalesce-flusher");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    // Stops taking events, then writes what is pending. A final flush that
+    // fails loses those events, and they are counted as dropped.
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<Report> rows = drain();
+        if (!rows.isEmpty() && !flush(rows)) {
+            long lost = rows.stream().mapToLong(Report::eventCount).sum();
+            droppedEvents.addAndGet(lost);
+            shutdownDroppedCounter.increment(lost);
+            log.error("Dropped {} coalesced report events on shutdown", lost);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops just before the ingest queue, which takes whatever arrives after.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4095;
+    }
+
+    private void runFlusher() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            List<Report> rows = drain();
+            if (!rows.isEmpty() && !flush(rows)) {
+                restore(rows);
+            }
+        }
+    }
+
+    // Removing key by key keeps each remove atomic with the compute calls of
+    // producers, so an event lands either in this flush or in the next one.
+    // A key restored on top of new events can hold more than one row takes;
+    // the rest goes back for the next flush, since a key may appear only once
+    // per upsert.
+    private List<Report> drain() {
+        List<Report> rows = new ArrayList<>(pending.size());
+        Map<Key, Pending> carried = new HashMap<>();
+        for (Key key : pending.keySet()) {
+            Pending cell = pending.remove(key);
+            if (cell != null) {
+                Pending rest = cell.split();
+                if (rest != null) {
+                    carried.put(key, rest);
+                }
+                rows.add(cell.toReport(key));
+            }
+        }
+        carried.forEach((key, rest) -> pending.merge(key, rest, Pending::add));
+        return rows;
+    }
+
+    private boolean flush(List<Report> rows) {
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                reportRepository.upsertCoalesced(rows);
+                reportRollupService.record(rows);
+            });
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Coalesced report flush of {} rows failed; keeping them for the next flush", rows.size(), e);
+            return false;
+        }
+
+        long nanos = System.nanoTime() - started;
+        flushedRows.addAndGet(rows.size());
+        flushedEvents.addAndGet(rows.stream().mapToLong(Report::eventCount).sum());
+        flushCount.incrementAndGet();
+        flushNanosTotal.addAndGet(nanos);
+        lastFlushNanos.set(nanos);
+        return true;
+    }
+
+    // Puts a failed flush back so it is retried, merged with anything that
+    // arrived for the same keys in the meantime.
+    private void restore(List<Report> rows) {
+        for (Report row : rows) {
+            long bucket = row.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            pending.merge(new Key(row.getReportType(), row.getEntityId(), bucket), Pending.of(row), Pending::add);
+        }
+    }
+
+    private record Key(REPORT_TYPE reportType, long entityId, long bucket) {
+    }
+
+    // Mutated only inside ConcurrentHashMap.compute/merge for its key, or
+    // after drain() has removed it. Sums are longs so restoring a failed
+    // flush cannot wrap them; a row takes at most Integer.MAX_VALUE of each.
+    private static final class Pending {
+        String entityName;
+        long count;
+        long events;
+
+        static Pending of(Report row) {
+            Pending pending = new Pending();
+            pending.entityName = row.getEntityName();
+            pending.count = row.getCount();
+            pending.events = row.getEvents();
+            return pending;
+        }
+
+        Pending add(Pending other) {
+            count += other.count;
+            events += other.events;
+            return this;
+        }
+
+        // Leaves this cell within what a row holds and returns the excess,
+        // or null when there is none.
+        Pending split() {
+            if (count <= Integer.MAX_VALUE && events <= Integer.MAX_VALUE) {
+                return null;
+            }
+            Pending rest = new Pending();
+            rest.entityName = entityName;
+            rest.count = Math.max(count - Integer.MAX_VALUE, 0);
+            rest.events = Math.max(events - Integer.MAX_VALUE, 0);
+            count -= rest.count;
+            events -= rest.events;
+            return rest;
+        }
+
+        Report toReport(Key key) {
+            Report report = new Report(key.reportType(), key.entityId(), entityName);
+            report.setTimestamp(LocalDateTime.ofEpochSecond(key.bucket(), 0, ZoneOffset.UTC));
+            report.setCount((int) count);
+            report.setEvents((int) events);
+            return report;
+        }
+    }
+}
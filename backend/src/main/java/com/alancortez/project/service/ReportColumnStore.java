@@ -0,0 +1,603 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.repository.TopEntity;
+import com.alancortez.project.service.ReportRollupService.TopEntities;
+import com.alancortez.project.service.ReportRollupService.TypeSeries;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.TransactionCallbacks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+// The recent window of reports held as primitive columns, as a second engine
+// for the summary, chart and top-entity aggregations. Rows live in segments
+// of SEGMENT_ROWS epoch-microsecond timestamps, type ordinals, entity ids,
+// interned entity names and counts. Every aggregation scans the segments in
+// parallel and skips those whose timestamp span misses the range. The window
+// is loaded from the table at startup and kept current from the rollup batch
+// of every committed write; covers() says whether a range starts inside it.
+@Service
+@DependsOn("reportPartitionService")
+public class ReportColumnStore implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportColumnStore.class);
+
+    private static final int SEGMENT_ROWS = 1 << 16;
+    private static final long NOT_COVERED = Long.MAX_VALUE;
+    private static final REPORT_TYPE[] TYPES = REPORT_TYPE.values();
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${reports.column-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reports.column-store.window-days:35}")
+    private int windowDays;
+
+    // 0 derives the cap from the heap: heap-percent of Runtime.maxMemory()
+    // at Segment.BYTES_PER_ROW per row.
+    @Value("${reports.column-store.max-rows:0}")
+    private long maxRows;
+
+    @Value("${reports.column-store.heap-percent:20}")
+    private int heapPercent;
+
+    @Value("${reports.column-store.parallelism:0}")
+    private int parallelism;
+
+    private final Object writeLock = new Object();
+    // Entity names interned to ints for the name column. nameIds is only
+    // touched under writeLock; readers look names up in nameValues.
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final Map<Integer, String> nameValues = new ConcurrentHashMap<>();
+    // Per type, the cutoff of the last purge; rows before it are ignored.
+    private final AtomicLongArray purgedBefore = new AtomicLongArray(TYPES.length);
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile long coverageStart = NOT_COVERED;
+    private long rows;
+    private ForkJoinPool pool;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (int i = 0; i < TYPES.length; i++) {
+            purgedBefore.set(i, Long.MIN_VALUE);
+        }
+        if (!enabled) {
+            return;
+        }
+
+        if (maxRows <= 0) {
+            maxRows = rowBudget(Runtime.getRuntime().maxMemory(), heapPercent);
+            log.info("Column store holds at most {} rows ({} MB, {}% of the heap)",
+                    maxRows, maxRows * Segment.BYTES_PER_ROW / (1024 * 1024), heapPercent);
+        }
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        load();
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public boolean covers(LocalDateTime start) {
+        return ReportColumns.toMicros(start) >= coverageStart;
+    }
+
+    // Where the window starts, or null when nothing is held. Batches keep
+    // raw rows from here on.
+    public LocalDateTime getCoverageStart() {
+        long start = coverageStart;
+        return start == NOT_COVERED ? null : ReportColumns.fromMicros(start);
+    }
+
+    public void record(ReportRollupBatch batch) {
+        ReportColumns columns = batch.getColumns();
+        if (coverageStart == NOT_COVERED || (columns.size() == 0 && !columns.isOverflowed())) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> append(columns));
+    }
+
+    public void purgeBefore(REPORT_TYPE type, LocalDateTime cutoff) {
+        long micros = ReportColumns.toMicros(cutoff);
+        TransactionCallbacks.afterCommit(() -> purgedBefore.accumulateAndGet(type.ordinal(), micros, Math::max));
+    }
+
+    public void clear() {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (writeLock) {
+                segments = new Segment[0];
+                rows = 0;
+                nameIds.clear();
+                nameValues.clear();
+            }
+        });
+    }
+
+    // Moves the window forward, dropping segments that hold nothing newer
+    // than its new start.
+    @Scheduled(fixedDelayString = "${reports.column-store.trim-interval-ms:3600000}")
+    public void trim() {
+        if (coverageStart == NOT_COVERED) {
+            return;
+        }
+
+        long start = ReportColumns.toMicros(windowStart());
+        synchronized (writeLock) {
+            coverageStart = Math.max(coverageStart, start);
+            List<Segment> kept = new ArrayList<>(segments.length);
+            for (int i = 0; i < segments.length; i++) {
+                if (i == segments.length - 1 || segments[i].maxTimestamp >= coverageStart) {
+                    kept.add(segments[i]);
+                } else {
+                    rows -= segments[i].size;
+                }
+            }
+            segments = kept.toArray(new Segment[0]);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("coverageStart", getCoverageStart());
+        stats.put("segments", segments.length);
+        stats.put("maxRows", maxRows);
+        synchronized (writeLock) {
+            stats.put("rows", rows);
+        }
+        stats.put("bytes", (long) segments.length * SEGMENT_ROWS * Segment.BYTES_PER_ROW);
+        return stats;
+    }
+
+    public Map<REPORT_TYPE, Long> getReportSummary(LocalDateTime start, LocalDateTime end) {
+        long from = ReportColumns.toMicros(start);
+        long to = ReportColumns.toMicros(end);
+        long[] purged = purgeCutoffs();
+
+        long[] counts = scan(from, to, segment -> {
+            long[] partial = new long[TYPES.length];
+            long[] timestamps = segment.timestamps;
+            byte[] types = segment.types;
+            int[] events = segment.events;
+            for (int i = 0, n = segment.size; i < n; i++) {
+                long timestamp = timestamps[i];
+                if (timestamp >= from && timestamp <= to && timestamp >= purged[types[i]]) {
+                    partial[types[i]] += events[i];
+                }
+            }
+            return partial;
+        }, ReportColumnStore::sum, new long[TYPES.length]);
+
+        Map<REPORT_TYPE, Long> summary = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : TYPES) {
+            if (counts[type.ordinal()] > 0) {
+                summary.put(type, counts[type.ordinal()]);
+            }
+        }
+        return summary;
+    }
+
+    // Same buckets as ReportRollupService.getTimeSeries.
+    public ChartSeries getTimeSeries(
+            REPORT_TYPE type,
+            LocalDateTime start,
+            LocalDateTime end,
+            CHART_GROUPING grouping
+    ) {
+        ChartSeries series = ChartSeries.of(grouping, start, end);
+        int size = series.size();
+        if (size == 0) {
+            return series;
+        }
+
+        // Every grouping but MONTH has equal-width buckets, so the index is
+        // a division; months fall back to a binary search.
+        long first = ReportColumns.toMicros(series.getFirst());
+        long width = grouping == CHART_GROUPING.MONTH ? 0L : grouping.getStep().getDuration().toNanos() / 1_000L;
+        long[] bounds = width > 0 ? null : bucketBounds(series);
+        byte wanted = (byte) type.ordinal();
+        long from = Math.max(ReportColumns.toMicros(start), purgeCutoffs()[wanted]);
+        long to = ReportColumns.toMicros(end);
+
+        long[] counts = scan(from, to, segment -> {
+            long[] partial = new long[size];
+            long[] timestamps = segment.timestamps;
+            byte[] types = segment.types;
+            int[] events = segment.events;
+            for (int i = 0, n = segment.size; i < n; i++) {
+                long timestamp = timestamps[i];
+                if (types[i] != wanted || timestamp < from || timestamp > to) {
+                    continue;
+                }
+                int index = width > 0
+                        ? (int) ((timestamp - first) / width)
+                        : bucketIndex(bounds, timestamp);
+                partial[index] += events[i];
+            }
+            return partial;
+        }, ReportColumnStore::sum, new long[size]);
+
+        for (int i = 0; i < size; i++) {
+            series.add(i, counts[i]);
+        }
+        return series;
+    }
+
+    // Same buckets for several types from one scan. Each row lands in a flat
+    // array at ((type * 2) + metric) * size + bucket, metric 0 being the report
+    // count and 1 the count total.
+    public Map<REPORT_TYPE, TypeSeries> getTimeSeries(
+            Set<REPORT_TYPE> wantedTypes,
+            LocalDateTime start,
+            LocalDateTime end,
+            CHART_GROUPING grouping
+    ) {
+        Map<REPORT_TYPE, TypeSeries> result = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : wantedTypes) {
+            result.put(type, new TypeSeries(ChartSeries.of(grouping, start, end), ChartSeries.of(grouping, start, end)));
+        }
+        ChartSeries shape = ChartSeries.of(grouping, start, end);
+        int size = shape.size();
+        if (size == 0 || wantedTypes.isEmpty()) {
+            return result;
+        }
+
+        long first = ReportColumns.toMicros(shape.getFirst());
+        long width = grouping == CHART_GROUPING.MONTH ? 0L : grouping.getStep().getDuration().toNanos() / 1_000L;
+        long[] bounds = width > 0 ? null : bucketBounds(shape);
+        long[] purged = purgeCutoffs();
+        long startMicros = ReportColumns.toMicros(start);
+        long to = ReportColumns.toMicros(end);
+
+        // Types not asked for keep a floor above every timestamp.
+        long[] floors = new long[TYPES.length];
+        Arrays.fill(floors, Long.MAX_VALUE);
+        long from = Long.MAX_VALUE;
+        for (REPORT_TYPE type : wantedTypes) {
+            floors[type.ordinal()] = Math.max(startMicros, purged[type.ordinal()]);
+            from = Math.min(from, floors[type.ordinal()]);
+        }
+
+        long[] totals = scan(from, to, segment -> {
+            long[] partial = new long[TYPES.length * 2 * size];
+            long[] timestamps = segment.timestamps;
+            byte[] types = segment.types;
+            int[] counts = segment.counts;
+            int[] events = segment.events;
+            for (int i = 0, n = segment.size; i < n; i++) {
+                long timestamp = timestamps[i];
+                byte type = types[i];
+                if (timestamp < floors[type] || timestamp > to) {
+                    continue;
+                }
+                int index = width > 0
+                        ? (int) ((timestamp - first) / width)
+                        : bucketIndex(bounds, timestamp);
+                int offset = type * 2 * size + index;
+                partial[offset] += events[i];
+                partial[offset + size] += counts[i];
+            }
+            return partial;
+        }, ReportColumnStore::sum, new long[TYPES.length * 2 * size]);
+
+        for (Map.Entry<REPORT_TYPE, TypeSeries> entry : result.entrySet()) {
+            int offset = entry.getKey().ordinal() * 2 * size;
+            for (int i = 0; i < size; i++) {
+                entry.getValue().reports().add(i, totals[offset + i]);
+                entry.getValue().total().add(i, totals[offset + size + i]);
+            }
+        }
+        return result;
+    }
+
+    // Same contract as ReportRollupService.getTopEntities: entities are
+    // (name, id) pairs as in the SQL GROUP BY, so a renamed entity shows up
+    // once per name, ranked by total, then entity id, with the remainder as
+    // othersTotal. The rollups keep the latest name per bucket, so the two
+    // engines can differ for a rename inside a closed hour or day.
+    public TopEntities getTopEntities(REPORT_TYPE type, LocalDateTime start, LocalDateTime end, int limit) {
+        byte wanted = (byte) type.ordinal();
+        long from = Math.max(ReportColumns.toMicros(start), purgeCutoffs()[wanted]);
+        long to = ReportColumns.toMicros(end);
+
+        EntityTotals totals = scan(from, to, segment -> {
+            EntityTotals partial = new EntityTotals();
+            long[] timestamps = segment.timestamps;
+            byte[] types = segment.types;
+            int[] entityIds = segment.entityIds;
+            int[] nameIds = segment.nameIds;
+            int[] counts = segment.counts;
+            for (int i = 0, n = segment.size; i < n; i++) {
+                long timestamp = timestamps[i];
+                if (types[i] == wanted && timestamp >= from && timestamp <= to) {
+                    partial.add(entityKey(nameIds[i], entityIds[i]), counts[i]);
+                }
+            }
+            return partial;
+        }, EntityTotals::merge, new EntityTotals());
+
+        Long[] order = totals.keys();
+        long grandTotal = totals.grandTotal();
+        Arrays.sort(order, Comparator.comparingLong((Long key) -> totals.get(key)).reversed()
+                .thenComparingInt(key -> (int) (long) key)
+                .thenComparing(key -> nameValues.get((int) (key >>> 32))));
+
+        List<TopEntity> top = new ArrayList<>(Math.min(limit, order.length));
+        long shown = 0;
+        for (int i = 0; i < Math.min(limit, order.length); i++) {
+            long key = order[i];
+            long total = totals.get(key);
+            top.add(new TopEntity(nameValues.get((int) (key >>> 32)), (long) (int) key, total, grandTotal));
+            shown += total;
+        }
+        return new TopEntities(top, top.isEmpty() ? 0L : grandTotal - shown);
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        LocalDateTime since = windowStart();
+        ReportRollupBatch batch = new ReportRollupBatch(since);
+        ReportColumns columns = batch.getColumns();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> reportRepository.scanColumns(since,
+                (reportType, entityId, entityName, timestamp, count, events) -> columns.add(
+                        REPORT_TYPE.valueOf(reportType), entityId, entityName, timestamp, count, events)));
+
+        coverageStart = ReportColumns.toMicros(since);
+        append(columns);
+        log.info("Loaded {} reports since {} into the column store in {} ms",
+                columns.size(), since, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void append(ReportColumns columns) {
+        synchronized (writeLock) {
+            if (columns.isOverflowed()) {
+                log.warn("Column store disabled: a report's entity id does not fit in an int");
+                coverageStart = NOT_COVERED;
+                return;
+            }
+
+            Segment[] current = segments;
+            Segment tail = current.length == 0 ? null : current[current.length - 1];
+
+            for (int row = 0; row < columns.size(); row++) {
+                if (columns.timestamp(row) < coverageStart) {
+                    continue;
+                }
+                if (tail == null || tail.size == SEGMENT_ROWS) {
+                    tail = new Segment();
+                    current = Arrays.copyOf(current, current.length + 1);
+                    current[current.length - 1] = tail;
+                    segments = current;
+                }
+                tail.append(columns.timestamp(row), columns.type(row), columns.entityId(row),
+                        internName(columns.entityName(row)), columns.count(row), columns.events(row));
+                rows++;
+            }
+
+            // Over the row budget the oldest segments go, and the window
+            // starts after the newest row they held.
+            while (rows > maxRows && current.length > 1) {
+                coverageStart = Math.max(coverageStart, current[0].maxTimestamp + 1);
+                rows -= current[0].size;
+                current = Arrays.copyOfRange(current, 1, current.length);
+                segments = current;
+            }
+        }
+    }
+
+    // Called under writeLock. The name is visible in nameValues before the
+    // row that refers to it is published.
+    private int internName(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = nameIds.size();
+            nameIds.put(name, id);
+            nameValues.put(id, name);
+        }
+        return id;
+    }
+
+    // Whole segments only, and at least one. The store can run one segment
+    // over the cap before the oldest is dropped, so that segment counts too.
+    static long rowBudget(long maxMemory, int heapPercent) {
+        long segmentBytes = (long) SEGMENT_ROWS * Segment.BYTES_PER_ROW;
+        long segments = maxMemory / 100 * heapPercent / segmentBytes - 1;
+        return Math.max(1, segments) * SEGMENT_ROWS;
+    }
+
+    private static long entityKey(int nameId, int entityId) {
+        return ((long) nameId << 32) | (entityId & 0xFFFFFFFFL);
+    }
+
+    private <T> T scan(long from, long to, Function<Segment, T> scanner, BinaryOperator<T> merge, T empty) {
+        Segment[] snapshot = segments;
+        return pool.submit(() -> Arrays.stream(snapshot)
+                .parallel()
+                .filter(segment -> segment.overlaps(from, to))
+                .map(scanner)
+                .reduce(merge)
+                .orElse(empty)
+        ).join();
+    }
+
+    private long[] purgeCutoffs() {
+        long[] cutoffs = new long[TYPES.length];
+        for (int i = 0; i < cutoffs.length; i++) {
+            cutoffs[i] = purgedBefore.get(i);
+        }
+        return cutoffs;
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(windowDays);
+    }
+
+    private static long[] bucketBounds(ChartSeries series) {
+        long[] bounds = new long[series.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = ReportColumns.toMicros(series.bucket(i));
+        }
+        return bounds;
+    }
+
+    private static int bucketIndex(long[] bounds, long timestamp) {
+        int index = Arrays.binarySearch(bounds, timestamp);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static long[] sum(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    // Appended to by one writer at a time under writeLock. size is written
+    // after the row and the span, so a reader that reads size first sees
+    // every row below it.
+    private static final class Segment {
+        static final int BYTES_PER_ROW = Long.BYTES + Byte.BYTES + 4 * Integer.BYTES;
+
+        final long[] timestamps = new long[SEGMENT_ROWS];
+        final byte[] types = new byte[SEGMENT_ROWS];
+        final int[] entityIds = new int[SEGMENT_ROWS];
+        final int[] nameIds = new int[SEGMENT_ROWS];
+        final int[] counts = new int[SEGMENT_ROWS];
+        final int[] events = new int[SEGMENT_ROWS];
+        volatile long minTimestamp = Long.MAX_VALUE;
+        volatile long maxTimestamp = Long.MIN_VALUE;
+        volatile int size;
+
+        void append(long timestamp, byte type, int entityId, int nameId, int count, int eventCount) {
+            int row = size;
+            timestamps[row] = timestamp;
+            types[row] = type;
+            entityIds[row] = entityId;
+            nameIds[row] = nameId;
+            counts[row] = count;
+            events[row] = eventCount;
+            if (timestamp < minTimestamp) {
+                minTimestamp = timestamp;
+            }
+            if (timestamp > maxTimestamp) {
+                maxTimestamp = timestamp;
+            }
+            size = row + 1;
+        }
+
+        boolean overlaps(long from, long to) {
+            return size > 0 && minTimestamp <= to && maxTimestamp >= from;
+        }
+    }
+
+    // Open-addressing long -> long map for per-entity totals, keyed by
+    // entityKey(nameId, entityId).
+    private static final class EntityTotals {
+        private long[] keys = new long[64];
+        private long[] values = new long[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+        private long grandTotal;
+
+        void add(long key, long value) {
+            grandTotal += value;
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int slot = slot(keys, used, key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] += value;
+        }
+
+        long get(long key) {
+            int slot = slot(keys, used, key);
+            return used[slot] ? values[slot] : 0L;
+        }
+
+        long grandTotal() {
+            return grandTotal;
+        }
+
+        Long[] keys() {
+            Long[] ids = new Long[size];
+            int next = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) {
+                    ids[next++] = keys[i];
+                }
+            }
+            return ids;
+        }
+
+        EntityTotals merge(EntityTotals other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.used[i]) {
+                    add(other.keys[i], other.values[i]);
+                }
+            }
+            return this;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slot(keys, used, oldKeys[i]);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, boolean[] used, long key) {
+            int mask = keys.length - 1;
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
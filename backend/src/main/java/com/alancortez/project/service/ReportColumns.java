@@ -0,0 +1,106 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.utils.REPORT_TYPE;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Reports as primitive columns: epoch-microsecond timestamps, type ordinals,
+// entity ids, counts and event counts, plus each row's entity name. Used to
+// carry a batch's rows into ReportColumnStore.
+final class ReportColumns {
+
+    private long[] timestamps = new long[16];
+    private byte[] types = new byte[16];
+    private int[] entityIds = new int[16];
+    private int[] counts = new int[16];
+    private int[] events = new int[16];
+    private String[] entityNames = new String[16];
+    private int size;
+    private boolean overflowed;
+
+    // Entity ids outside the int range cannot be stored; the store stops
+    // answering queries once it has missed a row.
+    void add(Report report) {
+        add(
+                report.getReportType(),
+                report.getEntityId(),
+                report.getEntityName(),
+                report.getTimestamp(),
+                report.getCount() == null ? 0 : report.getCount(),
+                report.eventCount()
+        );
+    }
+
+    void add(REPORT_TYPE reportType, long entityId, String entityName, LocalDateTime timestamp, int count, int eventCount) {
+        if (entityId != (int) entityId) {
+            overflowed = true;
+            return;
+        }
+
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            types = Arrays.copyOf(types, capacity);
+            entityIds = Arrays.copyOf(entityIds, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            events = Arrays.copyOf(events, capacity);
+            entityNames = Arrays.copyOf(entityNames, capacity);
+        }
+
+        byte type = (byte) reportType.ordinal();
+        timestamps[size] = toMicros(timestamp);
+        types[size] = type;
+        entityIds[size] = (int) entityId;
+        counts[size] = count;
+        events[size] = eventCount;
+        entityNames[size] = entityName;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    byte type(int row) {
+        return types[row];
+    }
+
+    int entityId(int row) {
+        return entityIds[row];
+    }
+
+    int count(int row) {
+        return counts[row];
+    }
+
+    int events(int row) {
+        return events[row];
+    }
+
+    String entityName(int row) {
+        return entityNames[row];
+    }
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000,
+                ZoneOffset.UTC
+        );
+    }
+}
@@ -0,0 +1,168 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.DailyDistinctSketch;
+import com.alancortez.project.model.ReportRollupId;
+import com.alancortez.project.repository.DailyDistinctSketchRepository;
+import com.alancortez.project.repository.DailyReportRollupRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// How many different entities were reported for a type over a range. The
+// exact count reads the same raw/rollup split as the top-entities query.
+// The approximate count merges one stored HyperLogLog sketch per whole day
+// with the ids from the partial days at the edges. Sketches are built
+// from the daily rollup the first time a closed day is asked for, and are
+// dropped again when a write, purge or rebuild touches their day. A reader
+// can build a sketch from a snapshot taken before a back-dated write and
+// store it after that write's invalidate, so each sketch also records the
+// day's rollup report count it was built from and is rebuilt on read when
+// the count has moved.
+@Service
+public class ReportDistinctService {
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private DailyReportRollupRepository dailyReportRollupRepository;
+
+    @Autowired
+    private DailyDistinctSketchRepository dailyDistinctSketchRepository;
+
+    public long countExact(REPORT_TYPE type, LocalDateTime start, LocalDateTime end) {
+        ReportRangePlan.Bounds bounds = ReportRangePlan.bounds(start, end);
+        return reportRepository.countDistinctEntities(
+                type.name(),
+                bounds.start(),
+                bounds.hourStart(),
+                bounds.dayStart(),
+                bounds.dayEnd(),
+                bounds.hourEnd(),
+                bounds.end()
+        );
+    }
+
+    @Transactional
+    public long countApproximate(REPORT_TYPE type, LocalDateTime start, LocalDateTime end) {
+        ReportRangePlan.Bounds bounds = ReportRangePlan.bounds(start, end);
+        HyperLogLog sketch = new HyperLogLog();
+
+        for (Long entityId : reportRepository.findEntityIdsOutsideDays(
+                type.name(),
+                bounds.start(),
+                bounds.hourStart(),
+                bounds.dayStart(),
+                bounds.dayEnd(),
+                bounds.hourEnd(),
+                bounds.end())) {
+            sketch.add(entityId);
+        }
+
+        for (HyperLogLog day : dailySketches(type, bounds.dayStart(), bounds.dayEnd())) {
+            sketch.merge(day);
+        }
+
+        return sketch.estimate();
+    }
+
+    // Stored sketches only cover closed days, so only writes dated before
+    // today can make one stale.
+    @Transactional
+    public void invalidate(ReportRollupBatch batch) {
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Map<REPORT_TYPE, Set<LocalDateTime>> stale = new EnumMap<>(REPORT_TYPE.class);
+
+        for (ReportRollupId key : batch.getDaily().keySet()) {
+            if (key.getBucket().isBefore(today)) {
+                stale.computeIfAbsent(key.getReportType(), type -> new TreeSet<>()).add(key.getBucket());
+            }
+        }
+
+        for (Map.Entry<REPORT_TYPE, Set<LocalDateTime>> entry : stale.entrySet()) {
+            dailyDistinctSketchRepository.deleteByTypeAndBuckets(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Drops the sketches up to and including the day that holds the cutoff.
+    @Transactional
+    public void invalidateBefore(LocalDateTime cutoff) {
+        dailyDistinctSketchRepository.deleteBefore(cutoff.truncatedTo(ChronoUnit.DAYS).plusDays(1));
+    }
+
+    @Transactional
+    public void invalidateBefore(REPORT_TYPE type, LocalDateTime cutoff) {
+        dailyDistinctSketchRepository.deleteByTypeBefore(type, cutoff.truncatedTo(ChronoUnit.DAYS).plusDays(1));
+    }
+
+    @Transactional
+    public void invalidateAll() {
+        dailyDistinctSketchRepository.deleteAllInBatch();
+    }
+
+    // One sketch per day in [start, end). Days without a current stored
+    // sketch are built from the daily rollup in one query; closed days are
+    // stored, empty ones included, so the next range does not rebuild them.
+    private List<HyperLogLog> dailySketches(REPORT_TYPE type, LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return List.of();
+        }
+
+        Map<LocalDateTime, Long> reportCounts = new HashMap<>();
+        for (Object[] row : dailyReportRollupRepository.sumReportCountsByDay(type, start, end)) {
+            reportCounts.put((LocalDateTime) row[0], ((Number) row[1]).longValue());
+        }
+
+        Map<LocalDateTime, HyperLogLog> sketches = new TreeMap<>();
+        for (DailyDistinctSketch stored : dailyDistinctSketchRepository.findByTypeAndBucketRange(type, start, end)) {
+            if (Objects.equals(stored.getSourceReports(), reportCounts.getOrDefault(stored.getBucket(), 0L))) {
+                sketches.put(stored.getBucket(), HyperLogLog.fromBytes(stored.getRegisters()));
+            }
+        }
+
+        List<LocalDateTime> missing = new ArrayList<>();
+        for (LocalDateTime day = start; day.isBefore(end); day = day.plusDays(1)) {
+            if (!sketches.containsKey(day)) {
+                missing.add(day);
+            }
+        }
+        if (missing.isEmpty()) {
+            return new ArrayList<>(sketches.values());
+        }
+
+        // The ids and the count stored with them come from the same rows.
+        Map<LocalDateTime, HyperLogLog> built = new HashMap<>();
+        Map<LocalDateTime, Long> builtFrom = new HashMap<>();
+        for (LocalDateTime day : missing) {
+            built.put(day, new HyperLogLog());
+            builtFrom.put(day, 0L);
+        }
+        for (Object[] row : dailyReportRollupRepository.findEntityIdsByDay(
+                type, missing.get(0), missing.get(missing.size() - 1).plusDays(1))) {
+            LocalDateTime day = (LocalDateTime) row[0];
+            HyperLogLog sketch = built.get(day);
+            if (sketch != null) {
+                sketch.add((Long) row[1]);
+                builtFrom.merge(day, (Long) row[2], Long::sum);
+            }
+        }
+
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        for (LocalDateTime day : missing) {
+            HyperLogLog sketch = built.get(day);
+            if (day.isBefore(today)) {
+                dailyDistinctSketchRepository.upsert(type.name(), day, sketch.toBytes(), builtFrom.get(day));
+            }
+            sketches.put(day, sketch);
+        }
+
+        return new ArrayList<>(sketches.values());
+    }
+}
@@ -0,0 +1,440 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportLogCheckpointRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.repository.ReportRepositoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Durable local log in front of the reports table. append() copies the event
+// into the active memory-mapped segment and returns; one replayer thread
+// reads the segments in order and inserts them in batches, each batch in the
+// same transaction as the checkpoint that says where it ended. After a crash
+// replay picks up right after the last committed batch, and a segment is
+// deleted once it has been replayed. While the database is down, events
+// keep going into the log until max-segments are full.
+@Service
+public class ReportEventLog implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportEventLog.class);
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final int MAX_SEGMENT_RECORDS =
+            (Integer.MAX_VALUE - ReportLogSegment.HEADER_BYTES) / ReportLogSegment.RECORD_BYTES;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ReportLogCheckpointRepository reportLogCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${reports.event-log.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reports.event-log.directory:data/report-log}")
+    private String directory;
+
+    @Value("${reports.event-log.segment-records:65536}")
+    private int segmentRecords;
+
+    @Value("${reports.event-log.max-segments:64}")
+    private int maxSegments;
+
+    @Value("${reports.event-log.batch-size:500}")
+    private int batchSize;
+
+    @Value("${reports.event-log.replay-interval-ms:200}")
+    private long replayIntervalMs;
+
+    // false: the replayer flushes new records to disk on every pass, so a
+    // process crash loses nothing and an OS crash at most one interval.
+    // true: every append is flushed before it returns.
+    @Value("${reports.event-log.sync:false}")
+    private boolean sync;
+
+    @Value("${reports.event-log.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private final Object appendLock = new Object();
+    private final Object spareLock = new Object();
+    private final ConcurrentSkipListMap<Long, ReportLogSegment> segments = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong appendedEvents = new AtomicLong();
+    private final AtomicLong rejectedEvents = new AtomicLong();
+    private final AtomicLong replayedEvents = new AtomicLong();
+    private final AtomicLong replayBatches = new AtomicLong();
+    private final AtomicLong replayFailures = new AtomicLong();
+    private final AtomicLong skippedRecords = new AtomicLong();
+    private final AtomicLong appendNanosTotal = new AtomicLong();
+    private final AtomicLong appendNanosMax = new AtomicLong();
+    private final AtomicLong lastReplayNanos = new AtomicLong();
+
+    private volatile ReportLogSegment active;
+    private ReportLogSegment spare;
+    private volatile boolean running;
+    private volatile Thread replayer;
+    private TransactionTemplate transactionTemplate;
+    private Path root;
+    private String logId;
+
+    // Next record to replay. Only the replayer moves it.
+    private volatile long checkpointSegment;
+    private volatile int checkpointPosition;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // False when the log is not running, is full, or the entity name does not
+    // fit in a record; the caller then takes the event some other way.
+    public boolean append(Report report) {
+        if (!running) {
+            return false;
+        }
+        if (!ReportLogSegment.fits(report)) {
+            rejectedEvents.incrementAndGet();
+            return false;
+        }
+
+        long started = System.nanoTime();
+        ReportLogSegment segment;
+        synchronized (appendLock) {
+            if (!running) {
+                return false;
+            }
+            segment = active;
+            if (segment.isFull()) {
+                segment = roll();
+                if (segment == null) {
+                    rejectedEvents.incrementAndGet();
+                    return false;
+                }
+            }
+            segment.append(report);
+            if (sync) {
+                segment.force(segment.getWritten() - 1);
+            }
+        }
+
+        long nanos = System.nanoTime() - started;
+        appendedEvents.incrementAndGet();
+        appendNanosTotal.addAndGet(nanos);
+        appendNanosMax.accumulateAndGet(nanos, Math::max);
+
+        if (segment.getId() != checkpointSegment || segment.getWritten() - checkpointPosition >= batchSize) {
+            LockSupport.unpark(replayer);
+        }
+        return true;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        if (!enabled || root == null) {
+            return metrics;
+        }
+
+        long appended = appendedEvents.get();
+        long batches = replayBatches.get();
+
+        Map<String, Object> checkpoint = new HashMap<>();
+        checkpoint.put("segment", checkpointSegment);
+        checkpoint.put("position", checkpointPosition);
+
+        metrics.put("directory", root.toString());
+        metrics.put("logId", logId);
+        metrics.put("segments", segments.size());
+        metrics.put("maxSegments", maxSegments);
+        metrics.put("activeSegment", active.getId());
+        metrics.put("checkpoint", checkpoint);
+        metrics.put("pendingEvents", getPendingEvents());
+        metrics.put("appendedEvents", appended);
+        metrics.put("rejectedEvents", rejectedEvents.get());
+        metrics.put("replayedEvents", replayedEvents.get());
+        metrics.put("replayBatches", batches);
+        metrics.put("replayFailures", replayFailures.get());
+        metrics.put("skippedRecords", skippedRecords.get());
+        metrics.put("avgAppendMicros", appended == 0 ? 0.0 : appendNanosTotal.get() / (double) appended / 1_000.0);
+        metrics.put("maxAppendMicros", appendNanosMax.get() / 1_000.0);
+        metrics.put("lastReplayMillis", lastReplayNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    public long getPendingEvents() {
+        long segment = checkpointSegment;
+        int position = checkpointPosition;
+        long pending = 0;
+        for (ReportLogSegment tail : segments.tailMap(segment).values()) {
+            pending += tail.getWritten() - (tail.getId() == segment ? position : 0);
+        }
+        return pending;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        batchSize = Math.max(1, Math.min(batchSize, ReportRepositoryImpl.MAX_ROWS_PER_INSERT));
+        segmentRecords = Math.max(1, Math.min(segmentRecords, MAX_SEGMENT_RECORDS));
+        maxSegments = Math.max(2, maxSegments);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the report event log in " + directory, e);
+        }
+        running = true;
+
+        Thread thread = new Thread(this::runReplayer, "report-event-log-replayer");
+        thread.setDaemon(true);
+        replayer = thread;
+        thread.start();
+    }
+
+    // Whatever has not been replayed stays in the log for the next start.
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        synchronized (appendLock) {
+            running = false;
+        }
+
+        Thread thread = replayer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (ReportLogSegment segment : segments.values()) {
+            segment.forceWritten();
+        }
+        log.info("Closed report event log with {} events left to replay", getPendingEvents());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server has stopped handing us requests.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    // Reopens the segments left by the last run. Those before the stored
+    // checkpoint were replayed already; the newest one stays the active one.
+    private void open() throws IOException {
+        root = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(root);
+
+        Path idFile = root.resolve("log.id");
+        if (Files.exists(idFile)) {
+            logId = Files.readString(idFile, StandardCharsets.UTF_8).trim();
+        } else {
+            logId = UUID.randomUUID().toString();
+            Files.writeString(idFile, logId, StandardCharsets.UTF_8);
+        }
+
+        reportLogCheckpointRepository.findById(logId).ifPresent(checkpoint -> {
+            checkpointSegment = checkpoint.getSegment();
+            checkpointPosition = checkpoint.getPosition();
+        });
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(root)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+        for (Path file : files) {
+            ReportLogSegment segment = ReportLogSegment.open(file);
+            if (segment.getId() < checkpointSegment) {
+                segment.delete();
+            } else {
+                segments.put(segment.getId(), segment);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            long id = checkpointPosition > 0 ? checkpointSegment + 1 : checkpointSegment;
+            segments.put(id, ReportLogSegment.create(root, id, segmentRecords));
+        }
+        if (!segments.containsKey(checkpointSegment)) {
+            checkpointSegment = segments.firstKey();
+            checkpointPosition = 0;
+        }
+        active = segments.lastEntry().getValue();
+
+        log.info("Opened report event log {} in {}: {} segments, {} events to replay",
+                logId, root, segments.size(), getPendingEvents());
+    }
+
+    // Called under the append lock with the active segment full. The next
+    // segment is normally the spare the replayer has already created, so the
+    // append that fills a segment does not pay for creating the next one.
+    private ReportLogSegment roll() {
+        if (segments.size() >= maxSegments) {
+            return null;
+        }
+
+        synchronized (spareLock) {
+            long id = active.getId() + 1;
+            ReportLogSegment next = spare;
+            if (next == null || next.getId() != id) {
+                try {
+                    next = ReportLogSegment.create(root, id, segmentRecords);
+                } catch (IOException e) {
+                    log.error("Cannot create report event log segment {}", id, e);
+                    return null;
+                }
+            }
+
+            spare = null;
+            segments.put(id, next);
+            active = next;
+            return next;
+        }
+    }
+
+    private void prepareSpare() {
+        synchronized (spareLock) {
+            long id = active.getId() + 1;
+            if (spare != null && spare.getId() == id) {
+                return;
+            }
+            try {
+                spare = ReportLogSegment.create(root, id, segmentRecords);
+            } catch (IOException e) {
+                log.warn("Cannot create spare report event log segment {}", id, e);
+            }
+        }
+    }
+
+    // A failed batch is retried from the same checkpoint with a growing pause;
+    // nothing is dropped while the database is unavailable.
+    private void runReplayer() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(replayIntervalMs);
+        long backoffMs = 0;
+
+        while (running) {
+            int replayed;
+            try {
+                replayed = replayBatch();
+                backoffMs = 0;
+            } catch (RuntimeException e) {
+                replayFailures.incrementAndGet();
+                backoffMs = Math.min(Math.max(backoffMs * 2, replayIntervalMs), MAX_BACKOFF_MS);
+                log.warn("Report event log replay failed at segment {} position {}, retrying in {} ms",
+                        checkpointSegment, checkpointPosition, backoffMs, e);
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                continue;
+            }
+
+            if (replayed < batchSize) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+        }
+    }
+
+    // Replays up to batchSize records from the checkpoint and returns how many
+    // it covered. A segment that is no longer active takes no more appends,
+    // so once it is replayed to its end the checkpoint moves to the next one
+    // and the file is deleted.
+    private int replayBatch() {
+        for (ReportLogSegment segment : segments.values()) {
+            segment.forceWritten();
+        }
+        prepareSpare();
+
+        while (true) {
+            Map.Entry<Long, ReportLogSegment> entry = segments.ceilingEntry(checkpointSegment);
+            if (entry == null) {
+                return 0;
+            }
+
+            ReportLogSegment segment = entry.getValue();
+            int position = segment.getId() == checkpointSegment ? checkpointPosition : 0;
+            int end = Math.min(segment.getWritten(), position + batchSize);
+
+            if (position < end) {
+                long started = System.nanoTime();
+                List<Report> batch = new ArrayList<>(end - position);
+                for (int index = position; index < end; index++) {
+                    Report report = segment.read(index);
+                    if (report != null) {
+                        batch.add(report);
+                    } else {
+                        skippedRecords.incrementAndGet();
+                        log.warn("Skipping unreadable record {} of report event log segment {}", index, segment.getId());
+                    }
+                }
+
+                commit(batch, segment.getId(), end);
+                replayedEvents.addAndGet(batch.size());
+                replayBatches.incrementAndGet();
+                lastReplayNanos.set(System.nanoTime() - started);
+                return end - position;
+            }
+
+            Long next = segments.higherKey(segment.getId());
+            if (segment == active || next == null) {
+                return 0;
+            }
+
+            commit(List.of(), next, 0);
+            segments.remove(segment.getId());
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                log.warn("Cannot delete replayed report event log segment {}", segment.getPath(), e);
+            }
+        }
+    }
+
+    private void commit(List<Report> batch, long segment, int position) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!batch.isEmpty()) {
+                reportRepository.insertBatch(batch);
+                reportRollupService.record(batch);
+            }
+            reportLogCheckpointRepository.advance(logId, segment, position);
+        });
+        checkpointSegment = segment;
+        checkpointPosition = position;
+    }
+}
@@ -0,0 +1,80 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Writes report listings as NDJSON straight from a database cursor. Each
+// entity is detached once written, so memory use does not grow with the
+// number of rows.
+@Service
+public class ReportExportService {
+
+    private static final int FLUSH_EVERY = Integer.parseInt(ReportRepository.STREAM_FETCH_SIZE);
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public long writeAll(OutputStream out) throws IOException {
+        return write(reportRepository::streamAll, out);
+    }
+
+    @Transactional(readOnly = true)
+    public long writeByType(REPORT_TYPE reportType, OutputStream out) throws IOException {
+        return write(() -> reportRepository.streamByReportType(reportType), out);
+    }
+
+    @Transactional(readOnly = true)
+    public long writeByDateRange(LocalDateTime start, LocalDateTime end, OutputStream out) throws IOException {
+        return write(() -> reportRepository.streamByDateRange(start, end), out);
+    }
+
+    private long write(Supplier<Stream<Report>> query, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Report.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long written = 0;
+
+        try (Stream<Report> reports = query.get();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Report> iterator = reports.iterator();
+            while (iterator.hasNext()) {
+                Report report = iterator.next();
+                writer.writeValue(generator, report);
+                generator.writeRaw('\n');
+                entityManager.detach(report);
+
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+
+        return written;
+    }
+}
@@ -0,0 +1,178 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.HourlyReportRollup;
+import com.alancortez.project.model.ReportRollupId;
+import com.alancortez.project.repository.HourlyReportRollupRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.TOP_WINDOW;
+import com.alancortez.project.utils.TransactionCallbacks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// In-memory top lists of recipe and ingredient use over the last hour, day
+// and week. Each (type, window) is a ring of Space-Saving summaries, one per
+// slot, fed with the rollup deltas of every committed write, so reads merge
+// the live slots without touching the database. With reports.heavy-hitters.capacity
+// at or above the number of distinct entities the counts are exact; past it,
+// every count carries its own error and none is off by more than maxError,
+// which is at most total / capacity.
+@Service
+public class ReportHeavyHitterService implements SmartInitializingSingleton {
+
+    public static final Set<REPORT_TYPE> TRACKED_TYPES = Collections.unmodifiableSet(
+            EnumSet.of(REPORT_TYPE.RECIPE_USED, REPORT_TYPE.INGREDIENT_USED)
+    );
+
+    private static final Logger log = LoggerFactory.getLogger(ReportHeavyHitterService.class);
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private HourlyReportRollupRepository hourlyReportRollupRepository;
+
+    @Value("${reports.heavy-hitters.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reports.heavy-hitters.capacity:512}")
+    private int capacity;
+
+    private volatile Map<REPORT_TYPE, Map<TOP_WINDOW, SpaceSavingWindow>> windows = Map.of();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The hour window takes the batch's per-minute deltas; day and week take
+    // the hourly ones, which line up with their slots.
+    public void record(ReportRollupBatch batch) {
+        if (!enabled || batch.isEmpty()) {
+            return;
+        }
+
+        TransactionCallbacks.afterCommit(() -> {
+            Map<REPORT_TYPE, Map<TOP_WINDOW, SpaceSavingWindow>> current = windows;
+            LocalDateTime now = LocalDateTime.now();
+
+            for (Map.Entry<ReportRollupId, ReportRollupBatch.Delta> entry : batch.getRecent().entrySet()) {
+                Map<TOP_WINDOW, SpaceSavingWindow> byWindow = current.get(entry.getKey().getReportType());
+                if (byWindow != null) {
+                    offer(byWindow.get(TOP_WINDOW.HOUR), now, entry.getKey(), entry.getValue());
+                }
+            }
+
+            for (Map.Entry<ReportRollupId, ReportRollupBatch.Delta> entry : batch.getHourly().entrySet()) {
+                Map<TOP_WINDOW, SpaceSavingWindow> byWindow = current.get(entry.getKey().getReportType());
+                if (byWindow != null) {
+                    offer(byWindow.get(TOP_WINDOW.DAY), now, entry.getKey(), entry.getValue());
+                    offer(byWindow.get(TOP_WINDOW.WEEK), now, entry.getKey(), entry.getValue());
+                }
+            }
+        });
+    }
+
+    // Writes that commit while the tables are being read may be counted
+    // twice or not at all until the slot they landed in ages out.
+    public void rebuild() {
+        if (enabled) {
+            TransactionCallbacks.afterCommit(this::load);
+        }
+    }
+
+    public void clear() {
+        if (enabled) {
+            TransactionCallbacks.afterCommit(() -> windows = emptyWindows());
+        }
+    }
+
+    public Map<String, Object> getTop(REPORT_TYPE type, TOP_WINDOW window, int limit) {
+        if (!enabled) {
+            throw new IllegalStateException("Heavy-hitter tracking is disabled");
+        }
+        if (!TRACKED_TYPES.contains(type)) {
+            throw new IllegalArgumentException(type + " is not tracked in memory");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> result = windows.get(type).get(window).top(now, Math.max(limit, 0));
+        result.put("reportType", type);
+        result.put("window", window.getParam());
+        result.put("since", window.since(now));
+        result.put("capacity", capacity);
+        return result;
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        Map<REPORT_TYPE, Map<TOP_WINDOW, SpaceSavingWindow>> fresh = emptyWindows();
+        List<String> typeNames = TRACKED_TYPES.stream().map(Enum::name).toList();
+
+        for (Object[] row : reportRepository.getMinuteTotalsSince(typeNames, TOP_WINDOW.HOUR.since(now))) {
+            fresh.get(REPORT_TYPE.valueOf((String) row[0])).get(TOP_WINDOW.HOUR).offer(
+                    now,
+                    toLocalDateTime(row[3]),
+                    ((Number) row[1]).longValue(),
+                    (String) row[2],
+                    ((Number) row[4]).longValue()
+            );
+        }
+
+        for (HourlyReportRollup rollup : hourlyReportRollupRepository.findByReportTypeInAndBucketGreaterThanEqual(
+                TRACKED_TYPES, TOP_WINDOW.WEEK.since(now))) {
+            Map<TOP_WINDOW, SpaceSavingWindow> byWindow = fresh.get(rollup.getReportType());
+            for (TOP_WINDOW window : List.of(TOP_WINDOW.DAY, TOP_WINDOW.WEEK)) {
+                byWindow.get(window).offer(
+                        now,
+                        rollup.getBucket(),
+                        rollup.getEntityId(),
+                        rollup.getEntityName(),
+                        rollup.getTotalCount()
+                );
+            }
+        }
+
+        windows = fresh;
+        log.info("Rebuilt heavy-hitter windows for {} in {} ms",
+                TRACKED_TYPES, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Map<REPORT_TYPE, Map<TOP_WINDOW, SpaceSavingWindow>> emptyWindows() {
+        Map<REPORT_TYPE, Map<TOP_WINDOW, SpaceSavingWindow>> empty = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : TRACKED_TYPES) {
+            Map<TOP_WINDOW, SpaceSavingWindow> byWindow = new EnumMap<>(TOP_WINDOW.class);
+            for (TOP_WINDOW window : TOP_WINDOW.values()) {
+                byWindow.put(window, new SpaceSavingWindow(window, capacity));
+            }
+            empty.put(type, byWindow);
+        }
+        return empty;
+    }
+
+    private static void offer(SpaceSavingWindow window, LocalDateTime now, ReportRollupId key, ReportRollupBatch.Delta delta) {
+        window.offer(now, key.getBucket(), key.getEntityId(), delta.getEntityName(), delta.getTotalCount());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,279 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.repository.ReportRepositoryImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Write-behind pipeline for report events. Producers reserve a slot with a CAS
+// on the depth counter and push onto a lock-free queue; one flusher thread
+// drains it in multi-row INSERTs when a batch fills up or the flush interval
+// passes, whichever comes first.
+//
+// A queued event is acknowledged before it is durable. Events still queued
+// when the process dies are lost, and a batch that fails MAX_FLUSH_ATTEMPTS
+// times in a row is dropped; both the rejected and the dropped events are
+// counted in reports.ingest.dropped. Use reports.event-log.enabled when
+// acknowledged events must survive a crash or a database outage.
+@Service
+public class ReportIngestService implements SmartLifecycle {
+
+    public enum Outcome {
+        QUEUED,
+        WRITTEN,
+        REJECTED
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ReportIngestService.class);
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reports.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${reports.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${reports.ingest.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    // caller-runs: write synchronously on the request thread when the queue is full.
+    // reject: refuse the event and count it as dropped.
+    @Value("${reports.ingest.overflow-policy:caller-runs}")
+    private String overflowPolicy;
+
+    @Value("${reports.ingest.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private final ConcurrentLinkedQueue<Report> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final AtomicLong flushedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong callerRunsEvents = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    private Counter rejectedCounter;
+    private Counter flushFailedCounter;
+
+    private volatile boolean running;
+    private volatile Thread flusher;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void registerMetrics() {
+        rejectedCounter = droppedCounter("rejected");
+        flushFailedCounter = droppedCounter("flush-failed");
+    }
+
+    // Throws IllegalStateException when the caller-runs write fails, so the
+    // caller can tell the client the event was not stored.
+    public Outcome submit(Report report) {
+        if (running && reserveSlot()) {
+            queue.offer(report);
+            if (depth.get() >= batchSize) {
+                LockSupport.unpark(flusher);
+            }
+            return Outcome.QUEUED;
+        }
+
+        if ("reject".equalsIgnoreCase(overflowPolicy)) {
+            droppedEvents.incrementAndGet();
+            rejectedCounter.increment();
+            return Outcome.REJECTED;
+        }
+
+        try {
+            write(List.of(report));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Synchronous report write failed", e);
+        }
+        callerRunsEvents.incrementAndGet();
+        return Outcome.WRITTEN;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long flushes = flushCount.get();
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queueDepth", depth.get());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("flushedEvents", flushedEvents.get());
+        metrics.put("droppedEvents", droppedEvents.get());
+        metrics.put("callerRunsEvents", callerRunsEvents.get());
+        metrics.put("flushCount", flushes);
+        metrics.put("lastFlushMillis", lastFlushNanos.get() / 1_000_000.0);
+        metrics.put("avgFlushMillis", flushes == 0 ? 0.0 : flushNanosTotal.get() / (double) flushes / 1_000_000.0);
+        metrics.put("maxFlushMillis", flushNanosMax.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public void start() {
+        batchSize = Math.max(1, Math.min(batchSize, ReportRepositoryImpl.MAX_ROWS_PER_INSERT));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+
+        Thread thread = new Thread(this::runFlusher, "report-ingest-flusher");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    // Stops taking new events, lets the flusher drain what is queued, then
+    // writes anything left over on the calling thread.
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        while (depth.get() > 0) {
+            if (flushBatch() == 0) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server has stopped handing us requests.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = depth.get();
+            if (current >= queueCapacity) {
+                return false;
+            }
+            if (depth.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void runFlusher() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (running) {
+            if (depth.get() < batchSize) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+            flushBatch();
+        }
+
+        while (depth.get() > 0 && flushBatch() > 0) {
+            // drain on shutdown
+        }
+    }
+
+    private int flushBatch() {
+        List<Report> batch = new ArrayList<>(Math.min(batchSize, Math.max(depth.get(), 1)));
+        Report report;
+        while (batch.size() < batchSize && (report = queue.poll()) != null) {
+            batch.add(report);
+            depth.decrementAndGet();
+        }
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long started = System.nanoTime();
+        for (int attempt = 1; attempt <= MAX_FLUSH_ATTEMPTS; attempt++) {
+            try {
+                write(batch);
+                recordFlush(batch.size(), System.nanoTime() - started);
+                return batch.size();
+            } catch (RuntimeException e) {
+                log.warn("Report flush of {} events failed (attempt {}/{})", batch.size(), attempt, MAX_FLUSH_ATTEMPTS, e);
+                if (attempt < MAX_FLUSH_ATTEMPTS) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L * attempt));
+                }
+            }
+        }
+
+        droppedEvents.addAndGet(batch.size());
+        flushFailedCounter.increment(batch.size());
+        log.error("Dropped {} report events after {} failed flush attempts", batch.size(), MAX_FLUSH_ATTEMPTS);
+        return batch.size();
+    }
+
+    private Counter droppedCounter(String reason) {
+        return Counter.builder("reports.ingest.dropped")
+                .description("Report events dropped without being written")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private void write(List<Report> reports) {
+        transactionTemplate.executeWithoutResult(status -> {
+            reportRepository.insertBatch(reports);
+            reportRollupService.record(reports);
+        });
+    }
+
+    private void recordFlush(int events, long nanos) {
+        flushedEvents.addAndGet(events);
+        flushCount.incrementAndGet();
+        flushNanosTotal.addAndGet(nanos);
+        lastFlushNanos.set(nanos);
+        flushNanosMax.accumulateAndGet(nanos, Math::max);
+    }
+}
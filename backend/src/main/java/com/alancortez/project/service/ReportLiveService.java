@@ -0,0 +1,491 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.ReportRollupId;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.TOP_WINDOW;
+import com.alancortez.project.utils.TransactionCallbacks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Report activity pushed to dashboard subscribers over Server-Sent Events.
+// Committed writes add their hourly rollup deltas to a tally and return; a
+// ticker drains the tally once per reports.live.interval-ms and gives every
+// subscriber one "delta" event with
+//   summary  reports per type since the previous event
+//   chart    reports per type per bucket of the subscriber's groupBy
+//   top      the whole heavy-hitter list of a tracked type, when it changed
+// summary and chart are increments on top of what the client already has.
+// A subscriber has at most one write in flight and what arrives meanwhile
+// is merged into its next event, so a slow client gets fewer, larger events
+// and holds up nobody else. A write stuck past reports.live.stall-timeout-ms
+// drops the subscriber. An event with resync set replaces the increments:
+// history changed (rebuild, purge, or a bulk load touching more buckets than
+// a tally keeps) and the client should reload from the regular endpoints.
+@Service
+public class ReportLiveService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportLiveService.class);
+
+    private static final int MAX_TALLY_BUCKETS = 4096;
+    private static final REPORT_TYPE[] TYPES = REPORT_TYPE.values();
+
+    @Autowired
+    private ReportHeavyHitterService reportHeavyHitterService;
+
+    @Autowired
+    private ExecutorService reportLiveExecutor;
+
+    @Value("${reports.live.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reports.live.interval-ms:1000}")
+    private long intervalMs;
+
+    @Value("${reports.live.max-subscribers:200}")
+    private int maxSubscribers;
+
+    @Value("${reports.live.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${reports.live.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${reports.live.stall-timeout-ms:10000}")
+    private long stallTimeoutMs;
+
+    private final Object tallyLock = new Object();
+    private Tally tally = new Tally();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Slots taken against maxSubscribers, reserved before a subscriber is
+    // added and released when it is removed.
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+
+    private volatile boolean running;
+    private ScheduledExecutorService ticker;
+
+    public SseEmitter subscribe(CHART_GROUPING grouping, TOP_WINDOW window, int limit) {
+        if (!running) {
+            throw new IllegalStateException("Live report updates are disabled");
+        }
+        if (reserved.incrementAndGet() > maxSubscribers) {
+            reserved.decrementAndGet();
+            throw new IllegalStateException("Too many live report subscribers");
+        }
+
+        SseEmitter emitter = newEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, grouping, window, Math.max(limit, 0));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        Map<String, Object> ready = new HashMap<>();
+        ready.put("at", LocalDateTime.now());
+        ready.put("intervalMs", intervalMs);
+        ready.put("groupBy", grouping.getPgUnit());
+        ready.put("window", window.getParam());
+        ready.put("limit", subscriber.limit);
+        try {
+            emitter.send(SseEmitter.event().name("ready").data(ready, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            reserved.decrementAndGet();
+            throw new IllegalStateException("Cannot open live report stream", e);
+        }
+
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    // Called with the batch of every write; nothing is tallied while nobody
+    // is subscribed.
+    public void record(ReportRollupBatch batch) {
+        if (!running || batch.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (tallyLock) {
+                tally.add(batch);
+            }
+        });
+    }
+
+    public void resync() {
+        if (!running || subscribers.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (tallyLock) {
+                tally.markResync();
+            }
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("maxSubscribers", maxSubscribers);
+        metrics.put("intervalMs", intervalMs);
+        metrics.put("sentEvents", sentEvents.get());
+        metrics.put("droppedSubscribers", droppedSubscribers.get());
+        return metrics;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "report-live-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        ticker.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            close(subscriber);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Open streams would otherwise hold graceful shutdown of the web server
+    // until they time out, so they are closed before it stops.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    // Runs on the ticker thread only. Top lists are computed once per
+    // (type, window, limit) per tick, and chart buckets once per grouping.
+    private void tick() {
+        try {
+            Tally drained;
+            synchronized (tallyLock) {
+                drained = tally;
+                if (!drained.isEmpty()) {
+                    tally = new Tally();
+                }
+            }
+
+            long now = System.nanoTime();
+            Map<CHART_GROUPING, Map<REPORT_TYPE, Map<String, Long>>> charts = new EnumMap<>(CHART_GROUPING.class);
+            Map<TopKey, List<Map<String, Object>>> tops = new HashMap<>();
+
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.isStalled(now, TimeUnit.MILLISECONDS.toNanos(stallTimeoutMs))) {
+                    log.info("Dropping live report subscriber stuck on a write for over {} ms", stallTimeoutMs);
+                    close(subscriber);
+                    continue;
+                }
+
+                LiveDelta delta = drained.isEmpty()
+                        ? new LiveDelta()
+                        : toDelta(drained, subscriber, charts, tops);
+                if (delta.isEmpty() && subscriber.idleNanos(now) < TimeUnit.MILLISECONDS.toNanos(heartbeatMs)) {
+                    continue;
+                }
+                if (subscriber.offer(delta)) {
+                    try {
+                        reportLiveExecutor.execute(() -> write(subscriber));
+                    } catch (RejectedExecutionException e) {
+                        close(subscriber);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Live report tick failed", e);
+        }
+    }
+
+    private LiveDelta toDelta(
+            Tally drained,
+            Subscriber subscriber,
+            Map<CHART_GROUPING, Map<REPORT_TYPE, Map<String, Long>>> charts,
+            Map<TopKey, List<Map<String, Object>>> tops
+    ) {
+        LiveDelta delta = new LiveDelta();
+        if (drained.resync) {
+            delta.resync = true;
+            return delta;
+        }
+
+        for (REPORT_TYPE type : TYPES) {
+            if (drained.summary[type.ordinal()] > 0) {
+                delta.summary.put(type, drained.summary[type.ordinal()]);
+            }
+        }
+        delta.chart.putAll(charts.computeIfAbsent(subscriber.grouping, drained::chart));
+
+        if (reportHeavyHitterService.isEnabled() && subscriber.limit > 0) {
+            for (REPORT_TYPE type : drained.touched) {
+                if (!ReportHeavyHitterService.TRACKED_TYPES.contains(type)) {
+                    continue;
+                }
+                List<Map<String, Object>> entities = tops.computeIfAbsent(
+                        new TopKey(type, subscriber.window, subscriber.limit), this::top);
+                if (!entities.equals(subscriber.lastTop.get(type))) {
+                    subscriber.lastTop.put(type, entities);
+                    delta.top.put(type, entities);
+                }
+            }
+        }
+        return delta;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> top(TopKey key) {
+        return (List<Map<String, Object>>) reportHeavyHitterService
+                .getTop(key.type(), key.window(), key.limit())
+                .get("entities");
+    }
+
+    private void write(Subscriber subscriber) {
+        LiveDelta next;
+        while ((next = subscriber.take()) != null) {
+            try {
+                if (next.isEmpty()) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name("delta")
+                            .data(next.toMessage(), MediaType.APPLICATION_JSON));
+                    sentEvents.incrementAndGet();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The container reports the broken connection to the emitter itself.
+                if (remove(subscriber)) {
+                    droppedSubscribers.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    // complete() waits for a write in progress, so it runs off the ticker.
+    private void close(Subscriber subscriber) {
+        if (!remove(subscriber)) {
+            return;
+        }
+        droppedSubscribers.incrementAndGet();
+        subscriber.close();
+        try {
+            reportLiveExecutor.execute(subscriber.emitter::complete);
+        } catch (RejectedExecutionException e) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return false;
+        }
+        reserved.decrementAndGet();
+        return true;
+    }
+
+    private record TopKey(REPORT_TYPE type, TOP_WINDOW window, int limit) {
+    }
+
+    // Reports per type and per hour since the last tick. Guarded by tallyLock
+    // until the ticker swaps it out.
+    private static final class Tally {
+        final long[] summary = new long[TYPES.length];
+        final Map<REPORT_TYPE, TreeMap<LocalDateTime, Long>> hourly = new EnumMap<>(REPORT_TYPE.class);
+        final Set<REPORT_TYPE> touched = EnumSet.noneOf(REPORT_TYPE.class);
+        int buckets;
+        boolean resync;
+
+        void add(ReportRollupBatch batch) {
+            for (Map.Entry<ReportRollupId, ReportRollupBatch.Delta> entry : batch.getHourly().entrySet()) {
+                REPORT_TYPE type = entry.getKey().getReportType();
+                long reports = entry.getValue().getReportCount();
+                summary[type.ordinal()] += reports;
+                touched.add(type);
+                if (resync) {
+                    continue;
+                }
+
+                TreeMap<LocalDateTime, Long> byHour = hourly.computeIfAbsent(type, t -> new TreeMap<>());
+                if (byHour.merge(entry.getKey().getBucket(), reports, Long::sum) == reports
+                        && ++buckets > MAX_TALLY_BUCKETS) {
+                    markResync();
+                }
+            }
+        }
+
+        void markResync() {
+            resync = true;
+            hourly.clear();
+        }
+
+        boolean isEmpty() {
+            return touched.isEmpty() && !resync;
+        }
+
+        Map<REPORT_TYPE, Map<String, Long>> chart(CHART_GROUPING grouping) {
+            Map<REPORT_TYPE, Map<String, Long>> chart = new EnumMap<>(REPORT_TYPE.class);
+            for (Map.Entry<REPORT_TYPE, TreeMap<LocalDateTime, Long>> byHour : hourly.entrySet()) {
+                Map<String, Long> buckets = new TreeMap<>();
+                for (Map.Entry<LocalDateTime, Long> hour : byHour.getValue().entrySet()) {
+                    buckets.merge(grouping.label(grouping.truncate(hour.getKey())), hour.getValue(), Long::sum);
+                }
+                chart.put(byHour.getKey(), buckets);
+            }
+            return chart;
+        }
+    }
+
+    // What a subscriber has not been sent yet. Merging never modifies the
+    // delta merged in, since chart maps are shared by every subscriber with
+    // the same grouping. Empty means heartbeat.
+    private static final class LiveDelta {
+        boolean resync;
+        final Map<REPORT_TYPE, Long> summary = new EnumMap<>(REPORT_TYPE.class);
+        final Map<REPORT_TYPE, Map<String, Long>> chart = new EnumMap<>(REPORT_TYPE.class);
+        final Map<REPORT_TYPE, List<Map<String, Object>>> top = new EnumMap<>(REPORT_TYPE.class);
+
+        boolean isEmpty() {
+            return !resync && summary.isEmpty() && chart.isEmpty() && top.isEmpty();
+        }
+
+        // Once a resync is pending, increments are dropped: the reload it
+        // asks for includes them.
+        void merge(LiveDelta other) {
+            if (resync) {
+                return;
+            }
+            if (other.resync) {
+                resync = true;
+                summary.clear();
+                chart.clear();
+                top.clear();
+                return;
+            }
+
+            other.summary.forEach((type, count) -> summary.merge(type, count, Long::sum));
+            other.chart.forEach((type, buckets) -> {
+                Map<String, Long> merged = chart.computeIfAbsent(type, t -> new TreeMap<>());
+                buckets.forEach((label, count) -> merged.merge(label, count, Long::sum));
+            });
+            top.putAll(other.top);
+        }
+
+        Map<String, Object> toMessage() {
+            Map<String, Object> message = new HashMap<>();
+            message.put("at", LocalDateTime.now());
+            message.put("resync", resync);
+            message.put("summary", summary);
+            message.put("chart", chart);
+            message.put("top", top);
+            return message;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final CHART_GROUPING grouping;
+        final TOP_WINDOW window;
+        final int limit;
+
+        // Last top lists sent, per type. Ticker thread only.
+        final Map<REPORT_TYPE, List<Map<String, Object>>> lastTop = new EnumMap<>(REPORT_TYPE.class);
+
+        private LiveDelta pending;
+        private boolean writing;
+        private boolean closed;
+        private long writeStartedNanos;
+        private long lastWriteNanos = System.nanoTime();
+
+        Subscriber(SseEmitter emitter, CHART_GROUPING grouping, TOP_WINDOW window, int limit) {
+            this.emitter = emitter;
+            this.grouping = grouping;
+            this.window = window;
+            this.limit = limit;
+        }
+
+        // True when the caller should start a writer.
+        synchronized boolean offer(LiveDelta delta) {
+            if (closed) {
+                return false;
+            }
+            if (pending == null) {
+                pending = new LiveDelta();
+            }
+            pending.merge(delta);
+            if (writing) {
+                return false;
+            }
+            writing = true;
+            writeStartedNanos = System.nanoTime();
+            return true;
+        }
+
+        // The next event to write, or null when there is none and the
+        // writer should stop.
+        synchronized LiveDelta take() {
+            long now = System.nanoTime();
+            lastWriteNanos = now;
+            LiveDelta next = pending;
+            pending = null;
+            if (next == null || closed) {
+                writing = false;
+                return null;
+            }
+            writeStartedNanos = now;
+            return next;
+        }
+
+        synchronized boolean isStalled(long now, long stallNanos) {
+            return writing && now - writeStartedNanos > stallNanos;
+        }
+
+        synchronized long idleNanos(long now) {
+            return writing ? 0 : now - lastWriteNanos;
+        }
+
+        synchronized void close() {
+            closed = true;
+            pending = null;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// One memory-mapped file of the report event log: a HEADER_BYTES header
+// followed by fixed RECORD_BYTES records. A record is
+//
+//   0  int   CRC32C of bytes 4..RECORD_BYTES
+//   4  byte  WRITTEN
+//   5  byte  report type ordinal
+//   6  short entity name length in UTF-8 bytes
+//   8  long  entity id
+//   16 long  timestamp, epoch microseconds
+//   24 int   count
+//   28       entity name, zero padded to RECORD_BYTES
+//
+// The file is created at full size, so unwritten records read as zeros. The
+// mapping is written back a page at a time in no particular order, so after
+// an OS crash a torn record can sit below complete ones. On open, every
+// record is scanned; appends continue after the last readable one, and
+// unreadable records below it are left for the replayer to skip.
+final class ReportLogSegment {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportLogSegment.class);
+
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 256;
+    static final int NAME_BYTES = RECORD_BYTES - 28;
+
+    private static final int MAGIC = 0x52504C47;
+    private static final int VERSION = 1;
+    private static final byte WRITTEN = 1;
+    private static final REPORT_TYPE[] TYPES = REPORT_TYPE.values();
+
+    private final long id;
+    private final Path path;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private final byte[] appendScratch = new byte[RECORD_BYTES];
+    private final byte[] readScratch = new byte[RECORD_BYTES];
+    private final CRC32C appendCrc = new CRC32C();
+    private final CRC32C readCrc = new CRC32C();
+
+    // Records [0, written) are complete. Set after the bytes are in the
+    // buffer, so a reader that sees the count also sees the records.
+    private volatile int written;
+
+    // Records [0, forced) are on disk. Only the replayer moves it.
+    private int forced;
+
+    private ReportLogSegment(long id, Path path, int capacity, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.capacity = capacity;
+        this.buffer = buffer;
+    }
+
+    static Path pathOf(Path directory, long id) {
+        return directory.resolve(String.format("%020d.log", id));
+    }
+
+    static ReportLogSegment create(Path directory, long id, int capacity) throws IOException {
+        Path path = pathOf(directory, id);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_BYTES);
+            buffer.putInt(12, capacity);
+            buffer.putLong(16, id);
+            buffer.force(0, HEADER_BYTES);
+            return new ReportLogSegment(id, path, capacity, buffer);
+        }
+    }
+
+    static ReportLogSegment open(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            if (file.length() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a report event log segment");
+            }
+            if (buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_BYTES) {
+                throw new IOException(path + " has an unsupported record format");
+            }
+
+            int capacity = buffer.getInt(12);
+            if (HEADER_BYTES + (long) capacity * RECORD_BYTES > file.length()) {
+                throw new IOException(path + " is shorter than its header says");
+            }
+
+            ReportLogSegment segment = new ReportLogSegment(buffer.getLong(16), path, capacity, buffer);
+            int recovered = 0;
+            int readable = 0;
+            int tornAfter = 0;
+            for (int index = 0; index < capacity; index++) {
+                if (buffer.get(offsetOf(index) + 4) != WRITTEN) {
+                    continue;
+                }
+                if (segment.read(index) != null) {
+                    recovered = index + 1;
+                    readable++;
+                    tornAfter = 0;
+                } else {
+                    tornAfter++;
+                }
+            }
+
+            // Torn records past the last readable one are overwritten by the
+            // next appends.
+            int skipped = recovered - readable;
+            if (skipped > 0 || tornAfter > 0) {
+                log.warn("Recovered {} records of report event log segment {}: {} unreadable records will be skipped, {} torn records after them dropped",
+                        recovered, segment.id, skipped, tornAfter);
+            }
+            segment.written = recovered;
+            segment.forced = recovered;
+            return segment;
+        }
+    }
+
+    static boolean fits(Report report) {
+        return report.getEntityName().getBytes(StandardCharsets.UTF_8).length <= NAME_BYTES;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getWritten() {
+        return written;
+    }
+
+    boolean isFull() {
+        return written == capacity;
+    }
+
+    // Single writer: callers hold the log's append lock.
+    boolean append(Report report) {
+        int index = written;
+        if (index == capacity) {
+            return false;
+        }
+
+        byte[] name = report.getEntityName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.wrap(appendScratch);
+        record.put(4, WRITTEN);
+        record.put(5, (byte) report.getReportType().ordinal());
+        record.putShort(6, (short) name.length);
+        record.putLong(8, report.getEntityId());
+        record.putLong(16, ReportColumns.toMicros(report.getTimestamp()));
+        record.putInt(24, report.getCount() == null ? 1 : report.getCount());
+        System.arraycopy(name, 0, appendScratch, 28, name.length);
+        Arrays.fill(appendScratch, 28 + name.length, RECORD_BYTES, (byte) 0);
+
+        appendCrc.reset();
+        appendCrc.update(appendScratch, 4, RECORD_BYTES - 4);
+        record.putInt(0, (int) appendCrc.getValue());
+
+        buffer.put(offsetOf(index), appendScratch);
+        written = index + 1;
+        return true;
+    }
+
+    // Single reader: the replayer thread, or open() before the segment is
+    // shared. Null for an unwritten or torn record.
+    Report read(int index) {
+        buffer.get(offsetOf(index), readScratch);
+        ByteBuffer record = ByteBuffer.wrap(readScratch);
+        if (record.get(4) != WRITTEN) {
+            return null;
+        }
+
+        readCrc.reset();
+        readCrc.update(readScratch, 4, RECORD_BYTES - 4);
+        int type = record.get(5);
+        int nameLength = record.getShort(6);
+        if (record.getInt(0) != (int) readCrc.getValue()
+                || type < 0 || type >= TYPES.length
+                || nameLength < 0 || nameLength > NAME_BYTES) {
+            return null;
+        }
+
+        Report report = new Report(
+                TYPES[type],
+                record.getLong(8),
+                new String(readScratch, 28, nameLength, StandardCharsets.UTF_8)
+        );
+        report.setTimestamp(ReportColumns.fromMicros(record.getLong(16)));
+        report.setCount(record.getInt(24));
+        return report;
+    }
+
+    void force(int index) {
+        buffer.force(offsetOf(index), RECORD_BYTES);
+    }
+
+    // Flushes the records appended since the last call.
+    void forceWritten() {
+        int end = written;
+        if (end > forced) {
+            buffer.force(offsetOf(forced), (end - forced) * RECORD_BYTES);
+            forced = end;
+        }
+    }
+
+    // The mapping itself goes away when the buffer is collected.
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static int offsetOf(int index) {
+        return HEADER_BYTES + index * RECORD_BYTES;
+    }
+}
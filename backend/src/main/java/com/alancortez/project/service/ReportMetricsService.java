@@ -0,0 +1,43 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// reports.events counters, one per REPORT_TYPE, fed from every committed
+// write batch (single submits, the ingest queue, coalesced flushes and bulk
+// loads alike). Counters are registered up front so every type has a series
+// from the first scrape.
+@Service
+public class ReportMetricsService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<REPORT_TYPE, Counter> events = new EnumMap<>(REPORT_TYPE.class);
+
+    @PostConstruct
+    public void registerCounters() {
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            events.put(type, Counter.builder("reports.events")
+                    .description("Report events written")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(ReportRollupBatch batch) {
+        Map<REPORT_TYPE, Long> counts = batch.getEventCounts();
+        if (counts.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> counts.forEach((type, count) -> events.get(type).increment(count)));
+    }
+}
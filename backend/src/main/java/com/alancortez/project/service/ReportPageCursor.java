@@ -0,0 +1,42 @@
+package com.alancortez.project.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in the (timestamp DESC, id DESC) order of the report pages,
+// handed to clients as an opaque URL-safe token.
+public record ReportPageCursor(LocalDateTime timestamp, long id) {
+
+    // Later than any stored report; PostgreSQL cannot bind LocalDateTime.MAX.
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    public static ReportPageCursor first() {
+        return new ReportPageCursor(END_OF_TIME, Long.MAX_VALUE);
+    }
+
+    // First cursor for an inclusive range end: every row at or before end
+    // sorts after it.
+    public static ReportPageCursor firstUpTo(LocalDateTime end) {
+        return new ReportPageCursor(end, Long.MAX_VALUE);
+    }
+
+    public static ReportPageCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new ReportPageCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+
+    public String encode() {
+        String value = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
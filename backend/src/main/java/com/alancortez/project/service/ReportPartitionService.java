@@ -0,0 +1,169 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportIndexRepository;
+import com.alancortez.project.repository.ReportPartitionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+
+// Keeps the reports table range-partitioned by month. The table Hibernate
+// creates is converted once at startup, before the web server and the
+// ingest flusher start, and the indexes in ReportIndexRepository are created
+// then too. After that, partitions are kept ahead of the clock on a schedule
+// so inserts never land in the default partition. Each of these runs on
+// every instance and takes ReportPartitionRepository.lock first.
+//
+// Once converted, ddl-auto no longer manages reports: a column added to
+// Report needs its ALTER in ReportPartitionRepository.addMissingColumns, and
+// startup fails while the entity and the table disagree.
+@Service
+public class ReportPartitionService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportPartitionService.class);
+
+    @Autowired
+    private ReportPartitionRepository reportPartitionRepository;
+
+    @Autowired
+    private ReportIndexRepository reportIndexRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${reports.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reports.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    private TransactionTemplate transactionTemplate;
+
+    // Runs when this bean is created, ahead of any startup loads that read
+    // the new columns; ReportColumnStore depends on this bean for that.
+    @PostConstruct
+    public void addMissingColumns() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> reportPartitionRepository.addMissingColumns());
+        checkColumns();
+    }
+
+    // Compares the columns Report maps with the columns of the reports table
+    // and throws when they differ, naming what is missing on each side.
+    public void checkColumns() {
+        EntityPersister report = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(Report.class);
+        Set<String> mapped = new TreeSet<>();
+        report.getIdentifierMapping().forEachSelectable((index, selectable) -> mapped.add(selectable.getSelectionExpression()));
+        report.forEachSelectable((index, selectable) -> mapped.add(selectable.getSelectionExpression()));
+        Set<String> actual = new TreeSet<>(reportPartitionRepository.findColumns());
+
+        Set<String> missingFromTable = new TreeSet<>(mapped);
+        missingFromTable.removeAll(actual);
+        Set<String> unmapped = new TreeSet<>(actual);
+        unmapped.removeAll(mapped);
+        if (!missingFromTable.isEmpty() || !unmapped.isEmpty()) {
+            throw new IllegalStateException("The reports table does not match the Report entity: columns missing from " +
+                    "the table " + missingFromTable + ", columns not mapped by Report " + unmapped +
+                    ". Add the DDL to ReportPartitionRepository.addMissingColumns.");
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // Every instance runs this at startup; the lock makes the later ones
+        // wait for the first conversion and then find the table partitioned.
+        transactionTemplate.executeWithoutResult(status -> {
+            reportPartitionRepository.lock();
+            if (enabled && !reportPartitionRepository.isPartitioned()) {
+                convert();
+            }
+            reportIndexRepository.createIndexes();
+        });
+        maintain();
+    }
+
+    // Creates the partitions for the coming months and moves any rows that
+    // ended up in the default partition into their own month.
+    @Scheduled(cron = "${reports.partitioning.cron:0 5 0 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            reportPartitionRepository.lock();
+            for (YearMonth month : reportPartitionRepository.findMonths(ReportPartitionRepository.DEFAULT_PARTITION)) {
+                long moved = reportPartitionRepository.absorbFromDefault(month);
+                log.info("Moved {} reports from the default partition into {}",
+                        moved, ReportPartitionRepository.partitionName(month));
+            }
+
+            YearMonth current = YearMonth.now();
+            for (YearMonth month = current; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+                reportPartitionRepository.createPartition(month);
+            }
+        });
+    }
+
+    // Drops every monthly partition that ends at or before the cutoff and
+    // returns the dropped partitions with their estimated row counts.
+    public Map<String, Long> dropPartitionsBefore(LocalDateTime cutoff) {
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        if (!enabled) {
+            return dropped;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            reportPartitionRepository.lock();
+            for (String partition : reportPartitionRepository.findPartitionNames()) {
+                YearMonth month = ReportPartitionRepository.monthOf(partition);
+                if (month == null || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                    continue;
+                }
+
+                dropped.put(partition, reportPartitionRepository.estimateRows(partition));
+                reportPartitionRepository.dropPartition(partition);
+            }
+        });
+
+        if (!dropped.isEmpty()) {
+            log.info("Dropped report partitions before {}: {}", cutoff, dropped.keySet());
+        }
+        return dropped;
+    }
+
+    // Partitions are created for the months that hold rows, not for every
+    // month since the oldest row, so a stray old timestamp stays cheap.
+    private void convert() {
+        SortedSet<YearMonth> months = new TreeSet<>(reportPartitionRepository.findMonths("reports"));
+        YearMonth current = YearMonth.now();
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+
+        long started = System.nanoTime();
+        long copied = reportPartitionRepository.convertToPartitioned(months);
+        log.info("Converted reports to {} monthly partitions ({} rows copied in {} ms)",
+                months.size(), copied, (System.nanoTime() - started) / 1_000_000);
+    }
+}
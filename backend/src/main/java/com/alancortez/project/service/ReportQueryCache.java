@@ -0,0 +1,127 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.TransactionCallbacks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Results of the aggregate report queries, keyed by query, report types and
+// time ranges. Writes evict only entries whose types and ranges contain one
+// of the written reports.
+@Service
+public class ReportQueryCache {
+
+    public record Range(LocalDateTime start, LocalDateTime end) {
+    }
+
+    public record Key(String query, Set<REPORT_TYPE> types, List<Range> ranges, List<Object> args) {
+
+        public static Key of(String query, Set<REPORT_TYPE> types, LocalDateTime start, LocalDateTime end, Object... args) {
+            return new Key(query, types, List.of(new Range(start, end)), List.of(args));
+        }
+
+        boolean affectedBy(ReportRollupBatch batch) {
+            for (REPORT_TYPE type : batch.getReportTypes()) {
+                if (!types.contains(type)) {
+                    continue;
+                }
+                for (Range range : ranges) {
+                    if (batch.affects(type, range.start(), range.end())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    public static final Set<REPORT_TYPE> ALL_TYPES = Collections.unmodifiableSet(EnumSet.allOf(REPORT_TYPE.class));
+
+    @Value("${reports.cache.max-entries:1000}")
+    private long maxEntries;
+
+    @Value("${reports.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<Key, Object> cache;
+
+    // Bumped per type on every invalidation. A load that overlaps an
+    // invalidation of one of its types is returned but not cached, since it
+    // may have read the data from before the write.
+    private final AtomicLongArray generations = new AtomicLongArray(REPORT_TYPE.values().length);
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader) {
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        long[] before = generationsOf(key.types());
+        T value = loader.get();
+        if (value != null && Arrays.equals(before, generationsOf(key.types()))) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    // Runs after the writing transaction commits, so a reader that reloads
+    // an evicted entry sees the new rows.
+    public void invalidate(ReportRollupBatch batch) {
+        TransactionCallbacks.afterCommit(() -> {
+            for (REPORT_TYPE type : batch.getReportTypes()) {
+                generations.incrementAndGet(type.ordinal());
+            }
+            cache.asMap().keySet().removeIf(key -> key.affectedBy(batch));
+        });
+    }
+
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> {
+            for (int i = 0; i < generations.length(); i++) {
+                generations.incrementAndGet(i);
+            }
+            cache.invalidateAll();
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private long[] generationsOf(Set<REPORT_TYPE> types) {
+        long[] result = new long[types.size()];
+        int i = 0;
+        for (REPORT_TYPE type : types) {
+            result[i++] = generations.get(type.ordinal());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+package com.alancortez.project.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Splits an inclusive [start, end] report range into the pieces the rollup
+// tables can answer (whole days, whole hours) and the partial hours at either
+// edge that still have to be read from the raw reports table.
+public final class ReportRangePlan {
+
+    public enum Source {
+        RAW,
+        HOURLY,
+        DAILY
+    }
+
+    // RAW segments are inclusive on both ends, like the ReportRepository
+    // queries. Rollup segments are half-open bucket ranges [start, end).
+    public record Segment(Source source, LocalDateTime start, LocalDateTime end) {
+    }
+
+    // The same split as plan() with daily buckets, as boundaries for a single
+    // query: raw [start, hourStart) and [hourEnd, end], hourly [hourStart,
+    // dayStart) and [dayEnd, hourEnd), daily [dayStart, dayEnd).
+    public record Bounds(
+            LocalDateTime start,
+            LocalDateTime hourStart,
+            LocalDateTime dayStart,
+            LocalDateTime dayEnd,
+            LocalDateTime hourEnd,
+            LocalDateTime end
+    ) {
+    }
+
+    // PostgreSQL stores timestamps with microsecond precision, so the last
+    // instant before a boundary is one microsecond earlier.
+    private static final long TIMESTAMP_RESOLUTION_NANOS = 1_000L;
+
+    private ReportRangePlan() {
+    }
+
+    public static List<Segment> plan(LocalDateTime start, LocalDateTime end) {
+        return plan(start, end, ChronoUnit.DAYS);
+    }
+
+    // largestBucket caps the rollup granularity; pass HOURS when the caller
+    // needs results finer than a day.
+    public static List<Segment> plan(LocalDateTime start, LocalDateTime end, ChronoUnit largestBucket) {
+        if (end.isBefore(start)) {
+            return Collections.emptyList();
+        }
+
+        LocalDateTime hourStart = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS);
+
+        if (!hourStart.isBefore(hourEnd)) {
+            return List.of(new Segment(Source.RAW, start, end));
+        }
+
+        List<Segment> segments = new ArrayList<>();
+
+        if (start.isBefore(hourStart)) {
+            segments.add(new Segment(Source.RAW, start, lastInstantBefore(hourStart)));
+        }
+
+        LocalDateTime dayStart = ceil(hourStart, ChronoUnit.DAYS);
+        LocalDateTime dayEnd = hourEnd.truncatedTo(ChronoUnit.DAYS);
+
+        if (largestBucket == ChronoUnit.DAYS && dayStart.isBefore(dayEnd)) {
+            if (hourStart.isBefore(dayStart)) {
+                segments.add(new Segment(Source.HOURLY, hourStart, dayStart));
+            }
+            segments.add(new Segment(Source.DAILY, dayStart, dayEnd));
+            if (dayEnd.isBefore(hourEnd)) {
+                segments.add(new Segment(Source.HOURLY, dayEnd, hourEnd));
+            }
+        } else {
+            segments.add(new Segment(Source.HOURLY, hourStart, hourEnd));
+        }
+
+        segments.add(new Segment(Source.RAW, hourEnd, end));
+
+        return segments;
+    }
+
+    public static Bounds bounds(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime hourStart = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS);
+
+        if (!hourStart.isBefore(hourEnd)) {
+            return new Bounds(start, start, start, start, start, end);
+        }
+
+        LocalDateTime dayStart = ceil(hourStart, ChronoUnit.DAYS);
+        LocalDateTime dayEnd = hourEnd.truncatedTo(ChronoUnit.DAYS);
+
+        if (!dayStart.isBefore(dayEnd)) {
+            return new Bounds(start, hourStart, hourEnd, hourEnd, hourEnd, end);
+        }
+        return new Bounds(start, hourStart, dayStart, dayEnd, hourEnd, end);
+    }
+
+    public static LocalDateTime ceil(LocalDateTime dateTime, ChronoUnit unit) {
+        LocalDateTime truncated = dateTime.truncatedTo(unit);
+        return truncated.equals(dateTime) ? dateTime : truncated.plus(1, unit);
+    }
+
+    public static LocalDateTime lastInstantBefore(LocalDateTime boundary) {
+        return boundary.minusNanos(TIMESTAMP_RESOLUTION_NANOS);
+    }
+}
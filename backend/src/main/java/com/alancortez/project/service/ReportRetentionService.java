@@ -0,0 +1,171 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Deletes reports past their type's retention window. Months past every
+// window are dropped as whole partitions. Remaining rows go in chunks of
+// reports.retention.chunk-size, each chunk a single DELETE in its own
+// transaction, so no entities are loaded and no lock is held for long.
+// Windows come from reports.retention.days.<REPORT_TYPE>, falling back to
+// reports.retention.default-days; zero or less keeps that type forever.
+// Everything is opt-in: the schedule is off and every window is zero unless
+// configured, so a deploy never deletes reports on its own.
+@Service
+public class ReportRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportRetentionService.class);
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ReportPartitionService reportPartitionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${reports.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reports.retention.default-days:0}")
+    private int defaultDays;
+
+    @Value("${reports.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    private final ReentrantLock running = new ReentrantLock();
+    private volatile Map<String, Object> lastRun;
+
+    @Scheduled(cron = "${reports.retention.cron:0 15 3 * * *}")
+    public void runScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            purgeExpired();
+        } catch (IllegalStateException e) {
+            log.info("Skipping scheduled report retention: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<REPORT_TYPE, Integer> getRetentionDays() {
+        Map<REPORT_TYPE, Integer> policy = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            policy.put(type, environment.getProperty(
+                    "reports.retention.days." + type.name(), Integer.class, defaultDays
+            ));
+        }
+        return policy;
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    // Applies each type's retention window relative to now.
+    public Map<String, Object> purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<REPORT_TYPE, LocalDateTime> cutoffs = new EnumMap<>(REPORT_TYPE.class);
+
+        for (Map.Entry<REPORT_TYPE, Integer> policy : getRetentionDays().entrySet()) {
+            if (policy.getValue() > 0) {
+                cutoffs.put(policy.getKey(), now.minusDays(policy.getValue()));
+            }
+        }
+
+        return purge(cutoffs);
+    }
+
+    // Deletes reports of every type older than the cutoff.
+    public Map<String, Object> purgeBefore(LocalDateTime cutoff) {
+        Map<REPORT_TYPE, LocalDateTime> cutoffs = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            cutoffs.put(type, cutoff);
+        }
+        return purge(cutoffs);
+    }
+
+    private Map<String, Object> purge(Map<REPORT_TYPE, LocalDateTime> cutoffs) {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("Report retention is already running");
+        }
+
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long started = System.nanoTime();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            int limit = Math.max(1, chunkSize);
+
+            // Whole months that are past every type's window go with their
+            // partition; the chunked deletes below handle the rest.
+            Map<String, Long> droppedPartitions = cutoffs.size() == REPORT_TYPE.values().length
+                    ? reportPartitionService.dropPartitionsBefore(Collections.min(cutoffs.values()))
+                    : Map.of();
+
+            Map<String, Long> purged = new HashMap<>();
+            long total = 0;
+            long chunks = 0;
+
+            for (Map.Entry<REPORT_TYPE, LocalDateTime> entry : cutoffs.entrySet()) {
+                REPORT_TYPE type = entry.getKey();
+                LocalDateTime cutoff = entry.getValue();
+                long rows = 0;
+                int deleted;
+
+                do {
+                    deleted = transactionTemplate.execute(status ->
+                            reportRepository.deleteChunkOlderThan(type.name(), cutoff, limit));
+                    rows += deleted;
+                    chunks++;
+                } while (deleted == limit);
+
+                if (rows > 0 || !droppedPartitions.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> reportRollupService.purgeBefore(type, cutoff));
+                }
+
+                purged.put(type.name(), rows);
+                total += rows;
+            }
+
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            log.info("Report retention purged {} rows in {} chunks and dropped {} partitions ({} ms): {}",
+                    total, chunks, droppedPartitions.size(), elapsedMillis, purged);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("startedAt", startedAt);
+            result.put("purged", purged);
+            result.put("totalPurged", total);
+            result.put("chunks", chunks);
+            result.put("droppedPartitions", droppedPartitions);
+            result.put("elapsedMillis", elapsedMillis);
+            lastRun = result;
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+}
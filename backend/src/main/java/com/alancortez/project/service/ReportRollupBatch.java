@@ -0,0 +1,165 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.model.ReportRollupId;
+import com.alancortez.project.utils.REPORT_TYPE;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// Rollup deltas accumulated in memory before they are upserted, plus which
+// types and timestamps the batch touched so caches can be invalidated.
+// Memory grows with the number of distinct keys, not with rows.
+public final class ReportRollupBatch {
+
+    public static final class Delta {
+        private String entityName;
+        private long reportCount;
+        private long totalCount;
+
+        public String getEntityName() {
+            return entityName;
+        }
+
+        public long getReportCount() {
+            return reportCount;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+    }
+
+    // Rows are upserted in key order so concurrent writers touching the same
+    // buckets always lock them in the same order.
+    private static final Comparator<ReportRollupId> KEY_ORDER = Comparator
+            .comparing(ReportRollupId::getReportType)
+            .thenComparing(ReportRollupId::getEntityId)
+            .thenComparing(ReportRollupId::getBucket);
+
+    // Past this many distinct timestamps per type, affects() falls back to
+    // the [min, max] span of the batch for that type.
+    private static final int MAX_TRACKED_TIMESTAMPS = 1024;
+
+    // Per-minute deltas are only kept for reports this recent, which covers
+    // the heavy-hitter hour window, so a bulk load of old rows adds nothing.
+    private static final long RECENT_MINUTES = 65;
+
+    private final SortedMap<ReportRollupId, Delta> hourly = new TreeMap<>(KEY_ORDER);
+    private final SortedMap<ReportRollupId, Delta> daily = new TreeMap<>(KEY_ORDER);
+    private final Map<ReportRollupId, Delta> recent = new HashMap<>();
+    private final LocalDateTime recentSince = LocalDateTime.now().minusMinutes(RECENT_MINUTES);
+
+    // Raw rows for ReportColumnStore, kept for reports inside its window.
+    private final ReportColumns columns = new ReportColumns();
+    private final LocalDateTime columnsSince;
+
+    public ReportRollupBatch() {
+        this(null);
+    }
+
+    // columnsSince is where the column store's window starts; null keeps no
+    // raw rows.
+    public ReportRollupBatch(LocalDateTime columnsSince) {
+        this.columnsSince = columnsSince;
+    }
+    private final Map<REPORT_TYPE, TreeSet<LocalDateTime>> timestamps = new EnumMap<>(REPORT_TYPE.class);
+    private final Map<REPORT_TYPE, LocalDateTime[]> spans = new EnumMap<>(REPORT_TYPE.class);
+    private final Map<REPORT_TYPE, Long> events = new EnumMap<>(REPORT_TYPE.class);
+
+    public void add(Report report) {
+        add(hourly, report, ChronoUnit.HOURS);
+        add(daily, report, ChronoUnit.DAYS);
+        if (!report.getTimestamp().isBefore(recentSince)) {
+            add(recent, report, ChronoUnit.MINUTES);
+        }
+        if (columnsSince != null && !report.getTimestamp().isBefore(columnsSince)) {
+            columns.add(report);
+        }
+        track(report.getReportType(), report.getTimestamp());
+        events.merge(report.getReportType(), (long) report.eventCount(), Long::sum);
+    }
+
+    public boolean isEmpty() {
+        return hourly.isEmpty();
+    }
+
+    public Set<REPORT_TYPE> getReportTypes() {
+        return spans.keySet();
+    }
+
+    // Events per type; a coalesced row counts as the events it holds.
+    public Map<REPORT_TYPE, Long> getEventCounts() {
+        return events;
+    }
+
+    // Whether any report of this type in the batch falls inside [start, end].
+    public boolean affects(REPORT_TYPE type, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime[] span = spans.get(type);
+        if (span == null || span[1].isBefore(start) || span[0].isAfter(end)) {
+            return false;
+        }
+
+        TreeSet<LocalDateTime> exact = timestamps.get(type);
+        if (exact == null) {
+            return true;
+        }
+        LocalDateTime first = exact.ceiling(start);
+        return first != null && !first.isAfter(end);
+    }
+
+    SortedMap<ReportRollupId, Delta> getHourly() {
+        return hourly;
+    }
+
+    SortedMap<ReportRollupId, Delta> getDaily() {
+        return daily;
+    }
+
+    Map<ReportRollupId, Delta> getRecent() {
+        return recent;
+    }
+
+    ReportColumns getColumns() {
+        return columns;
+    }
+
+    private void track(REPORT_TYPE type, LocalDateTime timestamp) {
+        LocalDateTime[] span = spans.get(type);
+        if (span == null) {
+            spans.put(type, new LocalDateTime[]{timestamp, timestamp});
+            TreeSet<LocalDateTime> exact = new TreeSet<>();
+            exact.add(timestamp);
+            timestamps.put(type, exact);
+            return;
+        }
+
+        if (timestamp.isBefore(span[0])) {
+            span[0] = timestamp;
+        }
+        if (timestamp.isAfter(span[1])) {
+            span[1] = timestamp;
+        }
+
+        TreeSet<LocalDateTime> exact = timestamps.get(type);
+        if (exact != null) {
+            exact.add(timestamp);
+            if (exact.size() > MAX_TRACKED_TIMESTAMPS) {
+                timestamps.remove(type);
+            }
+        }
+    }
+
+    private static void add(Map<ReportRollupId, Delta> deltas, Report report, ChronoUnit unit) {
+        ReportRollupId key = new ReportRollupId(
+                report.getReportType(),
+                report.getEntityId(),
+                report.getTimestamp().truncatedTo(unit)
+        );
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        delta.entityName = report.getEntityName();
+        delta.reportCount += report.eventCount();
+        delta.totalCount += report.getCount() == null ? 0 : report.getCount();
+    }
+}
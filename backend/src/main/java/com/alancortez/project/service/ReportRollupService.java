@@ -0,0 +1,347 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.model.ReportRollupId;
+import com.alancortez.project.repository.DailyReportRollupRepository;
+import com.alancortez.project.repository.HourlyReportRollupRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.repository.ReportRollupRepository;
+import com.alancortez.project.repository.TopEntity;
+import com.alancortez.project.service.ReportRangePlan.Segment;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+@Service
+public class ReportRollupService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportRollupService.class);
+
+    public record TopEntities(List<TopEntity> entities, long othersTotal) {
+    }
+
+    // One type's buckets counted both ways: reports filed and their count total.
+    public record TypeSeries(ChartSeries reports, ChartSeries total) {
+    }
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private HourlyReportRollupRepository hourlyReportRollupRepository;
+
+    @Autowired
+    private DailyReportRollupRepository dailyReportRollupRepository;
+
+    @Autowired
+    private ReportQueryCache reportQueryCache;
+
+    @Autowired
+    private ReportHeavyHitterService reportHeavyHitterService;
+
+    @Autowired
+    private ReportDistinctService reportDistinctService;
+
+    @Autowired
+    private ReportColumnStore reportColumnStore;
+
+    @Autowired
+    private ReportLiveService reportLiveService;
+
+    @Autowired
+    private ReportMetricsService reportMetricsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${reports.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private static final LocalDateTime RETENTION_FLOOR = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    // A batch that also keeps the raw rows the column store's window needs.
+    public ReportRollupBatch newBatch() {
+        return new ReportRollupBatch(reportColumnStore.getCoverageStart());
+    }
+
+    // Rollups only grow from new writes, so reports that predate the rollup
+    // tables would read as zero from every rollup-backed range. They are
+    // filled once here, before the web server and the ingest flusher start.
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!backfillOnStartup) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (hourlyReportRollupRepository.hasAnyBuckets()
+                    || dailyReportRollupRepository.hasAnyBuckets()
+                    || !reportRepository.hasAnyReports()) {
+                return;
+            }
+
+            long started = System.nanoTime();
+            rebuild();
+            log.info("Backfilled report rollups from existing reports in {} ms",
+                    (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+
+    @Transactional
+    public void record(Collection<Report> reports) {
+        ReportRollupBatch batch = newBatch();
+        for (Report report : reports) {
+            batch.add(report);
+        }
+        record(batch);
+    }
+
+    @Transactional
+    public void record(ReportRollupBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        upsert(hourlyReportRollupRepository, batch.getHourly());
+        upsert(dailyReportRollupRepository, batch.getDaily());
+        reportDistinctService.invalidate(batch);
+        reportQueryCache.invalidate(batch);
+        reportHeavyHitterService.record(batch);
+        reportColumnStore.record(batch);
+        reportLiveService.record(batch);
+        reportMetricsService.record(batch);
+    }
+
+    @Transactional
+    public void rebuild() {
+        hourlyReportRollupRepository.deleteAllInBatch();
+        dailyReportRollupRepository.deleteAllInBatch();
+        hourlyReportRollupRepository.rebuildFromReports("hour");
+        dailyReportRollupRepository.rebuildFromReports("day");
+        reportDistinctService.invalidateAll();
+        reportQueryCache.invalidateAll();
+        reportHeavyHitterService.rebuild();
+        reportLiveService.resync();
+    }
+
+    // Call after raw rows up to the cutoff have been deleted. Buckets before
+    // the cutoff are dropped and the bucket holding the cutoff is recomputed
+    // from the rows that are left.
+    @Transactional
+    public void purgeBefore(LocalDateTime cutoff) {
+        purgeBefore(hourlyReportRollupRepository, ChronoUnit.HOURS, "hour", cutoff);
+        purgeBefore(dailyReportRollupRepository, ChronoUnit.DAYS, "day", cutoff);
+        reportDistinctService.invalidateBefore(cutoff);
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            reportColumnStore.purgeBefore(type, cutoff);
+        }
+        reportQueryCache.invalidateAll();
+        reportLiveService.resync();
+    }
+
+    // Per-type form of purgeBefore, for retention windows that differ by type.
+    @Transactional
+    public void purgeBefore(REPORT_TYPE type, LocalDateTime cutoff) {
+        purgeBefore(hourlyReportRollupRepository, ChronoUnit.HOURS, "hour", type, cutoff);
+        purgeBefore(dailyReportRollupRepository, ChronoUnit.DAYS, "day", type, cutoff);
+        reportDistinctService.invalidateBefore(type, cutoff);
+        reportColumnStore.purgeBefore(type, cutoff);
+        reportQueryCache.invalidateAll();
+        reportLiveService.resync();
+    }
+
+    @Transactional
+    public void deleteAll() {
+        hourlyReportRollupRepository.deleteAllInBatch();
+        dailyReportRollupRepository.deleteAllInBatch();
+        reportDistinctService.invalidateAll();
+        reportQueryCache.invalidateAll();
+        reportHeavyHitterService.clear();
+        reportColumnStore.clear();
+        reportLiveService.resync();
+    }
+
+    public Map<REPORT_TYPE, Long> getReportSummary(LocalDateTime start, LocalDateTime end) {
+        Map<REPORT_TYPE, Long> summary = new EnumMap<>(REPORT_TYPE.class);
+
+        for (Segment segment : ReportRangePlan.plan(start, end)) {
+            if (segment.source() == ReportRangePlan.Source.RAW) {
+                for (Object[] row : reportRepository.getReportSummary(segment.start(), segment.end())) {
+                    summary.merge((REPORT_TYPE) row[0], ((Number) row[1]).longValue(), Long::sum);
+                }
+            } else {
+                for (Object[] row : rollupFor(segment).getReportSummary(segment.start(), segment.end())) {
+                    summary.merge(REPORT_TYPE.valueOf((String) row[0]), ((Number) row[1]).longValue(), Long::sum);
+                }
+            }
+        }
+
+        return summary;
+    }
+
+    public long countByTypeAndDateRange(REPORT_TYPE type, LocalDateTime start, LocalDateTime end) {
+        long total = 0;
+
+        for (Segment segment : ReportRangePlan.plan(start, end)) {
+            total += countSegment(type, segment);
+        }
+
+        return total;
+    }
+
+    // The limit most-reported entities, plus the combined total of the ones
+    // that did not make the cut.
+    public TopEntities getTopEntities(REPORT_TYPE type, LocalDateTime start, LocalDateTime end, int limit) {
+        ReportRangePlan.Bounds bounds = ReportRangePlan.bounds(start, end);
+        List<TopEntity> top = reportRepository.getTopEntitiesByType(
+                type.name(),
+                bounds.start(),
+                bounds.hourStart(),
+                bounds.dayStart(),
+                bounds.dayEnd(),
+                bounds.hourEnd(),
+                bounds.end(),
+                limit
+        );
+
+        long shown = 0;
+        for (TopEntity entity : top) {
+            shown += entity.total();
+        }
+        long othersTotal = top.isEmpty() ? 0L : top.get(0).grandTotal() - shown;
+
+        return new TopEntities(top, othersTotal);
+    }
+
+    // Report counts per chart bucket, bucketed by date_trunc in PostgreSQL.
+    // A bucket split across two segments gets both rows added into its slot.
+    public ChartSeries getTimeSeries(
+            REPORT_TYPE type,
+            LocalDateTime start,
+            LocalDateTime end,
+            CHART_GROUPING grouping
+    ) {
+        ChronoUnit largestBucket = grouping == CHART_GROUPING.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        ChartSeries series = ChartSeries.of(grouping, start, end);
+
+        for (Segment segment : ReportRangePlan.plan(start, end, largestBucket)) {
+            List<Object[]> rows = segment.source() == ReportRangePlan.Source.RAW
+                    ? reportRepository.getBucketedTimeSeries(
+                            type.name(), grouping.getPgUnit(), segment.start(), segment.end())
+                    : rollupFor(segment).getTimeSeriesData(
+                            type.name(), grouping.getPgUnit(), segment.start(), segment.end());
+
+            for (Object[] row : rows) {
+                series.add(toLocalDateTime(row[0]), ((Number) row[1]).longValue());
+            }
+        }
+
+        return series;
+    }
+
+    // The same buckets for several types, read with one query per segment
+    // instead of one per type.
+    public Map<REPORT_TYPE, TypeSeries> getTimeSeries(
+            Set<REPORT_TYPE> types,
+            LocalDateTime start,
+            LocalDateTime end,
+            CHART_GROUPING grouping
+    ) {
+        Map<REPORT_TYPE, TypeSeries> result = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : types) {
+            result.put(type, new TypeSeries(ChartSeries.of(grouping, start, end), ChartSeries.of(grouping, start, end)));
+        }
+        if (types.isEmpty()) {
+            return result;
+        }
+
+        ChronoUnit largestBucket = grouping == CHART_GROUPING.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        List<String> typeNames = types.stream().map(Enum::name).toList();
+
+        for (Segment segment : ReportRangePlan.plan(start, end, largestBucket)) {
+            List<Object[]> rows = segment.source() == ReportRangePlan.Source.RAW
+                    ? reportRepository.getBucketedTimeSeries(
+                            typeNames, grouping.getPgUnit(), segment.start(), segment.end())
+                    : rollupFor(segment).getTimeSeriesData(
+                            typeNames, grouping.getPgUnit(), segment.start(), segment.end());
+
+            for (Object[] row : rows) {
+                LocalDateTime bucket = toLocalDateTime(row[0]);
+                TypeSeries series = result.get(REPORT_TYPE.valueOf((String) row[1]));
+                series.reports().add(bucket, ((Number) row[2]).longValue());
+                series.total().add(bucket, ((Number) row[3]).longValue());
+            }
+        }
+
+        return result;
+    }
+
+    private long countSegment(REPORT_TYPE type, Segment segment) {
+        Long count = segment.source() == ReportRangePlan.Source.RAW
+                ? reportRepository.countByTypeAndDateRange(type, segment.start(), segment.end())
+                : rollupFor(segment).countByTypeAndDateRange(type.name(), segment.start(), segment.end());
+        return count == null ? 0L : count;
+    }
+
+    private ReportRollupRepository<?> rollupFor(Segment segment) {
+        return segment.source() == ReportRangePlan.Source.DAILY
+                ? dailyReportRollupRepository
+                : hourlyReportRollupRepository;
+    }
+
+    private void upsert(ReportRollupRepository<?> repository, Map<ReportRollupId, ReportRollupBatch.Delta> deltas) {
+        for (Map.Entry<ReportRollupId, ReportRollupBatch.Delta> entry : deltas.entrySet()) {
+            ReportRollupId key = entry.getKey();
+            ReportRollupBatch.Delta delta = entry.getValue();
+            repository.upsert(
+                    key.getReportType().name(),
+                    key.getEntityId(),
+                    key.getBucket(),
+                    delta.getEntityName(),
+                    delta.getReportCount(),
+                    delta.getTotalCount()
+            );
+        }
+    }
+
+    private void purgeBefore(ReportRollupRepository<?> repository, ChronoUnit unit, String pgUnit, LocalDateTime cutoff) {
+        LocalDateTime partialStart = cutoff.truncatedTo(unit);
+        LocalDateTime partialEnd = partialStart.plus(1, unit);
+
+        repository.deleteByBucketRange(RETENTION_FLOOR, partialEnd);
+        repository.rebuildFromReports(pgUnit, partialStart, partialEnd);
+    }
+
+    private void purgeBefore(
+            ReportRollupRepository<?> repository,
+            ChronoUnit unit,
+            String pgUnit,
+            REPORT_TYPE type,
+            LocalDateTime cutoff
+    ) {
+        LocalDateTime partialStart = cutoff.truncatedTo(unit);
+        LocalDateTime partialEnd = partialStart.plus(1, unit);
+
+        repository.deleteByTypeAndBucketRange(type.name(), RETENTION_FLOOR, partialEnd);
+        repository.rebuildFromReports(pgUnit, type.name(), partialStart, partialEnd);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
@@ -1,31 +1,170 @@
 package com.alancortez.project.service;
 import com.alancortez.project.model.Report;
 import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.repository.TopEntity;
+import com.alancortez.project.service.ReportRollupService.TopEntities;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_ENGINE;
 import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.SERIES_METRIC;
+import com.alancortez.project.utils.TOP_WINDOW;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 @Service
+@Timed(value = "app.service", histogram = true)
 public class ReportService {
 
     @Autowired
     private ReportRepository reportRepository;
 
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ReportQueryCache reportQueryCache;
+
+    @Autowired
+    private ReportHeavyHitterService reportHeavyHitterService;
+
+    @Autowired
+    private ReportDistinctService reportDistinctService;
+
+    @Autowired
+    private ReportColumnStore reportColumnStore;
+
+    @Autowired
+    private ReportIngestService reportIngestService;
+
+    @Autowired
+    private ReportEventLog reportEventLog;
+
+    @Autowired
+    private ReportCoalescingService reportCoalescingService;
+
+    @Autowired
+    private ReportLiveService reportLiveService;
+
+    @Autowired
+    private ReportBulkIngestService reportBulkIngestService;
+
+    @Autowired
+    private ReportExportService reportExportService;
+
+    @Autowired
+    private ReportRetentionService reportRetentionService;
+
+    @Autowired
+    private ExecutorService reportQueryExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // One chart in a batch request.
+    public record SeriesSpec(
+            REPORT_TYPE reportType,
+            CHART_GROUPING grouping,
+            LocalDateTime start,
+            LocalDateTime end,
+            SERIES_METRIC metric
+    ) {
+    }
+
+    private record SeriesPass(CHART_GROUPING grouping, LocalDateTime start, LocalDateTime end) {
+    }
+
+    @Value("${reports.chart.max-buckets:10000}")
+    private long chartMaxBuckets;
+
+    @Value("${reports.series.max-specs:50}")
+    private int seriesMaxSpecs;
+
+    @Value("${reports.series.max-total-buckets:200000}")
+    private long seriesMaxTotalBuckets;
+
+    @Value("${reports.dashboard.max-connections:3}")
+    private int dashboardMaxConnections;
+
+    @Value("${reports.dashboard.query-timeout-ms:5000}")
+    private long dashboardQueryTimeoutMs;
+
     @Transactional
     public Report createReport(REPORT_TYPE reportType, Long entityId, String entityName) {
         Report report = new Report(reportType, entityId, entityName);
-        return reportRepository.save(report);
+        Report saved = reportRepository.save(report);
+        reportRollupService.record(List.of(saved));
+        return saved;
+    }
+
+    // Validated up front because a bad row would otherwise only fail later,
+    // inside somebody else's batch. Events go to the durable event log when
+    // it is on and has room, then to the coalescing accumulator in coalesce
+    // mode, otherwise to the in-memory write-behind queue.
+    public ReportIngestService.Outcome submitReport(Report report) {
+        if (report.getReportType() == null || report.getEntityId() == null || report.getEntityName() == null) {
+            throw new IllegalArgumentException("reportType, entityId and entityName are required");
+        }
+        if (reportEventLog.append(report)) {
+            return ReportIngestService.Outcome.QUEUED;
+        }
+        if (reportCoalescingService.accept(report)) {
+            return ReportIngestService.Outcome.QUEUED;
+        }
+        return reportIngestService.submit(report);
+    }
+
+    public Map<String, Object> getIngestMetrics() {
+        Map<String, Object> metrics = reportIngestService.getMetrics();
+        metrics.put("coalescing", reportCoalescingService.getMetrics());
+        return metrics;
+    }
+
+    public Map<String, Object> getEventLogMetrics() {
+        return reportEventLog.getMetrics();
+    }
+
+    public SseEmitter subscribeLive(String groupBy, String window, int limit) {
+        return reportLiveService.subscribe(CHART_GROUPING.fromParam(groupBy), TOP_WINDOW.fromParam(window), limit);
+    }
+
+    public Map<String, Object> getLiveMetrics() {
+        return reportLiveService.getMetrics();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return reportQueryCache.getStats();
+    }
+
+    public Map<String, Object> bulkCreateReports(InputStream body) throws IOException {
+        return reportBulkIngestService.load(body);
     }
 
     @Transactional
     public List<Report> createReports(List<Report> reports) {
-        return reportRepository.saveAll(reports);
+        List<Report> saved = reportRepository.saveAll(reports);
+        reportRollupService.record(saved);
+        return saved;
+    }
+
+    @Transactional
+    public void rebuildRollups() {
+        reportRollupService.rebuild();
     }
 
     public List<Report> getAllReports() {
@@ -40,6 +179,51 @@ public class ReportService {
         return reportRepository.findByDateRange(start, end);
     }
 
+    public void streamAllReports(OutputStream out) throws IOException {
+        reportExportService.writeAll(out);
+    }
+
+    public void streamReportsByType(REPORT_TYPE reportType, OutputStream out) throws IOException {
+        reportExportService.writeByType(reportType, out);
+    }
+
+    public void streamReportsByDateRange(LocalDateTime start, LocalDateTime end, OutputStream out) throws IOException {
+        reportExportService.writeByDateRange(start, end, out);
+    }
+
+    public Map<String, Object> getReportsPage(String cursor, int limit) {
+        ReportPageCursor position = cursor != null ? ReportPageCursor.decode(cursor) : ReportPageCursor.first();
+        int size = pageSize(limit);
+
+        return toPage(reportRepository.findPage(position.timestamp(), position.id(), size + 1), size);
+    }
+
+    public Map<String, Object> getReportsPageByType(REPORT_TYPE reportType, String cursor, int limit) {
+        ReportPageCursor position = cursor != null ? ReportPageCursor.decode(cursor) : ReportPageCursor.first();
+        int size = pageSize(limit);
+
+        return toPage(reportRepository.findPageByReportType(
+                reportType.name(), position.timestamp(), position.id(), size + 1
+        ), size);
+    }
+
+    public Map<String, Object> getReportsPageByDateRange(
+            LocalDateTime start,
+            LocalDateTime end,
+            String cursor,
+            int limit
+    ) {
+        ReportPageCursor position = cursor != null ? ReportPageCursor.decode(cursor) : ReportPageCursor.firstUpTo(end);
+        if (position.timestamp().isAfter(end)) {
+            position = ReportPageCursor.firstUpTo(end);
+        }
+        int size = pageSize(limit);
+
+        return toPage(reportRepository.findPageByDateRange(
+                start, position.timestamp(), position.id(), size + 1
+        ), size);
+    }
+
     public List<Report> getReportsByTypeAndDateRange(
             REPORT_TYPE reportType,
             LocalDateTime start,
@@ -49,93 +233,291 @@ public class ReportService {
     }
 
     public Map<String, Object> getReportSummary(LocalDateTime start, LocalDateTime end) {
-        List<Object[]> results = reportRepository.getReportSummary(start, end);
+        ReportQueryCache.Key key = ReportQueryCache.Key.of("summary", ReportQueryCache.ALL_TYPES, start, end);
 
-        Map<String, Object> summary = new HashMap<>();
+        return reportQueryCache.get(key, () -> loadReportSummary(start, end));
+    }
 
-        for (REPORT_TYPE type : REPORT_TYPE.values()) {
-            summary.put(type.name(), 0L);
+    // The memory engine answers ranges inside the column store's window and
+    // leaves the rest to SQL. Its results are not cached.
+    public Map<String, Object> getReportSummary(LocalDateTime start, LocalDateTime end, REPORT_ENGINE engine) {
+        if (engine == REPORT_ENGINE.MEMORY && reportColumnStore.covers(start)) {
+            return toSummary(reportColumnStore.getReportSummary(start, end));
         }
+        return getReportSummary(start, end);
+    }
 
-        for (Object[] result : results) {
-            REPORT_TYPE type = (REPORT_TYPE) result[0];
-            Long count = (Long) result[1];
-            summary.put(type.name(), count);
+    public Map<String, Object> getColumnStoreStats() {
+        return reportColumnStore.getStats();
+    }
+
+    private Map<String, Object> loadReportSummary(LocalDateTime start, LocalDateTime end) {
+        return toSummary(reportRollupService.getReportSummary(start, end));
+    }
+
+    private static Map<String, Object> toSummary(Map<REPORT_TYPE, Long> results) {
+        Map<String, Object> summary = new HashMap<>();
+
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            summary.put(type.name(), results.getOrDefault(type, 0L));
         }
 
-        return summary;
+        return Collections.unmodifiableMap(summary);
     }
 
-    public List<Map<String, Object>> getChartData(
+    public ChartSeries getChartData(
             REPORT_TYPE reportType,
             LocalDateTime start,
             LocalDateTime end,
             String groupBy
     ) {
-        List<Report> reports = getReportsByTypeAndDateRange(reportType, start, end);
+        return getChartData(reportType, start, end, groupBy, REPORT_ENGINE.SQL);
+    }
+
+    public ChartSeries getChartData(
+            REPORT_TYPE reportType,
+            LocalDateTime start,
+            LocalDateTime end,
+            String groupBy,
+            REPORT_ENGINE engine
+    ) {
+        CHART_GROUPING grouping = CHART_GROUPING.fromParam(groupBy);
+        checkBuckets(grouping, start, end);
+        return engine == REPORT_ENGINE.MEMORY && reportColumnStore.covers(start)
+                ? reportColumnStore.getTimeSeries(reportType, start, end, grouping)
+                : reportRollupService.getTimeSeries(reportType, start, end, grouping);
+    }
+
+    // Specs that share a grouping and range are answered together: one pass
+    // over the data per plan segment fills every type and both metrics.
+    // Results come back in the order the specs were given.
+    public Map<String, Object> getSeries(List<SeriesSpec> specs, REPORT_ENGINE engine) {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("At least one series is required");
+        }
+        if (specs.size() > seriesMaxSpecs) {
+            throw new IllegalArgumentException("At most " + seriesMaxSpecs + " series per request");
+        }
+
+        Map<SeriesPass, Set<REPORT_TYPE>> passes = new LinkedHashMap<>();
+        for (SeriesSpec spec : specs) {
+            if (spec.reportType() == null) {
+                throw new IllegalArgumentException("reportType is required for every series");
+            }
+            passes.computeIfAbsent(new SeriesPass(spec.grouping(), spec.start(), spec.end()),
+                    pass -> EnumSet.noneOf(REPORT_TYPE.class)).add(spec.reportType());
+        }
+
+        // Each pass fills a reports and a total series per type, so the
+        // budget counts those slots across the whole request, checked
+        // before any pass runs.
+        long totalBuckets = 0;
+        for (Map.Entry<SeriesPass, Set<REPORT_TYPE>> entry : passes.entrySet()) {
+            SeriesPass pass = entry.getKey();
+            totalBuckets += checkBuckets(pass.grouping(), pass.start(), pass.end()) * 2 * entry.getValue().size();
+        }
+        if (totalBuckets > seriesMaxTotalBuckets) {
+            throw new IllegalArgumentException(
+                    "At most " + seriesMaxTotalBuckets + " buckets per series request, got " + totalBuckets);
+        }
 
-        Map<String, Long> groupedData = reports.stream()
-                .collect(Collectors.groupingBy(
-                        report -> formatDateByGrouping(report.getTimestamp(), groupBy),
-                        Collectors.counting()
-                ));
+        Map<SeriesPass, Map<REPORT_TYPE, ReportRollupService.TypeSeries>> answered = new HashMap<>();
+        for (Map.Entry<SeriesPass, Set<REPORT_TYPE>> entry : passes.entrySet()) {
+            SeriesPass pass = entry.getKey();
+            answered.put(pass, engine == REPORT_ENGINE.MEMORY && reportColumnStore.covers(pass.start())
+                    ? reportColumnStore.getTimeSeries(entry.getValue(), pass.start(), pass.end(), pass.grouping())
+                    : reportRollupService.getTimeSeries(entry.getValue(), pass.start(), pass.end(), pass.grouping()));
+        }
 
-        List<Map<String, Object>> chartData = groupedData.entrySet().stream()
-                .map(entry -> {
-                    Map<String, Object> dataPoint = new HashMap<>();
-                    dataPoint.put("date", entry.getKey());
-                    dataPoint.put("count", entry.getValue());
-                    return dataPoint;
-                })
-                .sorted(Comparator.comparing(m -> (String) m.get("date")))
-                .collect(Collectors.toList());
+        List<Map<String, Object>> series = new ArrayList<>(specs.size());
+        for (SeriesSpec spec : specs) {
+            ReportRollupService.TypeSeries typeSeries = answered
+                    .get(new SeriesPass(spec.grouping(), spec.start(), spec.end()))
+                    .get(spec.reportType());
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("reportType", spec.reportType());
+            row.put("groupBy", spec.grouping().getPgUnit());
+            row.put("metric", spec.metric().getParam());
+            row.put("start", spec.start());
+            row.put("end", spec.end());
+            row.put("data", spec.metric() == SERIES_METRIC.TOTAL ? typeSeries.total() : typeSeries.reports());
+            series.add(row);
+        }
 
-        return fillMissingDates(chartData, start, end, groupBy);
+        Map<String, Object> result = new HashMap<>();
+        result.put("series", series);
+        result.put("passes", passes.size());
+        return result;
     }
 
     public List<Map<String, Object>> getTopEntities(
             REPORT_TYPE reportType,
             LocalDateTime start,
             LocalDateTime end,
-            int limit
+            int limit,
+            boolean includeOthers
     ) {
-        List<Object[]> results = reportRepository.getTopEntitiesByType(reportType, start, end);
+        checkTopLimit(limit);
+        ReportQueryCache.Key key = ReportQueryCache.Key.of(
+                "top", EnumSet.of(reportType), start, end, limit, includeOthers
+        );
 
-        return results.stream()
-                .limit(limit)
-                .map(result -> {
-                    Map<String, Object> entity = new HashMap<>();
-                    entity.put("name", result[0]);
-                    entity.put("id", result[1]);
-                    entity.put("count", result[2]);
-                    return entity;
-                })
-                .collect(Collectors.toList());
+        return reportQueryCache.get(key, () -> loadTopEntities(reportType, start, end, limit, includeOthers));
     }
 
-    public Map<String, Object> getDashboardData(LocalDateTime start, LocalDateTime end) {
-        Map<String, Object> dashboard = new HashMap<>();
+    public List<Map<String, Object>> getTopEntities(
+            REPORT_TYPE reportType,
+            LocalDateTime start,
+            LocalDateTime end,
+            int limit,
+            boolean includeOthers,
+            REPORT_ENGINE engine
+    ) {
+        checkTopLimit(limit);
+        if (engine == REPORT_ENGINE.MEMORY && reportColumnStore.covers(start)) {
+            return toTopEntities(
+                    reportColumnStore.getTopEntities(reportType, start, end, limit),
+                    includeOthers
+            );
+        }
+        return getTopEntities(reportType, start, end, limit, includeOthers);
+    }
 
-        dashboard.put("summary", getReportSummary(start, end));
+    // Answered from memory for the last hour, day or week; see
+    // ReportHeavyHitterService for the error bounds.
+    public Map<String, Object> getLiveTopEntities(REPORT_TYPE reportType, String window, int limit) {
+        return reportHeavyHitterService.getTop(reportType, TOP_WINDOW.fromParam(window), limit);
+    }
 
-        dashboard.put("topRecipes", getTopEntities(REPORT_TYPE.RECIPE_USED, start, end, 5));
+    // With includeOthers, a final "Others" row carries the total of every
+    // entity outside the top limit, for the chart's remainder slice.
+    private List<Map<String, Object>> loadTopEntities(
+            REPORT_TYPE reportType,
+            LocalDateTime start,
+            LocalDateTime end,
+            int limit,
+            boolean includeOthers
+    ) {
+        return toTopEntities(
+                reportRollupService.getTopEntities(reportType, start, end, limit),
+                includeOthers
+        );
+    }
 
-        dashboard.put("topIngredients", getTopEntities(REPORT_TYPE.INGREDIENT_USED, start, end, 5));
+    // The others total is read off the first ranked row, so a top list needs
+    // at least one entry.
+    private static void checkTopLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+    }
 
-        Long lowStockCount = reportRepository.countByTypeAndDateRange(
-                REPORT_TYPE.TIMES_INGREDIENT_REACHED_LOW, start, end
-        );
-        dashboard.put("lowStockCount", lowStockCount);
+    private static List<Map<String, Object>> toTopEntities(TopEntities top, boolean includeOthers) {
+        List<Map<String, Object>> results = new ArrayList<>(top.entities().size() + 1);
 
-        Long recipesCreatedCount = reportRepository.countByTypeAndDateRange(
-                REPORT_TYPE.RECIPES_CREATED, start, end
-        );
-        dashboard.put("recipesCreatedCount", recipesCreatedCount);
+        for (TopEntity result : top.entities()) {
+            Map<String, Object> entity = new HashMap<>();
+            entity.put("name", result.name());
+            entity.put("id", result.id());
+            entity.put("count", result.total());
+            results.add(Collections.unmodifiableMap(entity));
+        }
+
+        if (includeOthers && top.othersTotal() > 0) {
+            Map<String, Object> others = new HashMap<>();
+            others.put("name", "Others");
+            others.put("id", null);
+            others.put("count", top.othersTotal());
+            others.put("others", true);
+            results.add(Collections.unmodifiableMap(others));
+        }
+
+        return Collections.unmodifiableList(results);
+    }
+
+    // How many different entities were reported. The approximate count comes
+    // from per-day HyperLogLog sketches and is within standardError of the
+    // exact one about two times in three.
+    public Map<String, Object> getDistinctEntityCount(
+            REPORT_TYPE reportType,
+            LocalDateTime start,
+            LocalDateTime end,
+            boolean exact
+    ) {
+        ReportQueryCache.Key key = ReportQueryCache.Key.of("distinct", EnumSet.of(reportType), start, end, exact);
+
+        return reportQueryCache.get(key, () -> {
+            Map<String, Object> result = new HashMap<>();
+            result.put("reportType", reportType);
+            result.put("exact", exact);
+            if (exact) {
+                result.put("distinct", reportDistinctService.countExact(reportType, start, end));
+                result.put("standardError", 0.0);
+            } else {
+                result.put("distinct", reportDistinctService.countApproximate(reportType, start, end));
+                result.put("standardError", HyperLogLog.STANDARD_ERROR);
+            }
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    public Map<String, Object> getDashboardData(LocalDateTime start, LocalDateTime end) {
+        ReportQueryCache.Key key = ReportQueryCache.Key.of("dashboard", ReportQueryCache.ALL_TYPES, start, end);
 
-        Long ingredientsCreatedCount = reportRepository.countByTypeAndDateRange(
+        return reportQueryCache.get(key, () -> Collections.unmodifiableMap(
+                getDashboardData(start, end, dashboardMaxConnections)
+        ));
+    }
+
+    // Uncached. With maxConnections of 1 the queries run one after another on
+    // the calling thread, which is also the baseline the benchmark compares against.
+    public Map<String, Object> getDashboardData(LocalDateTime start, LocalDateTime end, int maxConnections) {
+        Map<String, Callable<Object>> queries = new LinkedHashMap<>();
+        queries.put("summary", () -> loadReportSummary(start, end));
+        queries.put("topRecipes", () -> loadTopEntities(REPORT_TYPE.RECIPE_USED, start, end, 5, false));
+        queries.put("topIngredients", () -> loadTopEntities(REPORT_TYPE.INGREDIENT_USED, start, end, 5, false));
+        queries.put("lowStockCount", () -> reportRollupService.countByTypeAndDateRange(
+                REPORT_TYPE.TIMES_INGREDIENT_REACHED_LOW, start, end
+        ));
+        queries.put("recipesCreatedCount", () -> reportRollupService.countByTypeAndDateRange(
+                REPORT_TYPE.RECIPES_CREATED, start, end
+        ));
+        queries.put("ingredientsCreatedCount", () -> reportRollupService.countByTypeAndDateRange(
                 REPORT_TYPE.INGREDIENTS_CREATED, start, end
-        );
-        dashboard.put("ingredientsCreatedCount", ingredientsCreatedCount);
+        ));
+
+        Map<String, Object> dashboard = new HashMap<>();
+
+        try {
+            if (maxConnections <= 1) {
+                for (Map.Entry<String, Callable<Object>> query : queries.entrySet()) {
+                    dashboard.put(query.getKey(), query.getValue().call());
+                }
+                return dashboard;
+            }
+
+            try (ParallelQueryScope scope = new ParallelQueryScope(
+                    reportQueryExecutor, transactionManager, maxConnections, dashboardQueryTimeoutMs)) {
+                Map<String, Supplier<Object>> results = new LinkedHashMap<>();
+                for (Map.Entry<String, Callable<Object>> query : queries.entrySet()) {
+                    results.put(query.getKey(), scope.fork(query.getValue()));
+                }
+
+                scope.join();
+
+                for (Map.Entry<String, Supplier<Object>> result : results.entrySet()) {
+                    dashboard.put(result.getKey(), result.getValue().get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Dashboard queries were interrupted", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Dashboard queries failed", e);
+        }
 
         return dashboard;
     }
@@ -147,10 +529,32 @@ public class ReportService {
             LocalDateTime previousStart,
             LocalDateTime previousEnd
     ) {
-        Long currentCount = reportRepository.countByTypeAndDateRange(
+        ReportQueryCache.Key key = new ReportQueryCache.Key(
+                "comparison",
+                EnumSet.of(reportType),
+                List.of(
+                        new ReportQueryCache.Range(currentStart, currentEnd),
+                        new ReportQueryCache.Range(previousStart, previousEnd)
+                ),
+                List.of()
+        );
+
+        return reportQueryCache.get(key, () -> Collections.unmodifiableMap(
+                compare(reportType, currentStart, currentEnd, previousStart, previousEnd)
+        ));
+    }
+
+    private Map<String, Object> compare(
+            REPORT_TYPE reportType,
+            LocalDateTime currentStart,
+            LocalDateTime currentEnd,
+            LocalDateTime previousStart,
+            LocalDateTime previousEnd
+    ) {
+        Long currentCount = reportRollupService.countByTypeAndDateRange(
                 reportType, currentStart, currentEnd
         );
-        Long previousCount = reportRepository.countByTypeAndDateRange(
+        Long previousCount = reportRollupService.countByTypeAndDateRange(
                 reportType, previousStart, previousEnd
         );
 
@@ -168,84 +572,50 @@ public class ReportService {
         return comparison;
     }
 
-    private String formatDateByGrouping(LocalDateTime dateTime, String groupBy) {
-        switch (groupBy.toLowerCase()) {
-            case "day":
-                return dateTime.toLocalDate().toString(); // YYYY-MM-DD
-            case "week":
-                LocalDate date = dateTime.toLocalDate();
-                int weekOfYear = date.getDayOfYear() / 7 + 1;
-                return date.getYear() + "-W" + String.format("%02d", weekOfYear);
-            case "month":
-                return dateTime.getYear() + "-" + String.format("%02d", dateTime.getMonthValue());
-            default:
-                return dateTime.toLocalDate().toString();
+    // Every chart array is sized by its bucket count, so ranges are checked
+    // against the cap before either engine allocates anything for them.
+    private long checkBuckets(CHART_GROUPING grouping, LocalDateTime start, LocalDateTime end) {
+        long buckets = ChartSeries.buckets(grouping, start, end);
+        if (buckets > chartMaxBuckets) {
+            throw new IllegalArgumentException(
+                    "At most " + chartMaxBuckets + " " + grouping.getPgUnit() + " buckets per chart, got " + buckets);
         }
+        return buckets;
     }
 
-    private List<Map<String, Object>> fillMissingDates(
-            List<Map<String, Object>> chartData,
-            LocalDateTime start,
-            LocalDateTime end,
-            String groupBy
-    ) {
-        Map<String, Long> existingData = chartData.stream()
-                .collect(Collectors.toMap(
-                        m -> (String) m.get("date"),
-                        m -> ((Number) m.get("count")).longValue()
-                ));
-
-        List<String> allDates = generateDateLabels(start, end, groupBy);
-
-        return allDates.stream()
-                .map(date -> {
-                    Map<String, Object> dataPoint = new HashMap<>();
-                    dataPoint.put("date", date);
-                    dataPoint.put("count", existingData.getOrDefault(date, 0L));
-                    return dataPoint;
-                })
-                .collect(Collectors.toList());
-    }
-
-    private List<String> generateDateLabels(LocalDateTime start, LocalDateTime end, String groupBy) {
-        List<String> labels = new ArrayList<>();
-        LocalDateTime current = start;
-
-        switch (groupBy.toLowerCase()) {
-            case "day":
-                while (!current.isAfter(end)) {
-                    labels.add(current.toLocalDate().toString());
-                    current = current.plusDays(1);
-                }
-                break;
-            case "week":
-                while (!current.isAfter(end)) {
-                    labels.add(formatDateByGrouping(current, "week"));
-                    current = current.plusWeeks(1);
-                }
-                break;
-            case "month":
-                while (!current.isAfter(end)) {
-                    labels.add(formatDateByGrouping(current, "month"));
-                    current = current.plusMonths(1);
-                }
-                break;
-            default:
-                while (!current.isAfter(end)) {
-                    labels.add(current.toLocalDate().toString());
-                    current = current.plusDays(1);
-                }
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // rows holds one extra report when there is a next page.
+    private static Map<String, Object> toPage(List<Report> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<Report> reports = hasMore ? rows.subList(0, size) : rows;
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("reports", reports);
+        if (hasMore) {
+            Report last = reports.get(size - 1);
+            page.put("nextCursor", new ReportPageCursor(last.getTimestamp(), last.getId()).encode());
+        } else {
+            page.put("nextCursor", null);
         }
+        return page;
+    }
 
-        return labels;
+    public Map<String, Object> deleteReportsOlderThan(LocalDateTime cutoffDate) {
+        return reportRetentionService.purgeBefore(cutoffDate);
     }
 
-    @Transactional
-    public void deleteReportsOlderThan(LocalDateTime cutoffDate) {
-        List<Report> oldReports = reportRepository.findByDateRange(
-                LocalDateTime.of(2000, 1, 1, 0, 0),
-                cutoffDate
-        );
-        reportRepository.deleteAll(oldReports);
+    public Map<String, Object> purgeExpiredReports() {
+        return reportRetentionService.purgeExpired();
+    }
+
+    public Map<String, Object> getRetentionStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("scheduled", reportRetentionService.isEnabled());
+        status.put("retentionDays", reportRetentionService.getRetentionDays());
+        status.put("lastRun", reportRetentionService.getLastRun());
+        return status;
     }
 }
@@ -0,0 +1,85 @@
+package com.alancortez.project.service;
+
+import java.util.*;
+
+// Space-Saving (Metwally, Agrawal, El Abbadi) over weighted counts, with a
+// fixed number of counters. When the counters are full a new entity takes
+// over the smallest one and inherits its count as error. So a held count
+// overestimates the true count by at most its error, and an entity that is
+// not held has a true count of at most minCount(). Both are bounded by
+// total / capacity.
+final class SpaceSavingSummary {
+
+    static final class Counter {
+        final long entityId;
+        String entityName;
+        long count;
+        long error;
+
+        Counter(long entityId, String entityName, long count, long error) {
+            this.entityId = entityId;
+            this.entityName = entityName;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private static final Comparator<Counter> BY_COUNT = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.entityId);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+
+    SpaceSavingSummary(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    void offer(long entityId, String entityName, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+
+        Counter counter = counters.get(entityId);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            counter.entityName = entityName;
+            byCount.add(counter);
+            return;
+        }
+
+        long inherited = 0;
+        if (counters.size() >= capacity) {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.entityId);
+            inherited = smallest.count;
+        }
+
+        counter = new Counter(entityId, entityName, inherited + weight, inherited);
+        counters.put(entityId, counter);
+        byCount.add(counter);
+    }
+
+    // Upper bound on the true count of any entity that is not held.
+    long minCount() {
+        return counters.size() < capacity ? 0L : byCount.first().count;
+    }
+
+    long total() {
+        return total;
+    }
+
+    Collection<Counter> counters() {
+        return counters.values();
+    }
+
+    void clear() {
+        counters.clear();
+        byCount.clear();
+        total = 0;
+    }
+}
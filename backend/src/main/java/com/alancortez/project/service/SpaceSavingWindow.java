@@ -0,0 +1,115 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.TOP_WINDOW;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+// A sliding top list for ReportHeavyHitterService: a ring with one
+// SpaceSavingSummary per slot of the window. A slot is cleared when the ring
+// comes back round to it, and reads merge the slots still inside the window.
+final class SpaceSavingWindow {
+
+    private final TOP_WINDOW window;
+    private final SpaceSavingSummary[] summaries;
+    private final long[] slots;
+
+    SpaceSavingWindow(TOP_WINDOW window, int capacity) {
+        this.window = window;
+        this.summaries = new SpaceSavingSummary[window.getSlots()];
+        this.slots = new long[window.getSlots()];
+        for (int i = 0; i < summaries.length; i++) {
+            summaries[i] = new SpaceSavingSummary(capacity);
+        }
+        Arrays.fill(slots, Long.MIN_VALUE);
+    }
+
+    synchronized void offer(LocalDateTime now, LocalDateTime timestamp, long entityId, String entityName, long weight) {
+        long current = window.slotOf(now);
+        long slot = window.slotOf(timestamp);
+        if (slot > current || slot <= current - summaries.length) {
+            return;
+        }
+
+        int index = Math.floorMod(slot, summaries.length);
+        if (slots[index] != slot) {
+            summaries[index].clear();
+            slots[index] = slot;
+        }
+        summaries[index].offer(entityId, entityName, weight);
+    }
+
+    // An entity missing from a slot may still have up to that slot's
+    // minCount there, so its count is the sum of what the slots hold plus
+    // the minCount of every slot that does not hold it. Its true count is
+    // at least the held counts less their errors. An entity is guaranteed
+    // to be in the true top list when that lower bound beats the count of
+    // the first entity below the cut and of any entity not held at all.
+    synchronized Map<String, Object> top(LocalDateTime now, int limit) {
+        long current = window.slotOf(now);
+        Map<Long, Merged> merged = new HashMap<>();
+        long total = 0;
+        long unheldMax = 0;
+
+        for (int i = 0; i < summaries.length; i++) {
+            if (slots[i] > current || slots[i] <= current - summaries.length) {
+                continue;
+            }
+
+            long minCount = summaries[i].minCount();
+            total += summaries[i].total();
+            unheldMax += minCount;
+
+            for (SpaceSavingSummary.Counter counter : summaries[i].counters()) {
+                Merged entity = merged.computeIfAbsent(counter.entityId, Merged::new);
+                if (slots[i] >= entity.latestSlot) {
+                    entity.latestSlot = slots[i];
+                    entity.entityName = counter.entityName;
+                }
+                entity.count += counter.count;
+                entity.error += counter.error;
+                entity.heldMinCount += minCount;
+            }
+        }
+
+        List<Merged> ranked = new ArrayList<>(merged.values());
+        for (Merged entity : ranked) {
+            long missing = unheldMax - entity.heldMinCount;
+            entity.error += missing;
+            entity.count += missing;
+        }
+        ranked.sort(Comparator.comparingLong((Merged entity) -> entity.count).reversed()
+                .thenComparingLong(entity -> entity.entityId));
+
+        long cut = Math.max(unheldMax, ranked.size() > limit ? ranked.get(limit).count : 0L);
+        List<Map<String, Object>> entities = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Merged entity : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", entity.entityName);
+            row.put("id", entity.entityId);
+            row.put("count", entity.count);
+            row.put("error", entity.error);
+            row.put("guaranteed", entity.count - entity.error >= cut);
+            entities.add(row);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("entities", entities);
+        result.put("total", total);
+        result.put("maxError", unheldMax);
+        return result;
+    }
+
+    private static final class Merged {
+        final long entityId;
+        String entityName;
+        long latestSlot = Long.MIN_VALUE;
+        long count;
+        long error;
+        long heldMinCount;
+
+        Merged(long entityId) {
+            this.entityId = entityId;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.alancortez.project.repository.AdminRepository;
 import com.alancortez.project.repository.StaffRepository;
 import com.alancortez.project.utils.PRIVILEGES;
 import com.alancortez.project.utils.PrivilegeToggleVisitor;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -15,6 +16,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(value = "app.service", histogram = true)
 public class UserService {
 
     @Autowired
@@ -32,6 +34,8 @@ public class UserService {
         throw new IllegalArgumentException("Unknown User type: " + user.getClass().getName());
     }
 
+    // Admins and staff live in separate tables, so this is one select per
+    // table however many users there are.
     public List<User> getAllUsers() {
         List<User> allUsers = new ArrayList<>();
         allUsers.addAll(adminRepository.findAll());
@@ -57,6 +61,7 @@ public class UserService {
         return adminRepository.findByAdminID(adminID).orElse(null);
     }
 
+    // Staff and admin ids overlap; the id deletes from both tables.
     public void deleteUser(Integer id) {
         adminRepository.deleteById(id);
         staffRepository.deleteById(id);
@@ -0,0 +1,89 @@
+package com.alancortez.project.utils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+
+// Chart bucket sizes. pgUnit is the date_trunc field, so the buckets
+// PostgreSQL returns line up with truncate() and label() on this side.
+public enum CHART_GROUPING {
+    HOUR("hour", ChronoUnit.HOURS),
+    DAY("day", ChronoUnit.DAYS),
+    WEEK("week", ChronoUnit.WEEKS),
+    MONTH("month", ChronoUnit.MONTHS);
+
+    private final String pgUnit;
+    private final ChronoUnit step;
+
+    CHART_GROUPING(String pgUnit, ChronoUnit step) {
+        this.pgUnit = pgUnit;
+        this.step = step;
+    }
+
+    public String getPgUnit() {
+        return pgUnit;
+    }
+
+    public ChronoUnit getStep() {
+        return step;
+    }
+
+    public static CHART_GROUPING fromParam(String groupBy) {
+        if (groupBy == null) {
+            return DAY;
+        }
+        switch (groupBy.toLowerCase()) {
+            case "hour":
+                return HOUR;
+            case "week":
+                return WEEK;
+            case "month":
+                return MONTH;
+            default:
+                return DAY;
+        }
+    }
+
+    public LocalDateTime truncate(LocalDateTime dateTime) {
+        switch (this) {
+            case HOUR:
+                return dateTime.truncatedTo(ChronoUnit.HOURS);
+            case WEEK:
+                return dateTime.truncatedTo(ChronoUnit.DAYS).with(DayOfWeek.MONDAY);
+            case MONTH:
+                return dateTime.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            default:
+                return dateTime.truncatedTo(ChronoUnit.DAYS);
+        }
+    }
+
+    public LocalDateTime next(LocalDateTime bucket) {
+        return bucket.plus(1, step);
+    }
+
+    public String label(LocalDateTime bucket) {
+        StringBuilder label = new StringBuilder(16);
+        switch (this) {
+            case HOUR:
+                label.append(bucket.toLocalDate()).append('T');
+                appendTwoDigits(label, bucket.getHour()).append(":00");
+                break;
+            case WEEK:
+                label.append(bucket.get(IsoFields.WEEK_BASED_YEAR)).append("-W");
+                appendTwoDigits(label, bucket.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                break;
+            case MONTH:
+                label.append(bucket.getYear()).append('-');
+                appendTwoDigits(label, bucket.getMonthValue());
+                break;
+            default:
+                label.append(bucket.toLocalDate()); // YYYY-MM-DD
+        }
+        return label.toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder label, int value) {
+        return label.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,28 @@
+package com.alancortez.project.utils;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfiguration {
+
+    // Fan-out executor for read queries, a virtual thread per query. The
+    // queries block on JDBC; ParallelQueryScope caps how many hold a
+    // connection at once, so the executor itself needs no bound.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportQueryExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // Writers for live dashboard streams. A write to a slow client blocks
+    // until it drains or times out, and each subscriber has at most one
+    // write in flight, so writes get a thread each instead of queueing
+    // behind one another in a fixed pool.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportLiveExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
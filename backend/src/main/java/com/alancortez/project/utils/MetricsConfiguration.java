@@ -0,0 +1,18 @@
+package com.alancortez.project.utils;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    // Times the methods of classes annotated with @Timed (the app.service
+    // timer on the services). Controller and repository timers come from
+    // Spring Boot: http.server.requests and spring.data.repository.invocations.
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.alancortez.project.utils;
+
+// How the admin query list ranks statements: by their slowest single
+// execution, their average, or the total time spent in them.
+public enum QUERY_STAT_ORDER {
+    MAX("max"),
+    AVG("avg"),
+    TOTAL("total");
+
+    private final String param;
+
+    QUERY_STAT_ORDER(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public static QUERY_STAT_ORDER fromParam(String order) {
+        if (order == null) {
+            return MAX;
+        }
+        switch (order.toLowerCase()) {
+            case "max":
+                return MAX;
+            case "avg":
+                return AVG;
+            case "total":
+                return TOTAL;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.alancortez.project.utils;
+
+import com.alancortez.project.service.QueryTimingService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class QueryStatisticsConfiguration {
+
+    // Puts QueryTimingDataSource in front of the pool. Static, and the timing
+    // service is looked up only when the pool is created, so registering the
+    // post-processor does not pull the services in early.
+    @Bean
+    public static BeanPostProcessor queryTimingDataSourcePostProcessor(ObjectProvider<QueryTimingService> queryTimingService) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof QueryTimingDataSource)) {
+                    return new QueryTimingDataSource(dataSource, queryTimingService.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.alancortez.project.utils;
+
+import com.alancortez.project.service.QueryTimingService;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Set;
+
+// Times every statement run through the pool and hands the result to
+// QueryTimingService. While timing is off, connections are handed out
+// unwrapped, so the default configuration pays nothing for it.
+public class QueryTimingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTES = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final QueryTimingService queryTimingService;
+
+    public QueryTimingDataSource(DataSource target, QueryTimingService queryTimingService) {
+        super(target);
+        this.queryTimingService = queryTimingService;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        if (!queryTimingService.isEnabled()) {
+            return connection;
+        }
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                Class<? extends Statement> type = statement instanceof CallableStatement ? CallableStatement.class
+                        : statement instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return wrap(type, statement, sql);
+            }
+            return result;
+        });
+    }
+
+    // A plain Statement carries no SQL until execute(sql) is called; a
+    // prepared one is keyed by the SQL it was prepared with.
+    private <S extends Statement> S wrap(Class<S> type, Statement statement, String preparedSql) {
+        return proxy(type, statement, (target, method, args) -> {
+            String name = method.getName();
+            if (EXECUTES.contains(name)) {
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                long start = System.nanoTime();
+                Object result = invoke(target, method, args);
+                queryTimingService.record(sql, System.nanoTime() - start, updateCount(result));
+                return result instanceof ResultSet resultSet ? wrap(resultSet, sql) : result;
+            }
+            Object result = invoke(target, method, args);
+            if (name.equals("getResultSet") && result instanceof ResultSet resultSet) {
+                return wrap(resultSet, preparedSql);
+            }
+            return result;
+        });
+    }
+
+    private ResultSet wrap(ResultSet resultSet, String sql) {
+        long[] rows = new long[1];
+        boolean[] counted = new boolean[1];
+        return proxy(ResultSet.class, resultSet, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            String name = method.getName();
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rows[0]++;
+            } else if (name.equals("close") && !counted[0]) {
+                counted[0] = true;
+                queryTimingService.addRows(sql, rows[0]);
+            }
+            return result;
+        });
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof Long count) {
+            return Math.max(count, 0);
+        }
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return handler.invoke(target, method, args);
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
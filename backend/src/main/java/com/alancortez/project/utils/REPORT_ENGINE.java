@@ -0,0 +1,22 @@
+package com.alancortez.project.utils;
+
+// Where aggregate report queries run: PostgreSQL over the raw and rollup
+// tables, or the in-memory column store for ranges inside its window.
+public enum REPORT_ENGINE {
+    SQL,
+    MEMORY;
+
+    public static REPORT_ENGINE fromParam(String engine) {
+        if (engine == null) {
+            return SQL;
+        }
+        switch (engine.toLowerCase()) {
+            case "sql":
+                return SQL;
+            case "memory":
+                return MEMORY;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.alancortez.project.utils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Default report window: the last 30 days, ending with the current hour.
+// Both ends sit on hour boundaries so repeated requests within the hour ask
+// for the same range and can be served from the query cache.
+public final class ReportRangeDefaults {
+
+    public static final int DEFAULT_DAYS = 30;
+
+    private ReportRangeDefaults() {
+    }
+
+    public static LocalDateTime start(LocalDateTime requested) {
+        return requested != null ? requested : nextHour().minusDays(DEFAULT_DAYS);
+    }
+
+    // Inclusive, like the range queries it is passed to.
+    public static LocalDateTime end(LocalDateTime requested) {
+        return requested != null ? requested : nextHour().minusNanos(1000);
+    }
+
+    private static LocalDateTime nextHour() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+    }
+}
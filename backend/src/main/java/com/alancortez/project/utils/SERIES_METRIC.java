@@ -0,0 +1,32 @@
+package com.alancortez.project.utils;
+
+// What a batched chart series counts per bucket: reports filed, as /chart
+// does, or the sum of their count field, as the top-entities totals do.
+public enum SERIES_METRIC {
+    REPORTS("reports"),
+    TOTAL("total");
+
+    private final String param;
+
+    SERIES_METRIC(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public static SERIES_METRIC fromParam(String metric) {
+        if (metric == null) {
+            return REPORTS;
+        }
+        switch (metric.toLowerCase()) {
+            case "reports":
+                return REPORTS;
+            case "total":
+                return TOTAL;
+            default:
+                throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.alancortez.project.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Sliding windows for the in-memory top lists. A window is a ring of slots
+// and covers the current slot plus the slots - 1 before it, so it always
+// reaches back between (slots - 1) and slots slot widths from now.
+public enum TOP_WINDOW {
+    HOUR("hour", 5, 12),
+    DAY("day", 60, 24),
+    WEEK("week", 360, 28);
+
+    private final String param;
+    private final int slotMinutes;
+    private final int slots;
+
+    TOP_WINDOW(String param, int slotMinutes, int slots) {
+        this.param = param;
+        this.slotMinutes = slotMinutes;
+        this.slots = slots;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public static TOP_WINDOW fromParam(String window) {
+        if (window == null) {
+            return DAY;
+        }
+        switch (window.toLowerCase()) {
+            case "hour":
+                return HOUR;
+            case "day":
+                return DAY;
+            case "week":
+                return WEEK;
+            default:
+                throw new IllegalArgumentException("Unknown window: " + window);
+        }
+    }
+
+    // Slot number counted from the epoch, so slots line up across restarts.
+    public long slotOf(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), slotMinutes * 60L);
+    }
+
+    public LocalDateTime slotStart(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * slotMinutes * 60L, 0, ZoneOffset.UTC);
+    }
+
+    // Oldest timestamp the window can still hold.
+    public LocalDateTime since(LocalDateTime now) {
+        return slotStart(slotOf(now) - slots + 1);
+    }
+}
@@ -0,0 +1,21 @@
+package com.alancortez.project;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.annotation.*;
+
+// Marks a @SpringBootTest that runs against the configured PostgreSQL
+// database in a schema of its own. DatabaseTestContextCustomizerFactory
+// creates the schema before the context starts and points the pool and
+// Hibernate at it. These tests only run with -Ddb=true, which the db
+// profile sets:
+//   mvn -Pdb test
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@EnabledIfSystemProperty(named = "db", matches = "true")
+public @interface DatabaseTest {
+
+    String schema();
+}
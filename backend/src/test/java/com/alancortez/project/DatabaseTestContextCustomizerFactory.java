@@ -0,0 +1,72 @@
+package com.alancortez.project;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+import org.springframework.test.context.TestContextAnnotationUtils;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Registered in META-INF/spring.factories. Properties a test sets in its own
+// @SpringBootTest take precedence over the defaults here.
+public class DatabaseTestContextCustomizerFactory implements ContextCustomizerFactory {
+
+    @Override
+    public ContextCustomizer createContextCustomizer(Class<?> testClass, List<ContextConfigurationAttributes> configAttributes) {
+        DatabaseTest databaseTest = TestContextAnnotationUtils.findMergedAnnotation(testClass, DatabaseTest.class);
+        return databaseTest == null ? null : new SchemaCustomizer(databaseTest.schema());
+    }
+
+    // A record, so contexts of tests sharing a schema and configuration are
+    // cached and reused like any other.
+    private record SchemaCustomizer(String schema) implements ContextCustomizer {
+
+        @Override
+        public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+            ConfigurableEnvironment environment = context.getEnvironment();
+            createSchema(environment);
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("spring.datasource.hikari.schema", schema);
+            properties.put("spring.jpa.properties.hibernate.default_schema", schema);
+            properties.put("spring.jpa.show-sql", "false");
+            // Writes land before the call returns, and no background job
+            // changes the tables under a test.
+            properties.put("reports.ingest.queue-capacity", "0");
+            properties.put("reports.retention.enabled", "false");
+            properties.put("reports.live.enabled", "false");
+
+            MapPropertySource defaults = new MapPropertySource("databaseTest", properties);
+            MutablePropertySources sources = environment.getPropertySources();
+            if (sources.contains(TestPropertySourceUtils.INLINED_PROPERTIES_PROPERTY_SOURCE_NAME)) {
+                sources.addAfter(TestPropertySourceUtils.INLINED_PROPERTIES_PROPERTY_SOURCE_NAME, defaults);
+            } else {
+                sources.addFirst(defaults);
+            }
+        }
+
+        private void createSchema(ConfigurableEnvironment environment) {
+            try (Connection connection = DriverManager.getConnection(
+                    environment.getRequiredProperty("spring.datasource.url"),
+                    environment.getProperty("spring.datasource.username"),
+                    environment.getProperty("spring.datasource.password"));
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not create test schema " + schema, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.alancortez.project.controller;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.*;
+import com.alancortez.project.repository.IngredientRepository;
+import com.alancortez.project.repository.RecipeRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.service.ReportColumnStore;
+import com.alancortez.project.service.ReportQueryCache;
+import com.alancortez.project.service.ReportRollupService;
+import com.alancortez.project.service.UserService;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.USER_ROLE;
+import com.alancortez.project.utils.UserFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+// Counts the SELECT, INSERT, UPDATE and DELETE statements each endpoint sends
+// and fails when one goes over its budget. Every endpoint is called at several
+// data sizes against the same budget, so a query per row (N+1) fails at the
+// larger sizes even when the smallest one passes. The DataSource is wrapped,
+// so native queries, JdbcTemplate and the dashboard's worker threads count
+// too. Uses its own schema in the configured database:
+//   mvn test -Dtest=EndpointQueryCountTest -Ddb=true
+@SpringBootTest
+@AutoConfigureMockMvc
+@DatabaseTest(schema = EndpointQueryCountTest.SCHEMA)
+public class EndpointQueryCountTest {
+
+    static final String SCHEMA = "endpoint_query_counts";
+
+    private static final int[] SIZES = {1, 10, 40};
+    private static final int REPORTS_PER_ENTITY = 20;
+    private static final String[] KINDS = {"SELECT", "INSERT", "UPDATE", "DELETE", "OTHER"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ReportQueryCache reportQueryCache;
+
+    @Autowired
+    private ReportColumnStore reportColumnStore;
+
+    @Autowired
+    private UserService userService;
+
+    private final List<String> violations = new ArrayList<>();
+
+    private List<Ingredient> ingredients;
+    private Ingredient unusedIngredient;
+    private List<Recipe> recipes;
+    private List<Staff> staff;
+    private List<Admin> admins;
+
+    @AfterEach
+    void reportViolations() {
+        if (!violations.isEmpty()) {
+            fail("Query budgets exceeded:\n  " + String.join("\n  ", violations));
+        }
+    }
+
+    @Test
+    void ingredientEndpoints() throws Exception {
+        for (int size : SIZES) {
+            seed(size);
+            int id = ingredients.get(0).getIngredientID();
+
+            assertBudget("GET /api/ingredients", size, new Budget(1, 0, 0, 0),
+                    get("/api/ingredients"));
+            assertBudget("GET /api/ingredients/{id}", size, new Budget(1, 0, 0, 0),
+                    get("/api/ingredients/" + id));
+            assertBudget("POST /api/ingredients", size, new Budget(0, 1, 0, 0),
+                    json(post("/api/ingredients"), ingredientJson("Created")));
+            assertBudget("PUT /api/ingredients/{id}", size, new Budget(1, 0, 1, 0),
+                    json(put("/api/ingredients/" + id), ingredientJson("Updated")));
+            assertBudget("DELETE /api/ingredients/{id}", size, new Budget(1, 0, 0, 1),
+                    delete("/api/ingredients/" + unusedIngredient.getIngredientID()));
+        }
+    }
+
+    @Test
+    void recipeEndpoints() throws Exception {
+        for (int size : SIZES) {
+            seed(size);
+            int id = recipes.get(0).getRecipeID();
+            String body = "{\"recipeName\":\"Created\",\"recipeComponents\":[{\"ingredient\":{\"ingredientID\":"
+                    + ingredients.get(0).getIngredientID() + "},\"quantity\":2}]}";
+
+            assertBudget("GET /api/recipes", size, new Budget(3, 0, 0, 0),
+                    get("/api/recipes"));
+            assertBudget("GET /api/recipes/{id}", size, new Budget(3, 0, 0, 0),
+                    get("/api/recipes/" + id));
+            assertBudget("POST /api/recipes", size, new Budget(0, 2, 0, 0),
+                    json(post("/api/recipes"), body));
+            // Replacing the components and history deletes the old rows one by
+            // one: three components and two use-history rows per seeded recipe.
+            assertBudget("PUT /api/recipes/{id}", size, new Budget(3, 1, 1, 5),
+                    json(put("/api/recipes/" + id), body.replace("Created", "Updated")));
+            assertBudget("DELETE /api/recipes/{id}", size, new Budget(3, 0, 0, 6),
+                    delete("/api/recipes/" + recipes.get(recipes.size() - 1).getRecipeID()));
+        }
+    }
+
+    @Test
+    void userEndpoints() throws Exception {
+        for (int size : SIZES) {
+            seed(size);
+            Staff first = staff.get(0);
+
+            // One select per table: admins and staff.
+            assertBudget("GET /api/user", size, new Budget(2, 0, 0, 0),
+                    get("/api/user"));
+            assertBudget("POST /api/user", size, new Budget(0, 1, 0, 0),
+                    json(post("/api/user"), "{\"userName\":\"created\",\"password\":\"pw\",\"role\":\"STAFF\"}"));
+            assertBudget("PUT /api/user/{id}", size, new Budget(1, 0, 1, 0),
+                    json(put("/api/user/" + first.getId()), "{\"password\":\"changed\"}"));
+            assertBudget("PUT /api/user/privilege/{adminID}/{staffID}", size, new Budget(2, 0, 1, 0),
+                    json(put("/api/user/privilege/" + admins.get(0).getAdminID() + "/" + first.getStaffID()),
+                            "[\"delete_recipe\"]"));
+            // Staff and admin ids overlap, so the id deletes from both tables.
+            assertBudget("DELETE /api/user/{id}", size, new Budget(2, 0, 0, 2),
+                    delete("/api/user/" + staff.get(staff.size() - 1).getId()));
+        }
+    }
+
+    @Test
+    void authEndpoints() throws Exception {
+        for (int size : SIZES) {
+            seed(size);
+            MockHttpSession session = new MockHttpSession();
+            String credentials = "{\"userName\":\"" + staff.get(0).getUsername() + "\",\"password\":\"password123\"}";
+
+            assertBudget("POST /api/auth/login", size, new Budget(1, 0, 0, 0),
+                    json(post("/api/auth/login").session(session), credentials));
+            assertBudget("GET /api/auth/session", size, new Budget(0, 0, 0, 0),
+                    get("/api/auth/session").session(session));
+            assertBudget("POST /api/auth/logout", size, new Budget(0, 0, 0, 0),
+                    post("/api/auth/logout").session(session));
+        }
+    }
+
+    @Test
+    void reportEndpoints() throws Exception {
+        for (int size : SIZES) {
+            seed(size);
+            LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            String range = "start=" + end.minusDays(7).plusMinutes(17) + "&end=" + end;
+
+            // The report plus its hourly and daily rollup upserts.
+            assertBudget("POST /api/reports", size, new Budget(0, 3, 0, 0),
+                    json(post("/api/reports"),
+                            "{\"reportType\":\"RECIPE_USED\",\"entityId\":1,\"entityName\":\"Recipe 1\"}"));
+            assertBudget("GET /api/reports/page", size, new Budget(1, 0, 0, 0),
+                    get("/api/reports/page?limit=50"));
+            assertBudget("GET /api/reports/range/page", size, new Budget(1, 0, 0, 0),
+                    get("/api/reports/range/page?limit=50&" + range));
+            assertBudget("GET /api/reports/summary", size, new Budget(5, 0, 0, 0),
+                    get("/api/reports/summary?" + range));
+            assertBudget("GET /api/reports/chart", size, new Budget(5, 0, 0, 0),
+                    get("/api/reports/chart?reportType=RECIPE_USED&groupBy=day&" + range));
+            assertBudget("POST /api/reports/series", size, new Budget(2, 0, 0, 0),
+                    json(post("/api/reports/series"), "[{\"reportType\":\"RECIPE_USED\",\"groupBy\":\"hour\"},"
+                            + "{\"reportType\":\"INGREDIENT_USED\",\"groupBy\":\"hour\"}]"));
+            assertBudget("GET /api/reports/top", size, new Budget(1, 0, 0, 0),
+                    get("/api/reports/top?reportType=RECIPE_USED&includeOthers=true&" + range));
+            assertBudget("GET /api/reports/distinct", size, new Budget(1, 0, 0, 0),
+                    get("/api/reports/distinct?reportType=RECIPE_USED&exact=true&" + range));
+            // Summary, charts and top lists, each split over raw and rollup segments.
+            assertBudget("GET /api/reports/dashboard", size, new Budget(22, 0, 0, 0),
+                    get("/api/reports/dashboard?" + range));
+        }
+    }
+
+    // Runs the request with empty counters and a cold aggregate cache, then
+    // compares what it sent against the budget.
+    private void assertBudget(String endpoint, int size, Budget budget, RequestBuilder request) throws Exception {
+        reportQueryCache.invalidateAll();
+        CountingDataSource.reset();
+
+        int status = mockMvc.perform(request).andReturn().getResponse().getStatus();
+        int[] counts = CountingDataSource.snapshot();
+        assertTrue(status < 400, endpoint + " at size " + size + " returned " + status);
+
+        Budget used = new Budget(counts[0], counts[1], counts[2], counts[3]);
+        if (!used.within(budget)) {
+            violations.add(String.format("%s at size %d: sent %s (other %d), budget %s",
+                    endpoint, size, used, counts[4], budget));
+        }
+    }
+
+    // size ingredients, recipes, staff and admins, plus one ingredient no
+    // recipe uses; recipes have three components and two use-history rows
+    // each, and every recipe and ingredient has a week of reports.
+    private void seed(int size) {
+        List<String> tables = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                        + "WHERE n.nspname = ? AND c.relkind IN ('r', 'p') AND NOT c.relispartition",
+                String.class, SCHEMA);
+        jdbcTemplate.execute("TRUNCATE " + String.join(", ", tables) + " RESTART IDENTITY CASCADE");
+        reportColumnStore.clear();
+
+        ingredients = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setProductName("Ingredient " + i);
+            ingredient.setQuantityDetails(quantity());
+            ingredient.setUnitDetails(unit());
+            ingredients.add(ingredient);
+        }
+        ingredients = ingredientRepository.saveAll(ingredients);
+
+        unusedIngredient = new Ingredient();
+        unusedIngredient.setProductName("Unused");
+        unusedIngredient.setQuantityDetails(quantity());
+        unusedIngredient.setUnitDetails(unit());
+        unusedIngredient = ingredientRepository.save(unusedIngredient);
+
+        recipes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setRecipeName("Recipe " + i);
+
+            List<RecipeComponent> components = new ArrayList<>();
+            for (int c = 0; c < 3; c++) {
+                RecipeComponent component = new RecipeComponent();
+                component.setRecipe(recipe);
+                component.setIngredient(ingredients.get((i + c) % size));
+                component.setQuantity(c + 1);
+                components.add(component);
+            }
+            recipe.setRecipeComponents(components);
+
+            List<RecipeUseHistory> history = new ArrayList<>();
+            for (int h = 0; h < 2; h++) {
+                RecipeUseHistory use = new RecipeUseHistory();
+                use.setRecipe(recipe);
+                use.setLastUsed(new java.util.Date());
+                history.add(use);
+            }
+            recipe.setUseHistory(history);
+            recipes.add(recipe);
+        }
+        recipes = recipeRepository.saveAll(recipes);
+
+        UserFactory userFactory = UserFactory.getInstance();
+        staff = new ArrayList<>();
+        admins = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            staff.add((Staff) userService.createUser(userFactory.createUser("cook" + i, "password123", USER_ROLE.STAFF)));
+            admins.add((Admin) userService.createUser(userFactory.createUser("manager" + i, "password123", USER_ROLE.ADMIN)));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            for (int r = 0; r < REPORTS_PER_ENTITY; r++) {
+                LocalDateTime timestamp = now.minusMinutes((long) r * 7 * 24 * 60 / REPORTS_PER_ENTITY);
+                Report recipeUse = new Report(REPORT_TYPE.RECIPE_USED, (long) recipes.get(i).getRecipeID(), "Recipe " + i);
+                recipeUse.setTimestamp(timestamp);
+                Report ingredientUse = new Report(REPORT_TYPE.INGREDIENT_USED,
+                        (long) ingredients.get(i).getIngredientID(), "Ingredient " + i);
+                ingredientUse.setTimestamp(timestamp);
+                reports.add(recipeUse);
+                reports.add(ingredientUse);
+            }
+        }
+        reportRollupService.record(reportRepository.saveAll(reports));
+    }
+
+    private static IngredientStorageRequirement quantity() {
+        IngredientStorageRequirement quantity = new IngredientStorageRequirement();
+        quantity.setCurrentQuantity(50.0);
+        quantity.setMaxQuantityLimit(100.0);
+        quantity.setAlertLowQuantity(10.0);
+        quantity.setTimesReachedLow(0);
+        return quantity;
+    }
+
+    private static IngredientUnit unit() {
+        IngredientUnit unit = new IngredientUnit();
+        unit.setPricePerUnit(2.5);
+        unit.setUnitOfMeasurement("kg");
+        return unit;
+    }
+
+    private static String ingredientJson(String name) {
+        return "{\"productName\":\"" + name + "\","
+                + "\"quantityDetails\":{\"currentQuantity\":5.0,\"maxQuantityLimit\":10.0,\"alertLowQuantity\":1.0,\"timesReachedLow\":0},"
+                + "\"unitDetails\":{\"pricePerUnit\":1.5,\"unitOfMeasurement\":\"kg\"}}";
+    }
+
+    private static RequestBuilder json(org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder request,
+                                       String body) {
+        return request.contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    record Budget(int selects, int inserts, int updates, int deletes) {
+
+        boolean within(Budget budget) {
+            return selects <= budget.selects && inserts <= budget.inserts
+                    && updates <= budget.updates && deletes <= budget.deletes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("select=%d insert=%d update=%d delete=%d", selects, inserts, updates, deletes);
+        }
+    }
+
+    // Wraps the application's DataSource so every statement executed through
+    // it, on any thread, is counted by its leading keyword. A batch counts
+    // once per row added to it.
+    @TestConfiguration
+    static class CountingDataSource implements BeanPostProcessor {
+
+        private static final AtomicIntegerArray COUNTS = new AtomicIntegerArray(KINDS.length);
+
+        static void reset() {
+            for (int i = 0; i < KINDS.length; i++) {
+                COUNTS.set(i, 0);
+            }
+        }
+
+        static int[] snapshot() {
+            int[] counts = new int[KINDS.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = COUNTS.get(i);
+            }
+            return counts;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return wrap(DataSource.class, dataSource, (method, args, result) ->
+                        result instanceof Connection connection && method.getName().equals("getConnection")
+                                ? wrapConnection(connection) : result);
+            }
+            return bean;
+        }
+
+        private static Connection wrapConnection(Connection connection) {
+            return wrap(Connection.class, connection, (method, args, result) -> {
+                if (result instanceof CallableStatement statement) {
+                    return wrapStatement(CallableStatement.class, statement, (String) args[0]);
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return wrapStatement(PreparedStatement.class, statement, (String) args[0]);
+                }
+                if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                    return wrapStatement(Statement.class, statement, null);
+                }
+                return result;
+            });
+        }
+
+        private static <S extends Statement> S wrapStatement(Class<S> type, S statement, String preparedSql) {
+            int[] batched = new int[1];
+            return wrap(type, statement, (method, args, result) -> {
+                String name = method.getName();
+                if (name.equals("addBatch")) {
+                    batched[0]++;
+                } else if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                    count(preparedSql, batched[0]);
+                    batched[0] = 0;
+                } else if (name.startsWith("execute")) {
+                    count(args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql, 1);
+                }
+                return result;
+            });
+        }
+
+        private static void count(String sql, int statements) {
+            String keyword = sql == null ? "" : sql.stripLeading().split("\\s", 2)[0].toUpperCase(Locale.ROOT);
+            int kind = switch (keyword) {
+                case "SELECT", "WITH" -> 0;
+                case "INSERT" -> 1;
+                case "UPDATE" -> 2;
+                case "DELETE" -> 3;
+                default -> 4;
+            };
+            COUNTS.addAndGet(kind, statements);
+        }
+
+        @FunctionalInterface
+        private interface AfterCall {
+            Object apply(Method method, Object[] args, Object result);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T wrap(Class<T> type, T target, AfterCall afterCall) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return afterCall.apply(method, args, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
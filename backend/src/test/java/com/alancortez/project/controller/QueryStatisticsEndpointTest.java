@@ -0,0 +1,89 @@
+package com.alancortez.project.controller;
+
+import com.alancortez.project.service.QueryStatisticsService;
+import com.alancortez.project.utils.QUERY_STAT_ORDER;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryStatisticsEndpointTest {
+
+    @Mock
+    private QueryStatisticsService queryStatisticsService;
+
+    @InjectMocks
+    private QueryStatisticsEndpoint queryStatisticsEndpoint;
+
+    @Test
+    void getTopQueries_ShouldDefaultToMaxOrderAndTwentyQueries() {
+        when(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.MAX, 20))
+                .thenReturn(Map.of("queries", List.of(Map.of("query", "select 1", "maxMs", 250L))));
+
+        Map<String, Object> response = queryStatisticsEndpoint.getTopQueries(null, null);
+
+        assertEquals(1, ((List<?>) response.get("queries")).size());
+        verify(queryStatisticsService, times(1)).getTopQueries(QUERY_STAT_ORDER.MAX, 20);
+    }
+
+    @Test
+    void getTopQueries_ShouldPassOrderParam() {
+        when(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.TOTAL, 5)).thenReturn(Map.of());
+
+        queryStatisticsEndpoint.getTopQueries("total", 5);
+
+        verify(queryStatisticsService, times(1)).getTopQueries(QUERY_STAT_ORDER.TOTAL, 5);
+    }
+
+    @Test
+    void getTopQueries_ShouldReturnBadRequest_WhenLimitOutOfRange() {
+        when(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.MAX, 0))
+                .thenThrow(new IllegalArgumentException("limit must be between 1 and 100"));
+
+        assertThrows(InvalidEndpointRequestException.class, () -> queryStatisticsEndpoint.getTopQueries("max", 0));
+    }
+
+    @Test
+    void getTopQueries_ShouldReturnBadRequest_WhenOrderIsUnknown() {
+        assertThrows(InvalidEndpointRequestException.class, () -> queryStatisticsEndpoint.getTopQueries("slowest", 20));
+        verifyNoInteractions(queryStatisticsService);
+    }
+
+    @Test
+    void getSection_ShouldReturnEntityLoads() {
+        when(queryStatisticsService.getEntityLoads()).thenReturn(Map.of("entities", List.of()));
+
+        assertEquals(Map.of("entities", List.of()), queryStatisticsEndpoint.getSection("entities"));
+    }
+
+    @Test
+    void getSection_ShouldReturnNothing_WhenSectionIsUnknown() {
+        assertNull(queryStatisticsEndpoint.getSection("collections"));
+        verifyNoInteractions(queryStatisticsService);
+    }
+
+    @Test
+    void setStatisticsEnabled_ShouldReturnStatus() {
+        when(queryStatisticsService.setEnabled(true)).thenReturn(Map.of("enabled", true));
+
+        Map<String, Object> response = queryStatisticsEndpoint.setStatisticsEnabled(true);
+
+        assertEquals(true, response.get("enabled"));
+    }
+
+    @Test
+    void resetStatistics_ShouldResetTheService() {
+        queryStatisticsEndpoint.resetStatistics();
+
+        verify(queryStatisticsService, times(1)).reset();
+    }
+}
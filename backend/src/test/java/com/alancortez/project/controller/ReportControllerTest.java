@@ -1,20 +1,43 @@
 package com.alancortez.project.controller;
 
 import com.alancortez.project.controller.ReportController.ReportRequest;
+import com.alancortez.project.controller.ReportController.SeriesRequest;
 import com.alancortez.project.model.Report;
+import com.alancortez.project.service.ChartSeries;
+import com.alancortez.project.service.ReportIngestService;
 import com.alancortez.project.service.ReportService;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_ENGINE;
 import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.SERIES_METRIC;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +56,7 @@ public class ReportControllerTest {
     private ReportController reportController;
 
     private Report testReport;
+    private Report coalescedReport;
     private LocalDateTime testStart;
     private LocalDateTime testEnd;
 
@@ -42,32 +66,79 @@ public class ReportControllerTest {
         testReport.setId(1L);
         testReport.setTimestamp(LocalDateTime.of(2023, 10, 26, 10, 0));
 
+        // reports.ingest.mode=coalesce: one row per (type, entity, bucket),
+        // stamped with the bucket start.
+        coalescedReport = new Report(REPORT_TYPE.RECIPE_USED, 101L, "Test Recipe");
+        coalescedReport.setId(2L);
+        coalescedReport.setTimestamp(LocalDateTime.of(2023, 10, 26, 10, 1));
+        coalescedReport.setCount(7);
+        coalescedReport.setEvents(4);
+
         testStart = LocalDateTime.of(2023, 1, 1, 0, 0);
         testEnd = LocalDateTime.of(2023, 12, 31, 23, 59);
     }
 
     @Test
-    void createReport_ShouldReturnCreatedReport_OnSuccess() throws Exception {
+    void createReport_ShouldReturnAccepted_WhenReportIsQueued() throws Exception {
         ReportRequest request = new ReportRequest();
         request.setReportType(REPORT_TYPE.INGREDIENT_USED);
         request.setEntityId(202L);
         request.setEntityName("Test Ingredient");
 
-        when(reportService.createReport(
-                eq(REPORT_TYPE.INGREDIENT_USED),
-                eq(202L),
-                eq("Test Ingredient")
-        )).thenReturn(testReport);
+        when(reportService.submitReport(any(Report.class))).thenReturn(ReportIngestService.Outcome.QUEUED);
+
+        ResponseEntity<Report> response = reportController.createReport(request);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(REPORT_TYPE.INGREDIENT_USED, response.getBody().getReportType());
+        assertEquals(202L, response.getBody().getEntityId());
+        assertEquals("Test Ingredient", response.getBody().getEntityName());
+        verify(reportService, times(1)).submitReport(any(Report.class));
+    }
+
+    @Test
+    void createReport_ShouldReturnCreated_WhenReportIsWrittenSynchronously() throws Exception {
+        ReportRequest request = new ReportRequest();
+        request.setReportType(REPORT_TYPE.RECIPE_USED);
+        request.setEntityId(101L);
+        request.setEntityName("Test Recipe");
+
+        when(reportService.submitReport(any(Report.class))).thenReturn(ReportIngestService.Outcome.WRITTEN);
 
         ResponseEntity<Report> response = reportController.createReport(request);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
-        assertEquals(testReport, response.getBody());
-        verify(reportService, times(1)).createReport(
-                eq(REPORT_TYPE.INGREDIENT_USED),
-                eq(202L),
-                eq("Test Ingredient")
-        );
+        assertEquals("Test Recipe", response.getBody().getEntityName());
+    }
+
+    @Test
+    void createReport_ShouldReturnServiceUnavailable_WhenQueueRejectsReport() throws Exception {
+        ReportRequest request = new ReportRequest();
+        request.setReportType(REPORT_TYPE.RECIPE_USED);
+        request.setEntityId(101L);
+        request.setEntityName("Test Recipe");
+
+        when(reportService.submitReport(any(Report.class))).thenReturn(ReportIngestService.Outcome.REJECTED);
+
+        ResponseEntity<Report> response = reportController.createReport(request);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void createReport_ShouldReturnServiceUnavailable_WhenSynchronousWriteFails() throws Exception {
+        ReportRequest request = new ReportRequest();
+        request.setReportType(REPORT_TYPE.RECIPE_USED);
+        request.setEntityId(101L);
+        request.setEntityName("Test Recipe");
+
+        doThrow(new IllegalStateException("Synchronous report write failed")).when(reportService).submitReport(any(Report.class));
+        ResponseEntity<Report> response = reportController.createReport(request);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
     }
 
     @Test
@@ -75,33 +146,88 @@ public class ReportControllerTest {
         ReportRequest request = new ReportRequest();
         request.setReportType(REPORT_TYPE.RECIPES_CREATED);
 
-        doThrow(new RuntimeException("Invalid entity ID")).when(reportService).createReport(
-                eq(REPORT_TYPE.RECIPES_CREATED),
-                any(),
-                any()
-        );
+        doThrow(new IllegalArgumentException("Invalid entity ID")).when(reportService).submitReport(any(Report.class));
         ResponseEntity<Report> response = reportController.createReport(request);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        verify(reportService, times(1)).createReport(
-                eq(REPORT_TYPE.RECIPES_CREATED),
-                any(),
-                any()
+        verify(reportService, times(1)).submitReport(any(Report.class));
+    }
+
+    @Test
+    void bulkCreateReports_ShouldReturnLoadSummary() throws Exception {
+        InputStream body = new ByteArrayInputStream(
+                "{\"reportType\":\"RECIPE_USED\",\"entityId\":1,\"entityName\":\"Pizza\"}\n".getBytes()
         );
+        Map<String, Object> summary = Map.of("accepted", 1L, "rejected", 0L);
+        when(reportService.bulkCreateReports(body)).thenReturn(summary);
+
+        ResponseEntity<Map<String, Object>> response = reportController.bulkCreateReports(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1L, response.getBody().get("accepted"));
+        verify(reportService, times(1)).bulkCreateReports(body);
+    }
+
+    @Test
+    void bulkCreateReports_ShouldReturnBadRequest_WhenLoadFails() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        when(reportService.bulkCreateReports(body)).thenThrow(new IOException("stream closed"));
+
+        ResponseEntity<Map<String, Object>> response = reportController.bulkCreateReports(body);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void bulkCreateReports_ShouldReturnBadRequest_WhenARowIsRejected() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        when(reportService.bulkCreateReports(body)).thenThrow(new DataIntegrityViolationException("value too long"));
+
+        ResponseEntity<Map<String, Object>> response = reportController.bulkCreateReports(body);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void bulkCreateReports_ShouldReturnServiceUnavailable_WhenDatabaseFails() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        when(reportService.bulkCreateReports(body))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenThrow(new CannotCreateTransactionException("no connection"));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            ResponseEntity<Map<String, Object>> response = reportController.bulkCreateReports(body);
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+            assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        }
     }
 
     @Test
     void getAllReports_ShouldReturnListOfReports() {
-        List<Report> reports = List.of(testReport, new Report());
+        List<Report> reports = List.of(testReport, new Report(), coalescedReport);
 
         when(reportService.getAllReports()).thenReturn(reports);
         ResponseEntity<List<Report>> response = reportController.getAllReports();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(2, response.getBody().size());
+        assertEquals(3, response.getBody().size());
         verify(reportService, times(1)).getAllReports();
     }
 
+    @Test
+    void getAllReports_ShouldSerializeEventsOnCoalescedRowsOnly() throws Exception {
+        when(reportService.getAllReports()).thenReturn(List.of(testReport, coalescedReport));
+
+        JsonNode rows = json(reportController.getAllReports().getBody());
+
+        assertFalse(rows.get(0).has("events"));
+        assertEquals(1, rows.get(0).get("count").asInt());
+        assertEquals("2023-10-26T10:01:00", rows.get(1).get("timestamp").asText());
+        assertEquals(7, rows.get(1).get("count").asInt());
+        assertEquals(4, rows.get(1).get("events").asInt());
+    }
+
     @Test
     void getAllReports_ShouldReturnEmptyList_WhenNoReportsExist() {
         when(reportService.getAllReports()).thenReturn(Collections.emptyList());
@@ -113,6 +239,70 @@ public class ReportControllerTest {
         verify(reportService, times(1)).getAllReports();
     }
 
+    @Test
+    void getReportsPage_ShouldReturnPageFromService() {
+        Map<String, Object> page = new HashMap<>();
+        page.put("reports", List.of(testReport));
+        page.put("nextCursor", "abc");
+        when(reportService.getReportsPage("prev", 1)).thenReturn(page);
+
+        ResponseEntity<Map<String, Object>> response = reportController.getReportsPage("prev", 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("abc", response.getBody().get("nextCursor"));
+        verify(reportService, times(1)).getReportsPage("prev", 1);
+    }
+
+    @Test
+    void getReportsPage_ShouldSerializeCoalescedRowsWithTheirEvents() throws Exception {
+        Map<String, Object> page = new HashMap<>();
+        page.put("reports", List.of(coalescedReport, testReport));
+        page.put("nextCursor", null);
+        when(reportService.getReportsPage(null, 2)).thenReturn(page);
+
+        JsonNode reports = json(reportController.getReportsPage(null, 2).getBody()).get("reports");
+
+        assertEquals(2, reports.size());
+        assertEquals(4, reports.get(0).get("events").asInt());
+        assertFalse(reports.get(1).has("events"));
+    }
+
+    @Test
+    void getReportsPageByType_ShouldReturnBadRequest_WhenCursorIsInvalid() {
+        when(reportService.getReportsPageByType(REPORT_TYPE.RECIPE_USED, "garbage", 50))
+                .thenThrow(new IllegalArgumentException("Invalid page cursor"));
+
+        ResponseEntity<Map<String, Object>> response =
+                reportController.getReportsPageByType(REPORT_TYPE.RECIPE_USED, "garbage", 50);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void streamAllReports_ShouldWriteNdjsonBodyFromService() throws IOException {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n".getBytes());
+            return null;
+        }).when(reportService).streamAllReports(any(OutputStream.class));
+
+        ResponseEntity<StreamingResponseBody> response = reportController.streamAllReports();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        assertEquals("{\"id\":1}\n", out.toString());
+    }
+
+    @Test
+    void streamReportsByDateRange_ShouldPassRangeToService() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = reportController.streamReportsByDateRange(testStart, testEnd);
+        response.getBody().writeTo(new ByteArrayOutputStream());
+
+        verify(reportService, times(1)).streamReportsByDateRange(eq(testStart), eq(testEnd), any(OutputStream.class));
+    }
+
     @Test
     void getReportsByType_ShouldReturnReportsMatchingType() {
         List<Report> matchingReports = List.of(testReport);
@@ -140,58 +330,162 @@ public class ReportControllerTest {
     @Test
     void getReportSummary_ShouldCallServiceWithProvidedDates() {
         Map<String, Object> mockSummary = Map.of("totalReports", 50, "uniqueTypes", 4);
-        when(reportService.getReportSummary(testStart, testEnd)).thenReturn(mockSummary);
+        when(reportService.getReportSummary(testStart, testEnd, REPORT_ENGINE.SQL)).thenReturn(mockSummary);
 
-        ResponseEntity<Map<String, Object>> response = reportController.getReportSummary(testStart, testEnd);
+        ResponseEntity<Map<String, Object>> response = reportController.getReportSummary(testStart, testEnd, "sql");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(50, response.getBody().get("totalReports"));
-        verify(reportService, times(1)).getReportSummary(testStart, testEnd);
+        verify(reportService, times(1)).getReportSummary(testStart, testEnd, REPORT_ENGINE.SQL);
     }
 
     @Test
     void getReportSummary_ShouldCallServiceWithDefaultDates_WhenNoParamsAreProvided() {
         Map<String, Object> mockSummary = Map.of("totalReports", 100);
-        when(reportService.getReportSummary(any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(mockSummary);
+        when(reportService.getReportSummary(any(LocalDateTime.class), any(LocalDateTime.class), eq(REPORT_ENGINE.SQL))).thenReturn(mockSummary);
 
-        ResponseEntity<Map<String, Object>> response = reportController.getReportSummary(null, null);
+        ResponseEntity<Map<String, Object>> response = reportController.getReportSummary(null, null, "sql");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(reportService, times(1)).getReportSummary(any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(reportService, times(1)).getReportSummary(any(LocalDateTime.class), any(LocalDateTime.class), eq(REPORT_ENGINE.SQL));
+    }
+
+    @Test
+    void getReportSummary_ShouldReturnBadRequest_WhenEngineIsUnknown() {
+        ResponseEntity<Map<String, Object>> response = reportController.getReportSummary(testStart, testEnd, "duckdb");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void getChartData_ShouldReturnBadRequest_WhenEngineIsUnknown() {
+        ResponseEntity<ChartSeries> response = reportController.getChartData(
+                REPORT_TYPE.RECIPE_USED, "day", testStart, testEnd, "memroy"
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void getChartData_ShouldReturnBadRequest_WhenRangeHasTooManyBuckets() {
+        when(reportService.getChartData(REPORT_TYPE.RECIPE_USED, testStart, testEnd, "hour", REPORT_ENGINE.SQL))
+                .thenThrow(new IllegalArgumentException("At most 10000 hour buckets per chart"));
+
+        ResponseEntity<ChartSeries> response = reportController.getChartData(
+                REPORT_TYPE.RECIPE_USED, "hour", testStart, testEnd, "sql"
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
     @Test
     void getChartData_ShouldPassAllParametersCorrectly() {
         REPORT_TYPE type = REPORT_TYPE.INGREDIENTS_CREATED;
         String groupBy = "month";
-        List<Map<String, Object>> mockData = List.of(Map.of("date", "2023-01", "count", 15));
+        ChartSeries mockData = ChartSeries.of(
+                CHART_GROUPING.MONTH, LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 31, 0, 0)
+        );
+        mockData.add(LocalDateTime.of(2023, 1, 1, 0, 0), 15);
 
-        when(reportService.getChartData(eq(type), eq(testStart), eq(testEnd), eq(groupBy)))
+        when(reportService.getChartData(eq(type), eq(testStart), eq(testEnd), eq(groupBy), eq(REPORT_ENGINE.SQL)))
                 .thenReturn(mockData);
 
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getChartData(
-                type, groupBy, testStart, testEnd
+        ResponseEntity<ChartSeries> response = reportController.getChartData(
+                type, groupBy, testStart, testEnd, "sql"
         );
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1, response.getBody().size());
-        verify(reportService, times(1)).getChartData(type, testStart, testEnd, groupBy);
+        assertEquals("2023-01", response.getBody().label(0));
+        assertEquals(15, response.getBody().count(0));
+        verify(reportService, times(1)).getChartData(type, testStart, testEnd, groupBy, REPORT_ENGINE.SQL);
+    }
+
+    @Test
+    void getChartData_ShouldSerializeEveryBucketAsDateAndCount() throws Exception {
+        ChartSeries series = ChartSeries.of(
+                CHART_GROUPING.HOUR, LocalDateTime.of(2024, 12, 31, 22, 30), LocalDateTime.of(2025, 1, 1, 0, 10)
+        );
+        series.add(LocalDateTime.of(2024, 12, 31, 23, 0), 4);
+        series.add(LocalDateTime.of(2025, 1, 1, 0, 5), 2);
+        series.add(LocalDateTime.of(2025, 1, 1, 1, 0), 9);
+
+        assertEquals(
+                "[{\"date\":\"2024-12-31T22:00\",\"count\":0},"
+                        + "{\"date\":\"2024-12-31T23:00\",\"count\":4},"
+                        + "{\"date\":\"2025-01-01T00:00\",\"count\":2}]",
+                new ObjectMapper().writeValueAsString(series)
+        );
     }
 
     @Test
     void getChartData_ShouldUseDefaultGroupByAndDateRange() {
         REPORT_TYPE type = REPORT_TYPE.RECIPES_CREATED;
-        List<Map<String, Object>> mockData = Collections.emptyList();
+        ChartSeries mockData = ChartSeries.of(CHART_GROUPING.DAY, testStart, testEnd);
 
-        when(reportService.getChartData(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq("day")))
+        when(reportService.getChartData(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq("day"), eq(REPORT_ENGINE.SQL)))
                 .thenReturn(mockData);
 
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getChartData(
-                type, "day", null, null
+        ResponseEntity<ChartSeries> response = reportController.getChartData(
+                type, "day", null, null, "sql"
         );
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(reportService, times(1)).getChartData(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq("day"));
+        verify(reportService, times(1)).getChartData(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq("day"), eq(REPORT_ENGINE.SQL));
+    }
+
+    @Test
+    void getSeries_ShouldTranslateEverySpecInOrder() {
+        SeriesRequest used = new SeriesRequest();
+        used.setReportType(REPORT_TYPE.RECIPE_USED);
+        used.setGroupBy("hour");
+        used.setStart(testStart);
+        used.setEnd(testEnd);
+        used.setMetric("total");
+        SeriesRequest created = new SeriesRequest();
+        created.setReportType(REPORT_TYPE.RECIPES_CREATED);
+
+        when(reportService.getSeries(any(), eq(REPORT_ENGINE.MEMORY))).thenReturn(Map.of("passes", 2));
+
+        ResponseEntity<Map<String, Object>> response = reportController.getSeries(List.of(used, created), "memory");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ArgumentCaptor<List<ReportService.SeriesSpec>> captor = ArgumentCaptor.forClass(List.class);
+        verify(reportService).getSeries(captor.capture(), eq(REPORT_ENGINE.MEMORY));
+        List<ReportService.SeriesSpec> specs = captor.getValue();
+        assertEquals(
+                new ReportService.SeriesSpec(REPORT_TYPE.RECIPE_USED, CHART_GROUPING.HOUR, testStart, testEnd, SERIES_METRIC.TOTAL),
+                specs.get(0)
+        );
+        assertEquals(REPORT_TYPE.RECIPES_CREATED, specs.get(1).reportType());
+        assertEquals(CHART_GROUPING.DAY, specs.get(1).grouping());
+        assertEquals(SERIES_METRIC.REPORTS, specs.get(1).metric());
+        assertNotNull(specs.get(1).start());
+        assertNotNull(specs.get(1).end());
+    }
+
+    @Test
+    void getSeries_ShouldReturnBadRequest_WhenServiceRejectsSpecs() {
+        when(reportService.getSeries(any(), eq(REPORT_ENGINE.SQL)))
+                .thenThrow(new IllegalArgumentException("At least one series is required"));
+
+        ResponseEntity<Map<String, Object>> response = reportController.getSeries(List.of(), "sql");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getSeries_ShouldReturnBadRequest_WhenMetricIsUnknown() {
+        SeriesRequest request = new SeriesRequest();
+        request.setReportType(REPORT_TYPE.RECIPE_USED);
+        request.setMetric("totals");
+
+        ResponseEntity<Map<String, Object>> response = reportController.getSeries(List.of(request), "sql");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(reportService);
     }
 
     @Test
@@ -200,16 +494,16 @@ public class ReportControllerTest {
         int limit = 5;
         List<Map<String, Object>> mockTopData = List.of(Map.of("name", "Pizza", "count", 100));
 
-        when(reportService.getTopEntities(eq(type), eq(testStart), eq(testEnd), eq(limit)))
+        when(reportService.getTopEntities(eq(type), eq(testStart), eq(testEnd), eq(limit), eq(false), eq(REPORT_ENGINE.SQL)))
                 .thenReturn(mockTopData);
 
         ResponseEntity<List<Map<String, Object>>> response = reportController.getTopEntities(
-                type, limit, testStart, testEnd
+                type, limit, testStart, testEnd, false, "sql"
         );
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1, response.getBody().size());
-        verify(reportService, times(1)).getTopEntities(type, testStart, testEnd, limit);
+        verify(reportService, times(1)).getTopEntities(type, testStart, testEnd, limit, false, REPORT_ENGINE.SQL);
     }
 
     @Test
@@ -217,15 +511,145 @@ public class ReportControllerTest {
         REPORT_TYPE type = REPORT_TYPE.INGREDIENT_USED;
         List<Map<String, Object>> mockTopData = Collections.emptyList();
 
-        when(reportService.getTopEntities(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq(10)))
+        when(reportService.getTopEntities(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq(10), eq(false), eq(REPORT_ENGINE.SQL)))
                 .thenReturn(mockTopData);
 
         ResponseEntity<List<Map<String, Object>>> response = reportController.getTopEntities(
-                type, 10, null, null
+                type, 10, null, null, false, "sql"
         );
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(reportService, times(1)).getTopEntities(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq(10));
+        verify(reportService, times(1)).getTopEntities(eq(type), any(LocalDateTime.class), any(LocalDateTime.class), eq(10), eq(false), eq(REPORT_ENGINE.SQL));
+    }
+
+    @Test
+    void getTopEntities_ShouldPassIncludeOthers() {
+        REPORT_TYPE type = REPORT_TYPE.RECIPE_USED;
+        List<Map<String, Object>> mockTopData = List.of(
+                Map.of("name", "Pizza", "count", 100),
+                Map.of("name", "Others", "count", 40, "others", true)
+        );
+
+        when(reportService.getTopEntities(type, testStart, testEnd, 1, true, REPORT_ENGINE.SQL)).thenReturn(mockTopData);
+
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopEntities(
+                type, 1, testStart, testEnd, true, "sql"
+        );
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().size());
+        assertEquals(40, response.getBody().get(1).get("count"));
+    }
+
+    @Test
+    void getTopEntities_ShouldReturnBadRequest_WhenLimitBelowOne() {
+        REPORT_TYPE type = REPORT_TYPE.RECIPE_USED;
+        when(reportService.getTopEntities(type, testStart, testEnd, 0, true, REPORT_ENGINE.SQL))
+                .thenThrow(new IllegalArgumentException("limit must be at least 1"));
+
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopEntities(
+                type, 0, testStart, testEnd, true, "sql"
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getTopEntities_ShouldSelectMemoryEngine() {
+        REPORT_TYPE type = REPORT_TYPE.INGREDIENT_USED;
+        List<Map<String, Object>> mockTopData = List.of(Map.of("name", "Onions", "count", 20L));
+
+        when(reportService.getTopEntities(type, testStart, testEnd, 3, false, REPORT_ENGINE.MEMORY))
+                .thenReturn(mockTopData);
+
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopEntities(
+                type, 3, testStart, testEnd, false, "memory"
+        );
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockTopData, response.getBody());
+    }
+
+    @Test
+    void getLiveTopEntities_ShouldReturnWindowFromService() {
+        Map<String, Object> mockTop = Map.of(
+                "window", "hour",
+                "maxError", 0L,
+                "entities", List.of(Map.of("name", "Pizza", "count", 12L, "error", 0L))
+        );
+        when(reportService.getLiveTopEntities(REPORT_TYPE.RECIPE_USED, "hour", 5)).thenReturn(mockTop);
+
+        ResponseEntity<Map<String, Object>> response = reportController.getLiveTopEntities(
+                REPORT_TYPE.RECIPE_USED, "hour", 5
+        );
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockTop, response.getBody());
+    }
+
+    @Test
+    void getLiveTopEntities_ShouldReturnBadRequest_WhenTypeIsNotTracked() {
+        when(reportService.getLiveTopEntities(REPORT_TYPE.RECIPES_CREATED, "day", 10))
+                .thenThrow(new IllegalArgumentException("not tracked"));
+
+        ResponseEntity<Map<String, Object>> response = reportController.getLiveTopEntities(
+                REPORT_TYPE.RECIPES_CREATED, "day", 10
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void subscribeLive_ShouldReturnEmitterFromService() {
+        SseEmitter emitter = new SseEmitter();
+        when(reportService.subscribeLive("day", "week", 5)).thenReturn(emitter);
+
+        ResponseEntity<SseEmitter> response = reportController.subscribeLive("day", "week", 5);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(emitter, response.getBody());
+    }
+
+    @Test
+    void subscribeLive_ShouldReturnServiceUnavailable_WhenSubscribersAreFull() {
+        when(reportService.subscribeLive("hour", "day", 5))
+                .thenThrow(new IllegalStateException("Too many live report subscribers"));
+
+        ResponseEntity<SseEmitter> response = reportController.subscribeLive("hour", "day", 5);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst("Retry-After"));
+    }
+
+    @Test
+    void subscribeLive_ShouldReturnBadRequest_WhenWindowIsUnknown() {
+        when(reportService.subscribeLive("hour", "month", 5))
+                .thenThrow(new IllegalArgumentException("Unknown window: month"));
+
+        ResponseEntity<SseEmitter> response = reportController.subscribeLive("hour", "month", 5);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getDistinctEntityCount_ShouldPassExactFlag() {
+        Map<String, Object> approximate = Map.of("distinct", 48L, "exact", false, "standardError", 0.01625);
+        Map<String, Object> exact = Map.of("distinct", 50L, "exact", true, "standardError", 0.0);
+        when(reportService.getDistinctEntityCount(REPORT_TYPE.RECIPE_USED, testStart, testEnd, false))
+                .thenReturn(approximate);
+        when(reportService.getDistinctEntityCount(REPORT_TYPE.RECIPE_USED, testStart, testEnd, true))
+                .thenReturn(exact);
+
+        ResponseEntity<Map<String, Object>> approximateResponse = reportController.getDistinctEntityCount(
+                REPORT_TYPE.RECIPE_USED, testStart, testEnd, false
+        );
+        ResponseEntity<Map<String, Object>> exactResponse = reportController.getDistinctEntityCount(
+                REPORT_TYPE.RECIPE_USED, testStart, testEnd, true
+        );
+
+        assertEquals(HttpStatus.OK, approximateResponse.getStatusCode());
+        assertEquals(48L, approximateResponse.getBody().get("distinct"));
+        assertEquals(50L, exactResponse.getBody().get("distinct"));
     }
 
     @Test
@@ -250,4 +674,61 @@ public class ReportControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(reportService, times(1)).getDashboardData(any(LocalDateTime.class), any(LocalDateTime.class));
     }
+
+    @Test
+    void getDashboardData_ShouldReturnBadRequest_WhenServiceRejectsRange() {
+        when(reportService.getDashboardData(testStart, testEnd)).thenThrow(new IllegalArgumentException("bad range"));
+
+        ResponseEntity<Map<String, Object>> response = reportController.getDashboardData(testStart, testEnd);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getDashboardData_ShouldAlignDefaultDatesToHourBoundaries() {
+        when(reportService.getDashboardData(any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(Map.of());
+
+        reportController.getDashboardData(null, null);
+
+        ArgumentCaptor<LocalDateTime> start = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> end = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(reportService).getDashboardData(start.capture(), end.capture());
+        assertEquals(start.getValue(), start.getValue().truncatedTo(ChronoUnit.HOURS));
+        assertEquals(start.getValue().plusDays(30), end.getValue().plusNanos(1000));
+    }
+
+    @Test
+    void getCacheStats_ShouldReturnStats() {
+        when(reportService.getCacheStats()).thenReturn(Map.of("hits", 3L, "misses", 1L));
+
+        ResponseEntity<Map<String, Object>> response = reportController.getCacheStats();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3L, response.getBody().get("hits"));
+    }
+
+    @Test
+    void runRetention_ShouldReturnPurgeResult() {
+        when(reportService.purgeExpiredReports()).thenReturn(Map.of("totalPurged", 42L));
+
+        ResponseEntity<Map<String, Object>> response = reportController.runRetention();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42L, response.getBody().get("totalPurged"));
+    }
+
+    @Test
+    void runRetention_ShouldReturnConflict_WhenAlreadyRunning() {
+        when(reportService.purgeExpiredReports()).thenThrow(new IllegalStateException("Report retention is already running"));
+
+        ResponseEntity<Map<String, Object>> response = reportController.runRetention();
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    private static JsonNode json(Object body) throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper.readTree(mapper.writeValueAsString(body));
+    }
 }
@@ -3,6 +3,7 @@ package com.alancortez.project.controller;
 import com.alancortez.project.model.Report;
 import com.alancortez.project.model.User;
 import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.service.ReportRollupService;
 import com.alancortez.project.service.UserService;
 import com.alancortez.project.utils.USER_ROLE;
 import com.alancortez.project.utils.UserFactory;
@@ -28,6 +29,9 @@ public class SeedDataControllerTest {
     @Mock
     private ReportRepository reportRepository;
 
+    @Mock
+    private ReportRollupService reportRollupService;
+
     @Mock
     private UserService userService;
 
@@ -155,6 +159,7 @@ public class SeedDataControllerTest {
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(reportRepository, times(1)).deleteAll();
+        verify(reportRollupService, times(1)).deleteAll();
     }
 
     @Test
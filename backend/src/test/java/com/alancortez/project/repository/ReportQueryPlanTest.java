@@ -0,0 +1,224 @@
+package com.alancortez.project.repository;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.Report;
+import com.alancortez.project.service.ReportPartitionService;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Runs EXPLAIN on the SQL the report queries actually send and fails if any
+// plan reads a reports partition with a sequential scan. Uses its own schema
+// in the configured database, seeded with a year of synthetic reports on the
+// first run:
+//   mvn test -Dtest=ReportQueryPlanTest -Ddb=true
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                        + "com.alancortez.project.repository.ReportQueryPlanTest$LastStatement"
+        }
+)
+@DatabaseTest(schema = ReportQueryPlanTest.SCHEMA)
+public class ReportQueryPlanTest {
+
+    static final String SCHEMA = "report_query_plans";
+
+    private static final int SEED_ROWS = Integer.getInteger("queryPlans.rows", 400_000);
+    private static final int SEED_DAYS = 365;
+    private static final int ENTITIES = 200;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportPartitionService reportPartitionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private final LocalDateTime start = now.minusDays(40);
+    private final LocalDateTime end = now.minusDays(39);
+
+    @BeforeEach
+    void seed() {
+        if (reportRepository.count() >= SEED_ROWS) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                reportRepository.copyReports(syntheticReports(SEED_ROWS - (int) reportRepository.count())));
+        reportPartitionService.maintain();
+        jdbcTemplate.execute("VACUUM ANALYZE reports");
+    }
+
+    @Test
+    void rangeQueriesUseIndexes() {
+        assertNoSequentialScan("findByDateRange",
+                () -> reportRepository.findByDateRange(start, end), start, end);
+        assertNoSequentialScan("findByReportTypeAndTimestampBetween",
+                () -> reportRepository.findByReportTypeAndTimestampBetween(REPORT_TYPE.RECIPE_USED, start, end),
+                "RECIPE_USED", start, end);
+        assertNoSequentialScan("getReportSummary",
+                () -> reportRepository.getReportSummary(start, end), start, end);
+        assertNoSequentialScan("countByTypeAndDateRange",
+                () -> reportRepository.countByTypeAndDateRange(REPORT_TYPE.RECIPE_USED, start, end),
+                "RECIPE_USED", start, end);
+    }
+
+    @Test
+    void aggregateQueriesUseIndexes() {
+        LocalDateTime hourStart = start.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS);
+        assertNoSequentialScan("getTopEntitiesByType",
+                () -> reportRepository.getTopEntitiesByType(
+                        "RECIPE_USED", start, hourStart, hourEnd, hourEnd, hourEnd, end, 10),
+                "RECIPE_USED", start, hourStart, hourEnd, end,
+                "RECIPE_USED", hourStart, hourEnd, hourEnd, hourEnd,
+                "RECIPE_USED", hourEnd, hourEnd, 10);
+        assertNoSequentialScan("countDistinctEntities",
+                () -> reportRepository.countDistinctEntities(
+                        "RECIPE_USED", start, hourStart, hourEnd, hourEnd, hourEnd, end),
+                "RECIPE_USED", start, hourStart, hourEnd, end,
+                "RECIPE_USED", hourStart, hourEnd, hourEnd, hourEnd,
+                "RECIPE_USED", hourEnd, hourEnd);
+        assertNoSequentialScan("findEntityIdsOutsideDays",
+                () -> reportRepository.findEntityIdsOutsideDays(
+                        "RECIPE_USED", start, hourStart, hourEnd, hourEnd, hourEnd, end),
+                "RECIPE_USED", start, hourStart, hourEnd, end,
+                "RECIPE_USED", hourStart, hourEnd, hourEnd, hourEnd);
+        assertNoSequentialScan("getTimeSeriesData",
+                () -> reportRepository.getTimeSeriesData(REPORT_TYPE.RECIPE_USED, start, end),
+                "RECIPE_USED", start, end);
+        assertNoSequentialScan("getBucketedTimeSeries",
+                () -> reportRepository.getBucketedTimeSeries("RECIPE_USED", "hour", start, end),
+                "hour", "RECIPE_USED", start, end);
+    }
+
+    @Test
+    void keysetPagesUseIndexes() {
+        LocalDateTime cursor = now.minusDays(200);
+
+        assertNoSequentialScan("findPage",
+                () -> reportRepository.findPage(cursor, Long.MAX_VALUE, 51),
+                cursor, Long.MAX_VALUE, 51);
+        assertNoSequentialScan("findPageByReportType",
+                () -> reportRepository.findPageByReportType("INGREDIENT_USED", cursor, Long.MAX_VALUE, 51),
+                "INGREDIENT_USED", cursor, Long.MAX_VALUE, 51);
+        assertNoSequentialScan("findPageByDateRange",
+                () -> reportRepository.findPageByDateRange(start, end, Long.MAX_VALUE, 51),
+                start, end, Long.MAX_VALUE, 51);
+    }
+
+    @Test
+    void retentionChunksUseIndexes() {
+        LocalDateTime cutoff = now.minusDays(SEED_DAYS - 3);
+
+        assertNoSequentialScan("deleteChunkOlderThan",
+                () -> reportRepository.deleteChunkOlderThan("RECIPE_USED", cutoff, 5000),
+                cutoff, "RECIPE_USED", cutoff, 5000);
+    }
+
+    // Runs the query so Hibernate renders its SQL, rolls back, then explains
+    // that SQL with the same parameters in the order they appear in it.
+    private void assertNoSequentialScan(String name, Runnable query, Object... parameters) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            LastStatement.sql = null;
+            query.run();
+            status.setRollbackOnly();
+        });
+
+        String sql = LastStatement.sql;
+        assertTrue(sql != null, name + " did not reach the database");
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, parameters);
+        List<String> scanned = new ArrayList<>();
+        try {
+            collectSequentialScans(objectMapper.readTree(plan), scanned);
+        } catch (Exception e) {
+            fail("Could not read the plan for " + name + ": " + e.getMessage());
+        }
+
+        if (!scanned.isEmpty()) {
+            fail(name + " sequentially scans " + scanned + "\n" + sql + "\n" + plan);
+        }
+    }
+
+    // The default partition is kept empty by maintain(), and the planner
+    // always reads an empty relation with a sequential scan.
+    private static void collectSequentialScans(JsonNode node, List<String> scanned) {
+        if (node.isObject() && "Seq Scan".equals(node.path("Node Type").asText())
+                && !ReportPartitionRepository.DEFAULT_PARTITION.equals(node.path("Relation Name").asText())) {
+            scanned.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node) {
+            collectSequentialScans(child, scanned);
+        }
+    }
+
+    // A year of reports in timestamp order, spread over every type and a
+    // fixed set of entities so the planner sees realistic selectivity.
+    private Iterator<Report> syntheticReports(int rows) {
+        Random random = new Random(42);
+        LocalDateTime first = now.minusDays(SEED_DAYS);
+        long stepMicros = ChronoUnit.MICROS.between(first, now) / Math.max(rows, 1);
+        REPORT_TYPE[] types = REPORT_TYPE.values();
+
+        return new Iterator<>() {
+            private int produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < rows;
+            }
+
+            @Override
+            public Report next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long entity = random.nextInt(ENTITIES);
+                Report report = new Report(types[random.nextInt(types.length)], entity, "Entity " + entity);
+                report.setTimestamp(first.plus(stepMicros * produced++, ChronoUnit.MICROS));
+                return report;
+            }
+        };
+    }
+
+    public static class LastStatement implements StatementInspector {
+        static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            sql = statement;
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.alancortez.project.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    // Eight disjoint id ranges per size: the root-mean-square error stays
+    // within 2% and no single run is off by more than three standard errors.
+    @Test
+    void estimate_StaysWithinTwoPercentFromThousandsToMillions() {
+        int runs = 8;
+        for (int distinct : new int[]{1_000, 10_000, 100_000, 1_000_000}) {
+            double squares = 0;
+            for (int run = 0; run < runs; run++) {
+                HyperLogLog sketch = new HyperLogLog();
+                long first = run * 100_000_000L;
+                for (long id = first; id < first + distinct; id++) {
+                    sketch.add(id);
+                    // Repeats must not move the estimate.
+                    sketch.add(id);
+                }
+
+                double error = (sketch.estimate() - distinct) / (double) distinct;
+                assertTrue(Math.abs(error) <= 3 * HyperLogLog.STANDARD_ERROR,
+                        distinct + " distinct estimated as " + sketch.estimate());
+                squares += error * error;
+            }
+            double rms = Math.sqrt(squares / runs);
+            assertTrue(rms <= 0.02, distinct + " distinct: rms error " + rms);
+        }
+    }
+
+    @Test
+    void estimate_IsZeroForAnEmptySketch() {
+        assertEquals(0L, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void merge_EqualsTheSketchOfTheUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (long id = 0; id < 60_000; id++) {
+            left.add(id);
+            union.add(id);
+        }
+        for (long id = 40_000; id < 150_000; id++) {
+            right.add(id);
+            union.add(id);
+        }
+
+        left.merge(right);
+        left.merge(new HyperLogLog());
+
+        assertArrayEquals(union.toBytes(), left.toBytes());
+        assertEquals(union.estimate(), left.estimate());
+    }
+
+    @Test
+    void fromBytes_RoundTripsRegisters() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 0; id < 5_000; id++) {
+            sketch.add(id * 7919);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog copy = HyperLogLog.fromBytes(bytes);
+
+        assertEquals(HyperLogLog.REGISTERS, bytes.length);
+        assertArrayEquals(bytes, copy.toBytes());
+        assertEquals(sketch.estimate(), copy.estimate());
+    }
+
+    @Test
+    void fromBytes_KeepsEmptySketchesEmpty() {
+        assertEquals(0, new HyperLogLog().toBytes().length);
+        assertEquals(0L, HyperLogLog.fromBytes(new byte[0]).estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+    }
+}
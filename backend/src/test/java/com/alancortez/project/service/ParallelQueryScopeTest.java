@@ -0,0 +1,90 @@
+package com.alancortez.project.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ParallelQueryScopeTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void join_ShouldReturnResults_WhenAllSubtasksSucceed() throws Exception {
+        try (ParallelQueryScope scope = new ParallelQueryScope(executor, transactionManager, 2, 5_000)) {
+            Supplier<Integer> first = scope.fork(() -> 1);
+            Supplier<Integer> second = scope.fork(() -> 2);
+            Supplier<Integer> third = scope.fork(() -> 3);
+
+            scope.join();
+
+            assertEquals(6, first.get() + second.get() + third.get());
+        }
+    }
+
+    @Test
+    void join_ShouldFailFast_WhenLaterSubtaskFails() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+
+        try (ParallelQueryScope scope = new ParallelQueryScope(executor, transactionManager, 2, 30_000)) {
+            scope.fork(() -> {
+                slowStarted.countDown();
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    slowInterrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            });
+            assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+            scope.fork(() -> {
+                throw new IllegalStateException("query failed");
+            });
+
+            long started = System.nanoTime();
+            ExecutionException failure = assertThrows(ExecutionException.class, scope::join);
+
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 5);
+            assertTrue(slowInterrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void join_ShouldTimeOutAndCancel_WhenSubtaskIsTooSlow() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (ParallelQueryScope scope = new ParallelQueryScope(executor, transactionManager, 1, 200)) {
+            scope.fork(() -> {
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            });
+
+            assertThrows(TimeoutException.class, scope::join);
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
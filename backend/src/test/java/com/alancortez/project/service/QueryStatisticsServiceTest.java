@@ -0,0 +1,148 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.DailyDistinctSketchRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.QUERY_STAT_ORDER;
+import com.alancortez.project.utils.REPORT_TYPE;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs real queries with statistics on and reads them back through
+// getTopQueries; a native query is included because Hibernate's own
+// statistics time those as zero. Uses its own schema in the configured database:
+//   mvn test -Dtest=QueryStatisticsServiceTest -Ddb=true
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "query-stats.enabled=true",
+                "query-stats.slow-threshold-ms=30"
+        }
+)
+@DatabaseTest(schema = QueryStatisticsServiceTest.SCHEMA)
+public class QueryStatisticsServiceTest {
+
+    static final String SCHEMA = "query_statistics";
+
+    private static final String SLOW_SQL = "SELECT 1 FROM pg_sleep(0.2)";
+
+    @Autowired
+    private QueryStatisticsService queryStatisticsService;
+
+    @Autowired
+    private DailyDistinctSketchRepository dailyDistinctSketchRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void resetStatistics() {
+        queryStatisticsService.setEnabled(true);
+        queryStatisticsService.reset();
+    }
+
+    @AfterEach
+    void restoreStatistics() {
+        queryStatisticsService.reset();
+    }
+
+    @Test
+    void getTopQueries_ListsRepositoryQueriesInTheRequestedOrder() {
+        LocalDateTime day = LocalDateTime.now().toLocalDate().atStartOfDay();
+        for (int i = 0; i < 5; i++) {
+            dailyDistinctSketchRepository.findByTypeAndBucketRange(REPORT_TYPE.RECIPE_USED, day.minusDays(7), day);
+        }
+        entityManager.createNativeQuery(SLOW_SQL).getResultList();
+
+        Map<String, Object> byMax = queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.MAX, 20);
+        List<Map<String, Object>> queries = queries(byMax);
+
+        assertEquals(true, byMax.get("enabled"));
+        assertEquals("max", byMax.get("order"));
+        Map<String, Object> repositoryQuery = find(queries, "report_distinct_daily");
+        assertEquals(5L, repositoryQuery.get("executions"));
+        assertEquals(0L, repositoryQuery.get("rows"));
+        assertEquals(false, repositoryQuery.get("slow"));
+
+        Map<String, Object> slow = queries.get(0);
+        assertEquals(SLOW_SQL, slow.get("query"));
+        assertEquals(1L, slow.get("executions"));
+        assertEquals(1L, slow.get("rows"));
+        assertTrue((Double) slow.get("maxMs") >= 200, "pg_sleep ran for " + slow.get("maxMs") + " ms");
+        assertEquals(true, slow.get("slow"));
+        assertSortedBy(queries, "maxMs");
+
+        assertSortedBy(queries(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.AVG, 20)), "avgMs");
+        assertSortedBy(queries(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.TOTAL, 20)), "totalMs");
+
+        List<Map<String, Object>> top = queries(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.MAX, 1));
+        assertEquals(List.of(slow.get("query")), top.stream().map(entry -> entry.get("query")).toList());
+    }
+
+    // Writes go through the timed pool too, and COPY still reaches the driver
+    // connection behind it.
+    @Test
+    void getTopQueries_CountsRowsWrittenThroughThePool() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(3, reportRepository.insertBatch(List.of(report(1L, now), report(2L, now), report(3L, now))));
+        assertEquals(2L, reportRepository.copyReports(List.of(report(4L, now), report(5L, now)).iterator()));
+
+        Map<String, Object> insert = find(queries(queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.TOTAL, 20)),
+                "INSERT INTO reports");
+        assertEquals(1L, insert.get("executions"));
+        assertEquals(3L, insert.get("rows"));
+    }
+
+    @Test
+    void getTopQueries_RecordsNothingWhileDisabled() {
+        queryStatisticsService.setEnabled(false);
+        dailyDistinctSketchRepository.findByTypeAndBucketRange(
+                REPORT_TYPE.RECIPE_USED, LocalDateTime.now().minusDays(1), LocalDateTime.now());
+
+        Map<String, Object> result = queryStatisticsService.getTopQueries(QUERY_STAT_ORDER.MAX, 20);
+
+        assertEquals(false, result.get("enabled"));
+        assertTrue(queries(result).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> queries(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("queries");
+    }
+
+    private static Map<String, Object> find(List<Map<String, Object>> queries, String fragment) {
+        return queries.stream()
+                .filter(entry -> ((String) entry.get("query")).contains(fragment))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no query containing " + fragment + " in " + queries));
+    }
+
+    private static void assertSortedBy(List<Map<String, Object>> queries, String field) {
+        for (int i = 1; i < queries.size(); i++) {
+            double previous = ((Number) queries.get(i - 1).get(field)).doubleValue();
+            double current = ((Number) queries.get(i).get(field)).doubleValue();
+            assertTrue(previous >= current, field + " out of order at " + i + ": " + queries);
+        }
+    }
+
+    private static Report report(long entityId, LocalDateTime timestamp) {
+        Report report = new Report(REPORT_TYPE.RECIPE_USED, entityId, "Entity " + entityId);
+        report.setTimestamp(timestamp);
+        return report;
+    }
+}
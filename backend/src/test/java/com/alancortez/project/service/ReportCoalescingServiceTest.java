@@ -0,0 +1,227 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+// The flusher thread is not started; tests drain, flush and restore by hand
+// so they control when each step runs.
+@ExtendWith(MockitoExtension.class)
+public class ReportCoalescingServiceTest {
+
+    private static final LocalDateTime BUCKET = LocalDateTime.of(2026, 3, 2, 10, 15);
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private ReportRollupService reportRollupService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ReportCoalescingService reportCoalescingService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reportCoalescingService, "mode", "coalesce");
+        ReflectionTestUtils.setField(reportCoalescingService, "bucketSeconds", 60);
+        ReflectionTestUtils.setField(reportCoalescingService, "maxKeys", 1_000);
+        ReflectionTestUtils.setField(reportCoalescingService, "transactionTemplate",
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(reportCoalescingService, "running", true);
+        reportCoalescingService.registerMetrics();
+    }
+
+    @Test
+    void accept_MergesEventsOfOneKeyAndBucketIntoOneRow() {
+        assertTrue(reportCoalescingService.accept(report(1L, BUCKET.plusSeconds(5), 2)));
+        assertTrue(reportCoalescingService.accept(report(1L, BUCKET.plusSeconds(59), 3)));
+        assertTrue(reportCoalescingService.accept(report(2L, BUCKET.plusSeconds(10), 1)));
+        assertTrue(reportCoalescingService.accept(report(1L, BUCKET.plusSeconds(60), 1)));
+
+        Map<String, Report> rows = byKey(drain());
+
+        assertEquals(3, rows.size());
+        Report merged = rows.get("1@" + BUCKET);
+        assertEquals(5, merged.getCount());
+        assertEquals(2, merged.getEvents());
+        assertEquals(1, rows.get("2@" + BUCKET).getEvents());
+        assertEquals(1, rows.get("1@" + BUCKET.plusMinutes(1)).getEvents());
+        assertTrue(drain().isEmpty());
+    }
+
+    @Test
+    void drain_NeitherLosesNorRepeatsEventsAcceptedMeanwhile() throws Exception {
+        int producers = 8;
+        int eventsEach = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> running = new ArrayList<>();
+        List<Report> drained = new ArrayList<>();
+        try {
+            for (int p = 0; p < producers; p++) {
+                running.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < eventsEach; i++) {
+                        assertTrue(reportCoalescingService.accept(report(i % 10, BUCKET.plusSeconds(i % 120), 2)));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            while (running.stream().anyMatch(future -> !future.isDone())) {
+                drained.addAll(drain());
+            }
+            for (Future<?> future : running) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            drained.addAll(drain());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long events = drained.stream().mapToLong(Report::getEvents).sum();
+        long count = drained.stream().mapToLong(Report::getCount).sum();
+        assertEquals((long) producers * eventsEach, events);
+        assertEquals(2L * producers * eventsEach, count);
+        assertEquals(events, reportCoalescingService.getMetrics().get("acceptedEvents"));
+    }
+
+    @Test
+    void restore_KeepsAFailedFlushForTheNextOne() {
+        reportCoalescingService.accept(report(1L, BUCKET, 4));
+        reportCoalescingService.accept(report(1L, BUCKET, 1));
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .doReturn(1)
+                .when(reportRepository).upsertCoalesced(anyList());
+
+        List<Report> failed = drain();
+        assertFalse(flush(failed));
+        ReflectionTestUtils.invokeMethod(reportCoalescingService, "restore", failed);
+        // Arrives while the failed rows are waiting for the retry.
+        reportCoalescingService.accept(report(1L, BUCKET.plusSeconds(30), 2));
+
+        List<Report> retried = drain();
+        assertTrue(flush(retried));
+
+        assertEquals(1, retried.size());
+        assertEquals(3, retried.get(0).getEvents());
+        assertEquals(7, retried.get(0).getCount());
+        assertEquals(BUCKET, retried.get(0).getTimestamp());
+        Map<String, Object> metrics = reportCoalescingService.getMetrics();
+        assertEquals(1L, metrics.get("failedFlushes"));
+        assertEquals(3L, metrics.get("flushedEvents"));
+    }
+
+    @Test
+    void accept_RefusesEventsPastWhatARowHolds() {
+        assertTrue(reportCoalescingService.accept(report(1L, BUCKET, Integer.MAX_VALUE)));
+        assertFalse(reportCoalescingService.accept(report(1L, BUCKET, 1)));
+        assertTrue(reportCoalescingService.accept(report(2L, BUCKET, 1)));
+
+        assertEquals(1L, reportCoalescingService.getMetrics().get("overflowEvents"));
+        assertEquals(Integer.MAX_VALUE, byKey(drain()).get("1@" + BUCKET).getCount());
+    }
+
+    @Test
+    void drain_CarriesOverWhatARowCannotHold() {
+        reportCoalescingService.accept(report(1L, BUCKET, 10));
+        Report failed = report(1L, BUCKET, Integer.MAX_VALUE);
+        failed.setEvents(1);
+        ReflectionTestUtils.invokeMethod(reportCoalescingService, "restore", List.of(failed));
+
+        List<Report> first = drain();
+        List<Report> second = drain();
+
+        assertEquals(1, first.size());
+        assertEquals(Integer.MAX_VALUE, first.get(0).getCount());
+        assertEquals(2, first.get(0).getEvents());
+        assertEquals(1, second.size());
+        assertEquals(10, second.get(0).getCount());
+        assertEquals(0, second.get(0).getEvents());
+    }
+
+    @Test
+    void stop_FlushesWhatIsPending() {
+        reportCoalescingService.accept(report(1L, BUCKET, 1));
+        reportCoalescingService.accept(report(1L, BUCKET, 1));
+
+        reportCoalescingService.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Report>> rows = ArgumentCaptor.forClass(List.class);
+        verify(reportRepository).upsertCoalesced(rows.capture());
+        assertEquals(2, rows.getValue().get(0).getEvents());
+        assertFalse(reportCoalescingService.accept(report(1L, BUCKET, 1)));
+        assertEquals(0.0, shutdownDrops());
+    }
+
+    @Test
+    void stop_CountsEventsLostWhenTheFinalFlushFails() {
+        reportCoalescingService.accept(report(1L, BUCKET, 1));
+        reportCoalescingService.accept(report(2L, BUCKET, 1));
+        reportCoalescingService.accept(report(2L, BUCKET, 1));
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(reportRepository).upsertCoalesced(anyList());
+
+        reportCoalescingService.stop();
+
+        assertEquals(3L, reportCoalescingService.getMetrics().get("droppedEvents"));
+        assertEquals(3.0, shutdownDrops());
+    }
+
+    private List<Report> drain() {
+        return ReflectionTestUtils.invokeMethod(reportCoalescingService, "drain");
+    }
+
+    private boolean flush(List<Report> rows) {
+        Boolean flushed = ReflectionTestUtils.invokeMethod(reportCoalescingService, "flush", rows);
+        return Boolean.TRUE.equals(flushed);
+    }
+
+    private double shutdownDrops() {
+        return meterRegistry.get("reports.ingest.dropped").tag("reason", "shutdown").counter().count();
+    }
+
+    private static Map<String, Report> byKey(List<Report> rows) {
+        Map<String, Report> byKey = new HashMap<>();
+        for (Report row : rows) {
+            assertNull(byKey.put(row.getEntityId() + "@" + row.getTimestamp(), row), "one row per key");
+        }
+        return byKey;
+    }
+
+    private static Report report(long entityId, LocalDateTime timestamp, int count) {
+        Report report = new Report(REPORT_TYPE.RECIPE_USED, entityId, "Entity " + entityId);
+        report.setTimestamp(timestamp);
+        report.setCount(count);
+        return report;
+    }
+}
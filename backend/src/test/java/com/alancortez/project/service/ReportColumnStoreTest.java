@@ -0,0 +1,29 @@
+package com.alancortez.project.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportColumnStoreTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long SEGMENT_ROWS = 1 << 16;
+    private static final long BYTES_PER_ROW = 25;
+
+    @Test
+    void rowBudget_KeepsTheStoreWithinItsShareOfTheHeap() {
+        for (long heap : new long[]{256 * MB, 512 * MB, 2048 * MB}) {
+            long rows = ReportColumnStore.rowBudget(heap, 20);
+
+            assertEquals(0, rows % SEGMENT_ROWS, "whole segments");
+            // The cap plus the segment it may run over by.
+            assertTrue((rows + SEGMENT_ROWS) * BYTES_PER_ROW <= heap / 5, heap / MB + " MB heap: " + rows);
+        }
+        assertEquals(64 * SEGMENT_ROWS, ReportColumnStore.rowBudget(512 * MB, 20));
+    }
+
+    @Test
+    void rowBudget_KeepsOneSegmentOnATinyHeap() {
+        assertEquals(SEGMENT_ROWS, ReportColumnStore.rowBudget(8 * MB, 1));
+    }
+}
@@ -0,0 +1,112 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.DailyDistinctSketch;
+import com.alancortez.project.repository.DailyDistinctSketchRepository;
+import com.alancortez.project.repository.DailyReportRollupRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// A single closed day, so the approximate count is exactly that day's
+// stored or rebuilt sketch.
+@ExtendWith(MockitoExtension.class)
+public class ReportDistinctServiceTest {
+
+    private static final REPORT_TYPE TYPE = REPORT_TYPE.RECIPE_USED;
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private DailyReportRollupRepository dailyReportRollupRepository;
+
+    @Mock
+    private DailyDistinctSketchRepository dailyDistinctSketchRepository;
+
+    @InjectMocks
+    private ReportDistinctService reportDistinctService;
+
+    private final LocalDateTime day = LocalDate.now().minusDays(3).atStartOfDay();
+
+    @BeforeEach
+    void setUp() {
+        when(reportRepository.findEntityIdsOutsideDays(eq(TYPE.name()), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of());
+    }
+
+    @Test
+    void countApproximate_UsesAStoredSketchBuiltFromTheCurrentCount() {
+        when(dailyReportRollupRepository.sumReportCountsByDay(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.<Object[]>of(new Object[]{day, 5L}));
+        when(dailyDistinctSketchRepository.findByTypeAndBucketRange(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.of(sketch(5L, 1L, 2L, 3L)));
+
+        assertEquals(3L, reportDistinctService.countApproximate(TYPE, day, day.plusDays(1)));
+
+        verify(dailyReportRollupRepository, never()).findEntityIdsByDay(any(), any(), any());
+        verify(dailyDistinctSketchRepository, never()).upsert(any(), any(), any(), anyLong());
+    }
+
+    // The stored sketch was built before a back-dated write landed on its
+    // day and was stored after that write's invalidate.
+    @Test
+    void countApproximate_RebuildsASketchWhoseCountHasMoved() {
+        when(dailyReportRollupRepository.sumReportCountsByDay(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.<Object[]>of(new Object[]{day, 3L}));
+        when(dailyDistinctSketchRepository.findByTypeAndBucketRange(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.of(sketch(2L, 1L)));
+        when(dailyReportRollupRepository.findEntityIdsByDay(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.of(new Object[]{day, 1L, 2L}, new Object[]{day, 2L, 1L}));
+
+        assertEquals(2L, reportDistinctService.countApproximate(TYPE, day, day.plusDays(1)));
+
+        HyperLogLog expected = new HyperLogLog();
+        expected.add(1L);
+        expected.add(2L);
+        ArgumentCaptor<byte[]> registers = ArgumentCaptor.forClass(byte[].class);
+        verify(dailyDistinctSketchRepository).upsert(eq(TYPE.name()), eq(day), registers.capture(), eq(3L));
+        assertArrayEquals(expected.toBytes(), registers.getValue());
+    }
+
+    @Test
+    void countApproximate_RebuildsSketchesStoredWithoutACount() {
+        when(dailyReportRollupRepository.sumReportCountsByDay(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.of());
+        when(dailyDistinctSketchRepository.findByTypeAndBucketRange(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.of(sketch(null, 1L)));
+        when(dailyReportRollupRepository.findEntityIdsByDay(TYPE, day, day.plusDays(1)))
+                .thenReturn(List.of());
+
+        assertEquals(0L, reportDistinctService.countApproximate(TYPE, day, day.plusDays(1)));
+
+        verify(dailyDistinctSketchRepository).upsert(TYPE.name(), day, new byte[0], 0L);
+    }
+
+    private DailyDistinctSketch sketch(Long sourceReports, long... entityIds) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long entityId : entityIds) {
+            sketch.add(entityId);
+        }
+        DailyDistinctSketch stored = new DailyDistinctSketch();
+        ReflectionTestUtils.setField(stored, "reportType", TYPE);
+        ReflectionTestUtils.setField(stored, "bucket", day);
+        ReflectionTestUtils.setField(stored, "registers", sketch.toBytes());
+        ReflectionTestUtils.setField(stored, "sourceReports", sourceReports);
+        return stored;
+    }
+}
@@ -0,0 +1,166 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.Report;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_ENGINE;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Writes the same reports through the service, so they reach both the
+// rollups and the column store, and checks that engine=memory answers the
+// summary, chart and top-entity queries exactly like engine=sql. One entity
+// is renamed at midnight, since the rollups keep one name per hour and day,
+// and some rows are coalesced. Uses its own schema in the configured database:
+//   mvn test -Dtest=ReportEngineParityTest -Ddb=true
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "reports.column-store.enabled=true"
+        }
+)
+@DatabaseTest(schema = ReportEngineParityTest.SCHEMA)
+public class ReportEngineParityTest {
+
+    static final String SCHEMA = "report_engine_parity";
+
+    private static final int ROWS = 4_000;
+    private static final int ENTITIES = 20;
+    private static final long RENAMED = 3L;
+
+    private static final Comparator<Map<String, Object>> RANKING = Comparator
+            .comparingLong((Map<String, Object> row) -> ((Number) row.get("count")).longValue()).reversed()
+            .thenComparing(row -> row.get("id") == null ? Long.MAX_VALUE : ((Number) row.get("id")).longValue())
+            .thenComparing(row -> (String) row.get("name"));
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ReportColumnStore reportColumnStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private final LocalDateTime renamedAt = now.minusDays(3).truncatedTo(ChronoUnit.DAYS);
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE reports");
+        reportRollupService.deleteAll();
+        reportService.createReports(syntheticReports(now.minusDays(6), now, ROWS, 11));
+    }
+
+    @Test
+    void memoryEngineMatchesSql() {
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{now.minusDays(5).withMinute(17).withSecond(3), now.minusMinutes(7)},
+                new LocalDateTime[]{now.minusDays(4).withMinute(41), renamedAt.plusHours(5).withMinute(12)},
+                new LocalDateTime[]{renamedAt.minusMinutes(30), renamedAt.plusMinutes(30)},
+                new LocalDateTime[]{now.minusDays(4).truncatedTo(ChronoUnit.DAYS), now.minusDays(1).truncatedTo(ChronoUnit.DAYS)}
+        );
+
+        for (LocalDateTime[] range : ranges) {
+            LocalDateTime start = range[0];
+            LocalDateTime end = range[1];
+            String label = start + " .. " + end;
+            assertTrue(reportColumnStore.covers(start), label);
+
+            assertEquals(reportService.getReportSummary(start, end, REPORT_ENGINE.SQL),
+                    reportService.getReportSummary(start, end, REPORT_ENGINE.MEMORY), "summary " + label);
+
+            for (REPORT_TYPE type : REPORT_TYPE.values()) {
+                for (CHART_GROUPING grouping : CHART_GROUPING.values()) {
+                    String groupBy = grouping.name().toLowerCase();
+                    assertEquals(counts(reportService.getChartData(type, start, end, groupBy, REPORT_ENGINE.SQL)),
+                            counts(reportService.getChartData(type, start, end, groupBy, REPORT_ENGINE.MEMORY)),
+                            "chart " + type + " by " + grouping + " " + label);
+                }
+
+                for (int limit : List.of(3, 50)) {
+                    assertEquals(ranked(reportService.getTopEntities(type, start, end, limit, true, REPORT_ENGINE.SQL)),
+                            ranked(reportService.getTopEntities(type, start, end, limit, true, REPORT_ENGINE.MEMORY)),
+                            "top " + limit + " " + type + " " + label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void renamedEntityIsRankedOncePerName() {
+        LocalDateTime start = now.minusDays(6);
+        List<Map<String, Object>> sql = reportService.getTopEntities(
+                REPORT_TYPE.RECIPE_USED, start, now, 50, false, REPORT_ENGINE.SQL);
+        List<Map<String, Object>> memory = reportService.getTopEntities(
+                REPORT_TYPE.RECIPE_USED, start, now, 50, false, REPORT_ENGINE.MEMORY);
+
+        Set<Object> names = new TreeSet<>();
+        for (Map<String, Object> row : memory) {
+            if (Objects.equals(row.get("id"), RENAMED)) {
+                names.add(row.get("name"));
+            }
+        }
+        assertEquals(Set.of("Entity 3", "Renamed 3"), names);
+        assertEquals(ranked(sql), ranked(memory));
+    }
+
+    private static List<Map<String, Object>> ranked(List<Map<String, Object>> rows) {
+        List<Map<String, Object>> sorted = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> normalized = new HashMap<>(row);
+            normalized.put("count", ((Number) row.get("count")).longValue());
+            sorted.add(normalized);
+        }
+        sorted.sort(RANKING);
+        return sorted;
+    }
+
+    private static Map<LocalDateTime, Long> counts(ChartSeries series) {
+        Map<LocalDateTime, Long> result = new TreeMap<>();
+        for (int i = 0; i < series.size(); i++) {
+            if (series.count(i) != 0) {
+                result.put(series.bucket(i), series.count(i));
+            }
+        }
+        return result;
+    }
+
+    // Every seventh row is a coalesced row standing for several events.
+    // Microsecond offsets keep coalesced rows from sharing a timestamp.
+    private List<Report> syntheticReports(LocalDateTime first, LocalDateTime last, int rows, long seed) {
+        Random random = new Random(seed);
+        long spanSeconds = ChronoUnit.SECONDS.between(first, last);
+        REPORT_TYPE[] types = REPORT_TYPE.values();
+
+        List<Report> reports = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long entity = random.nextInt(ENTITIES);
+            LocalDateTime timestamp = first.plusSeconds((long) (random.nextDouble() * spanSeconds))
+                    .plusNanos(random.nextInt(1_000_000) * 1_000L);
+            String name = entity == RENAMED && !timestamp.isBefore(renamedAt) ? "Renamed " + entity : "Entity " + entity;
+
+            Report report = new Report(types[random.nextInt(types.length)], entity, name);
+            report.setTimestamp(timestamp);
+            report.setCount(1 + random.nextInt(5));
+            if (i % 7 == 0) {
+                report.setEvents(2 + random.nextInt(4));
+            }
+            reports.add(report);
+        }
+        return reports;
+    }
+}
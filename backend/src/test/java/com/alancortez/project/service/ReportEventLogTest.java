@@ -0,0 +1,149 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.model.ReportLogCheckpoint;
+import com.alancortez.project.repository.ReportLogCheckpointRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Segments of two records, so a handful of appends spans several files.
+// Replay runs on the log's own thread against mocked repositories.
+@ExtendWith(MockitoExtension.class)
+public class ReportEventLogTest {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private ReportRollupService reportRollupService;
+
+    @Mock
+    private ReportLogCheckpointRepository reportLogCheckpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final List<ReportEventLog> started = new ArrayList<>();
+
+    @AfterEach
+    void stopLogs() {
+        started.forEach(ReportEventLog::stop);
+    }
+
+    @Test
+    void append_RollsToANewSegmentWhenTheActiveOneIsFull() {
+        databaseDown();
+        ReportEventLog eventLog = start(3);
+
+        for (long id = 0; id < 6; id++) {
+            assertTrue(eventLog.append(report(id)), "append " + id);
+        }
+        assertFalse(eventLog.append(report(6L)));
+
+        Map<String, Object> metrics = eventLog.getMetrics();
+        assertEquals(3, metrics.get("segments"));
+        assertEquals(2L, metrics.get("activeSegment"));
+        assertEquals(6L, metrics.get("pendingEvents"));
+        assertEquals(1L, metrics.get("rejectedEvents"));
+        for (long id = 0; id < 3; id++) {
+            assertTrue(Files.exists(ReportLogSegment.pathOf(directory, id)));
+        }
+    }
+
+    @Test
+    void start_ResumesFromTheStoredCheckpoint() throws IOException {
+        databaseDown();
+        ReportEventLog first = start(8);
+        for (long id = 0; id < 5; id++) {
+            first.append(report(id));
+        }
+        first.stop();
+        String logId = Files.readString(directory.resolve("log.id")).trim();
+
+        // Segment 0 and the first record of segment 1 were committed before
+        // the restart.
+        reset(reportRepository);
+        ReportLogCheckpoint checkpoint = new ReportLogCheckpoint();
+        ReflectionTestUtils.setField(checkpoint, "logId", logId);
+        ReflectionTestUtils.setField(checkpoint, "segment", 1L);
+        ReflectionTestUtils.setField(checkpoint, "position", 1);
+        when(reportLogCheckpointRepository.findById(logId)).thenReturn(Optional.of(checkpoint));
+
+        ReportEventLog second = start(8);
+
+        verify(reportLogCheckpointRepository, timeout(5_000)).advance(logId, 2L, 1);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Report>> batches = ArgumentCaptor.forClass(List.class);
+        verify(reportRepository, atLeastOnce()).insertBatch(batches.capture());
+        List<Long> replayed = batches.getAllValues().stream()
+                .flatMap(List::stream)
+                .map(Report::getEntityId)
+                .toList();
+
+        assertEquals(List.of(3L, 4L), replayed);
+        assertFalse(Files.exists(ReportLogSegment.pathOf(directory, 0L)));
+        assertEquals(0L, second.getPendingEvents());
+    }
+
+    @Test
+    void append_RefusesNamesThatDoNotFitARecord() {
+        ReportEventLog eventLog = start(3);
+
+        Report report = new Report(REPORT_TYPE.RECIPE_USED, 1L, "x".repeat(ReportLogSegment.NAME_BYTES + 1));
+
+        assertFalse(eventLog.append(report));
+        assertEquals(1L, eventLog.getMetrics().get("rejectedEvents"));
+    }
+
+    private void databaseDown() {
+        lenient().doThrow(new DataAccessResourceFailureException("database down"))
+                .when(reportRepository).insertBatch(anyList());
+    }
+
+    private ReportEventLog start(int maxSegments) {
+        ReportEventLog eventLog = new ReportEventLog();
+        ReflectionTestUtils.setField(eventLog, "reportRepository", reportRepository);
+        ReflectionTestUtils.setField(eventLog, "reportRollupService", reportRollupService);
+        ReflectionTestUtils.setField(eventLog, "reportLogCheckpointRepository", reportLogCheckpointRepository);
+        ReflectionTestUtils.setField(eventLog, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(eventLog, "enabled", true);
+        ReflectionTestUtils.setField(eventLog, "directory", directory.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentRecords", 2);
+        ReflectionTestUtils.setField(eventLog, "maxSegments", maxSegments);
+        ReflectionTestUtils.setField(eventLog, "batchSize", 500);
+        ReflectionTestUtils.setField(eventLog, "replayIntervalMs", 20L);
+        ReflectionTestUtils.setField(eventLog, "shutdownTimeoutMs", 5_000L);
+        eventLog.start();
+        started.add(eventLog);
+        return eventLog;
+    }
+
+    private static Report report(long entityId) {
+        return ReportLogSegmentTest.report(REPORT_TYPE.RECIPE_USED, entityId, "Entity " + entityId);
+    }
+}
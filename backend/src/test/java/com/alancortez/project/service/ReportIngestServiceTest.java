@@ -0,0 +1,94 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportIngestServiceTest {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private ReportRollupService reportRollupService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ReportIngestService reportIngestService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reportIngestService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(reportIngestService, "batchSize", 100);
+        ReflectionTestUtils.setField(reportIngestService, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(reportIngestService, "overflowPolicy", "caller-runs");
+        ReflectionTestUtils.setField(reportIngestService, "shutdownTimeoutMs", 10_000L);
+        reportIngestService.registerMetrics();
+    }
+
+    @Test
+    void submit_ShouldThrowIllegalState_WhenCallerRunsWriteFails() {
+        doThrow(new DataAccessResourceFailureException("database down")).when(reportRepository).insertBatch(anyList());
+        ReflectionTestUtils.setField(reportIngestService, "transactionTemplate",
+                new TransactionTemplate(transactionManager));
+
+        assertThrows(IllegalStateException.class, () -> reportIngestService.submit(report()));
+        assertEquals(0.0, dropped("flush-failed"));
+    }
+
+    @Test
+    void submit_ShouldCountRejectedEvents() {
+        ReflectionTestUtils.setField(reportIngestService, "overflowPolicy", "reject");
+
+        assertEquals(ReportIngestService.Outcome.REJECTED, reportIngestService.submit(report()));
+        assertEquals(1.0, dropped("rejected"));
+        assertEquals(1L, reportIngestService.getDroppedEvents());
+    }
+
+    @Test
+    void stop_ShouldCountBatchDroppedAfterFailedFlushAttempts() {
+        doThrow(new DataAccessResourceFailureException("database down")).when(reportRepository).insertBatch(anyList());
+        reportIngestService.start();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ReportIngestService.Outcome.QUEUED, reportIngestService.submit(report()));
+        }
+        reportIngestService.stop();
+
+        verify(reportRepository, times(3)).insertBatch(anyList());
+        assertEquals(3.0, dropped("flush-failed"));
+        assertEquals(3L, reportIngestService.getDroppedEvents());
+        assertEquals(0, reportIngestService.getQueueDepth());
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.get("reports.ingest.dropped").tag("reason", reason).counter().count();
+    }
+
+    private static Report report() {
+        return new Report(REPORT_TYPE.RECIPE_USED, 1L, "Recipe 1");
+    }
+}
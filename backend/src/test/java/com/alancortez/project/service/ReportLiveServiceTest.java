@@ -0,0 +1,262 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.TOP_WINDOW;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+
+// The ticker is driven by hand and the writer executor only queues its
+// tasks, so each test decides when a write runs. Emitters record what they
+// are sent instead of writing to a response.
+@ExtendWith(MockitoExtension.class)
+public class ReportLiveServiceTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2026, 3, 2, 10, 0);
+
+    @Mock
+    private ReportHeavyHitterService reportHeavyHitterService;
+
+    @Mock
+    private ExecutorService reportLiveExecutor;
+
+    private final Queue<Runnable> writes = new ConcurrentLinkedQueue<>();
+    private ReportLiveService reportLiveService;
+
+    @BeforeEach
+    void setUp() {
+        reportLiveService = new ReportLiveService() {
+            @Override
+            SseEmitter newEmitter(long timeout) {
+                return new RecordingEmitter();
+            }
+        };
+        ReflectionTestUtils.setField(reportLiveService, "reportHeavyHitterService", reportHeavyHitterService);
+        ReflectionTestUtils.setField(reportLiveService, "reportLiveExecutor", reportLiveExecutor);
+        ReflectionTestUtils.setField(reportLiveService, "enabled", true);
+        ReflectionTestUtils.setField(reportLiveService, "intervalMs", 1_000L);
+        ReflectionTestUtils.setField(reportLiveService, "maxSubscribers", 4);
+        ReflectionTestUtils.setField(reportLiveService, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(reportLiveService, "heartbeatMs", 60_000L);
+        ReflectionTestUtils.setField(reportLiveService, "stallTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(reportLiveService, "running", true);
+        lenient().doAnswer(invocation -> writes.add(invocation.getArgument(0)))
+                .when(reportLiveExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void tick_SendsTheTallySinceTheLastTick() {
+        RecordingEmitter emitter = subscribe(CHART_GROUPING.DAY);
+
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 2));
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR.plusHours(3), 1));
+        reportLiveService.record(batch(REPORT_TYPE.INGREDIENT_USED, HOUR, 4));
+        tick();
+        runWrites();
+
+        Map<String, Object> delta = emitter.single("delta");
+        assertEquals(false, delta.get("resync"));
+        assertEquals(Map.of(REPORT_TYPE.RECIPE_USED, 3L, REPORT_TYPE.INGREDIENT_USED, 4L), delta.get("summary"));
+        assertEquals(Map.of(
+                REPORT_TYPE.RECIPE_USED, Map.of("2026-03-02", 3L),
+                REPORT_TYPE.INGREDIENT_USED, Map.of("2026-03-02", 4L)
+        ), delta.get("chart"));
+
+        // Nothing new, and the heartbeat is not due.
+        tick();
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void tick_MergesIntoTheNextEventWhileAWriteIsInFlight() {
+        RecordingEmitter emitter = subscribe(CHART_GROUPING.HOUR);
+
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 2));
+        tick();
+        // The first write has not run yet; the second tick adds to it.
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR.plusHours(1), 5));
+        tick();
+        assertEquals(1, writes.size());
+        runWrites();
+
+        Map<String, Object> delta = emitter.single("delta");
+        assertEquals(Map.of(REPORT_TYPE.RECIPE_USED, 7L), delta.get("summary"));
+        assertEquals(Map.of(REPORT_TYPE.RECIPE_USED, Map.of("2026-03-02T10:00", 2L, "2026-03-02T11:00", 5L)),
+                delta.get("chart"));
+    }
+
+    @Test
+    void tick_ReplacesPendingIncrementsWithAResync() {
+        RecordingEmitter emitter = subscribe(CHART_GROUPING.HOUR);
+
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 2));
+        tick();
+        reportLiveService.resync();
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 1));
+        tick();
+        runWrites();
+
+        Map<String, Object> delta = emitter.single("delta");
+        assertEquals(true, delta.get("resync"));
+        assertEquals(Map.of(), delta.get("summary"));
+        assertEquals(Map.of(), delta.get("chart"));
+
+        // The next increments start again from the reload.
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 1));
+        tick();
+        runWrites();
+        assertEquals(false, emitter.events("delta").get(1).get("resync"));
+    }
+
+    @Test
+    void tick_DropsASubscriberStuckOnAWrite() {
+        ReflectionTestUtils.setField(reportLiveService, "stallTimeoutMs", 0L);
+        RecordingEmitter emitter = subscribe(CHART_GROUPING.HOUR);
+
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 2));
+        tick();
+        writes.clear();
+        tick();
+
+        assertEquals(0, reportLiveService.getMetrics().get("subscribers"));
+        assertEquals(1L, reportLiveService.getMetrics().get("droppedSubscribers"));
+        runWrites();
+        assertTrue(emitter.completed);
+        assertTrue(emitter.events("delta").isEmpty());
+
+        // Its slot is free again.
+        ReflectionTestUtils.setField(reportLiveService, "maxSubscribers", 1);
+        assertNotNull(subscribe(CHART_GROUPING.HOUR));
+    }
+
+    @Test
+    void subscribe_AdmitsNoMoreThanMaxSubscribersAtOnce() throws Exception {
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    go.await();
+                    try {
+                        reportLiveService.subscribe(CHART_GROUPING.HOUR, TOP_WINDOW.DAY, 0);
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+            go.countDown();
+
+            int admitted = 0;
+            for (Future<Boolean> result : results) {
+                admitted += result.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(4, admitted);
+            assertEquals(4, reportLiveService.getMetrics().get("subscribers"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void subscribe_FreesTheSlotOfASubscriberWhoseWriteFailed() {
+        ReflectionTestUtils.setField(reportLiveService, "maxSubscribers", 1);
+        RecordingEmitter broken = subscribe(CHART_GROUPING.HOUR);
+        assertThrows(IllegalStateException.class, () -> subscribe(CHART_GROUPING.HOUR));
+
+        broken.failing = true;
+        reportLiveService.record(batch(REPORT_TYPE.RECIPE_USED, HOUR, 1));
+        tick();
+        runWrites();
+
+        assertEquals(0, reportLiveService.getMetrics().get("subscribers"));
+        assertNotNull(subscribe(CHART_GROUPING.HOUR));
+    }
+
+    private RecordingEmitter subscribe(CHART_GROUPING grouping) {
+        RecordingEmitter emitter = (RecordingEmitter) reportLiveService.subscribe(grouping, TOP_WINDOW.DAY, 0);
+        assertEquals(1, emitter.events("ready").size());
+        return emitter;
+    }
+
+    private void tick() {
+        ReflectionTestUtils.invokeMethod(reportLiveService, "tick");
+    }
+
+    private void runWrites() {
+        Runnable write;
+        while ((write = writes.poll()) != null) {
+            write.run();
+        }
+    }
+
+    private static ReportRollupBatch batch(REPORT_TYPE type, LocalDateTime hour, int reports) {
+        ReportRollupBatch batch = new ReportRollupBatch();
+        for (int i = 0; i < reports; i++) {
+            Report report = new Report(type, (long) i, "Entity " + i);
+            report.setTimestamp(hour.plusMinutes(i));
+            batch.add(report);
+        }
+        return batch;
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<Map.Entry<String, Map<String, Object>>> sent = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+        volatile boolean completed;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder text = new StringBuilder();
+            Map<String, Object> data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof Map<?, ?> map) {
+                    data = (Map<String, Object>) map;
+                } else {
+                    text.append(part.getData());
+                }
+            }
+            String name = text.toString().startsWith("event:")
+                    ? text.substring("event:".length(), text.indexOf("\n"))
+                    : "comment";
+            sent.add(Map.entry(name, data == null ? Map.of() : data));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        List<Map<String, Object>> events(String name) {
+            return sent.stream().filter(event -> event.getKey().equals(name)).map(Map.Entry::getValue).toList();
+        }
+
+        Map<String, Object> single(String name) {
+            List<Map<String, Object>> events = events(name);
+            assertEquals(1, events.size(), name + " events");
+            return events.get(0);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportLogSegmentTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 3, 2, 10, 15, 30, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_RoundTripsEveryField() throws IOException {
+        ReportLogSegment segment = ReportLogSegment.create(directory, 7L, 4);
+        Report report = report(REPORT_TYPE.INGREDIENT_USED, 42L, "Crème fraîche");
+        report.setCount(3);
+
+        assertTrue(segment.append(report));
+        assertReport(report, segment.read(0));
+
+        ReportLogSegment reopened = ReportLogSegment.open(segment.getPath());
+        assertEquals(7L, reopened.getId());
+        assertEquals(4, reopened.getCapacity());
+        assertEquals(1, reopened.getWritten());
+        assertReport(report, reopened.read(0));
+        assertNull(reopened.read(1));
+    }
+
+    @Test
+    void append_RefusesRecordsPastCapacity() throws IOException {
+        ReportLogSegment segment = ReportLogSegment.create(directory, 0L, 2);
+
+        assertTrue(segment.append(report(REPORT_TYPE.RECIPE_USED, 1L, "Pizza")));
+        assertTrue(segment.append(report(REPORT_TYPE.RECIPE_USED, 2L, "Soup")));
+
+        assertTrue(segment.isFull());
+        assertFalse(segment.append(report(REPORT_TYPE.RECIPE_USED, 3L, "Salad")));
+        assertEquals(2, segment.getWritten());
+    }
+
+    @Test
+    void read_RejectsARecordWhoseChecksumFails() throws IOException {
+        ReportLogSegment segment = ReportLogSegment.create(directory, 0L, 4);
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 1L, "Pizza"));
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 2L, "Soup"));
+
+        // One flipped bit in the first record's entity name.
+        corrupt(segment.getPath(), 0, 28, (byte) ('P' ^ 0x01));
+
+        ReportLogSegment reopened = ReportLogSegment.open(segment.getPath());
+        assertNull(reopened.read(0));
+        assertEquals(2L, reopened.read(1).getEntityId());
+        // The record after it is intact, so the bad one stays for the replayer to skip.
+        assertEquals(2, reopened.getWritten());
+    }
+
+    @Test
+    void open_ContinuesAfterATornLastRecord() throws IOException {
+        ReportLogSegment segment = ReportLogSegment.create(directory, 0L, 4);
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 1L, "Pizza"));
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 2L, "Soup"));
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 3L, "Salad"));
+
+        // The last record reached disk with its marker but not its count.
+        corrupt(segment.getPath(), 2, 24, (byte) 0x7F);
+
+        ReportLogSegment reopened = ReportLogSegment.open(segment.getPath());
+        assertEquals(2, reopened.getWritten());
+
+        Report next = report(REPORT_TYPE.RECIPE_USED, 4L, "Stew");
+        assertTrue(reopened.append(next));
+        assertReport(next, reopened.read(2));
+        assertEquals(3, ReportLogSegment.open(segment.getPath()).getWritten());
+    }
+
+    @Test
+    void open_ScansPastAnUnwrittenRecord() throws IOException {
+        ReportLogSegment segment = ReportLogSegment.create(directory, 0L, 4);
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 1L, "Pizza"));
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 2L, "Soup"));
+        segment.append(report(REPORT_TYPE.RECIPE_USED, 3L, "Salad"));
+
+        // The page holding the middle record never reached disk.
+        corrupt(segment.getPath(), 1, 4, (byte) 0);
+
+        ReportLogSegment reopened = ReportLogSegment.open(segment.getPath());
+        assertEquals(3, reopened.getWritten());
+        assertEquals(1L, reopened.read(0).getEntityId());
+        assertNull(reopened.read(1));
+        assertEquals(3L, reopened.read(2).getEntityId());
+    }
+
+    @Test
+    void open_RejectsFilesThatAreNotSegments() throws IOException {
+        Path path = ReportLogSegment.pathOf(directory, 0L);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(ReportLogSegment.HEADER_BYTES + ReportLogSegment.RECORD_BYTES);
+        }
+
+        assertThrows(IOException.class, () -> ReportLogSegment.open(path));
+    }
+
+    static Report report(REPORT_TYPE type, long entityId, String entityName) {
+        Report report = new Report(type, entityId, entityName);
+        report.setTimestamp(TIMESTAMP.plusSeconds(entityId));
+        report.setCount(1);
+        return report;
+    }
+
+    private static void assertReport(Report expected, Report actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getReportType(), actual.getReportType());
+        assertEquals(expected.getEntityId(), actual.getEntityId());
+        assertEquals(expected.getEntityName(), actual.getEntityName());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getCount(), actual.getCount());
+    }
+
+    private static void corrupt(Path path, int record, int offset, byte value) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(ReportLogSegment.HEADER_BYTES + (long) record * ReportLogSegment.RECORD_BYTES + offset);
+            file.write(value);
+        }
+    }
+}
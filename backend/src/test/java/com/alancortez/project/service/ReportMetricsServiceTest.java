@@ -0,0 +1,144 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.AdminRepository;
+import com.alancortez.project.repository.StaffRepository;
+import com.alancortez.project.utils.MetricsConfiguration;
+import com.alancortez.project.utils.REPORT_TYPE;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportMetricsServiceTest {
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ReportMetricsService reportMetricsService;
+
+    @Mock
+    private AdminRepository adminRepository;
+
+    @Mock
+    private StaffRepository staffRepository;
+
+    @InjectMocks
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        reportMetricsService.registerCounters();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void registerCounters_GivesEveryTypeASeriesFromTheStart() {
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            assertEquals(0.0, events(type));
+        }
+    }
+
+    @Test
+    void record_CountsACoalescedRowAsTheEventsItHolds() {
+        Report coalesced = report(REPORT_TYPE.RECIPE_USED, 1L);
+        coalesced.setCount(12);
+        coalesced.setEvents(5);
+
+        reportMetricsService.record(batch(
+                report(REPORT_TYPE.RECIPE_USED, 1L),
+                report(REPORT_TYPE.RECIPE_USED, 2L),
+                coalesced,
+                report(REPORT_TYPE.INGREDIENT_USED, 3L)
+        ));
+
+        assertEquals(7.0, events(REPORT_TYPE.RECIPE_USED));
+        assertEquals(1.0, events(REPORT_TYPE.INGREDIENT_USED));
+    }
+
+    // A failed flush rolls back, is retried, and the retry commits: the
+    // events count once.
+    @Test
+    void record_CountsOnlyCommittedTransactions() {
+        ReportRollupBatch batch = batch(report(REPORT_TYPE.RECIPE_USED, 1L), report(REPORT_TYPE.RECIPE_USED, 2L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        reportMetricsService.record(batch);
+        assertEquals(0.0, events(REPORT_TYPE.RECIPE_USED));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0.0, events(REPORT_TYPE.RECIPE_USED));
+
+        TransactionSynchronizationManager.initSynchronization();
+        reportMetricsService.record(batch);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(2.0, events(REPORT_TYPE.RECIPE_USED));
+    }
+
+    @Test
+    void timedAspect_RecordsAServiceTimerPerMethod() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(userService);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MetricsConfiguration().timedAspect(meterRegistry));
+        UserService timed = factory.getProxy();
+
+        timed.getAllUsers();
+        timed.getAllUsers();
+
+        Timer timer = meterRegistry.find("app.service")
+                .tag("class", UserService.class.getName())
+                .tag("method", "getAllUsers")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(2L, timer.count());
+    }
+
+    private double events(REPORT_TYPE type) {
+        return meterRegistry.get("reports.events").tag("type", type.name()).counter().count();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private static ReportRollupBatch batch(Report... reports) {
+        ReportRollupBatch batch = new ReportRollupBatch();
+        for (Report report : reports) {
+            batch.add(report);
+        }
+        return batch;
+    }
+
+    private static Report report(REPORT_TYPE type, long entityId) {
+        Report report = new Report(type, entityId, "Entity " + entityId);
+        report.setTimestamp(LocalDateTime.of(2026, 3, 2, 10, 0));
+        return report;
+    }
+}
@@ -0,0 +1,176 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportIndexRepository;
+import com.alancortez.project.repository.ReportPartitionRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the partition conversion and the scheduled maintenance against a real
+// table: a plain reports table like the one ddl-auto creates is converted
+// keeping every row, partitions are kept months-ahead, rows that landed in
+// the default partition are moved into their month, and a column drift
+// between Report and the table stops startup. Uses its own schema in the
+// configured database:
+//   mvn test -Dtest=ReportPartitionServiceTest -Ddb=true
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "reports.partitioning.months-ahead=3"
+        }
+)
+@DatabaseTest(schema = ReportPartitionServiceTest.SCHEMA)
+public class ReportPartitionServiceTest {
+
+    static final String SCHEMA = "report_partitioning";
+
+    @Autowired
+    private ReportPartitionService reportPartitionService;
+
+    @Autowired
+    private ReportPartitionRepository reportPartitionRepository;
+
+    @Autowired
+    private ReportIndexRepository reportIndexRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final YearMonth current = YearMonth.now();
+
+    @Test
+    void afterSingletonsInstantiated_ConvertsPlainTableKeepingRows() {
+        YearMonth old = current.minusMonths(14);
+        createPlainTable(old);
+        long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM reports", Long.class);
+        List<Object> before = jdbcTemplate.queryForList(
+                "SELECT string_agg(id || ':' || count || ':' || COALESCE(events, 0), ',' ORDER BY id) FROM reports", Object.class);
+        assertFalse(reportPartitionRepository.isPartitioned());
+
+        reportPartitionService.afterSingletonsInstantiated();
+
+        assertTrue(reportPartitionRepository.isPartitioned());
+        assertEquals(before, jdbcTemplate.queryForList(
+                "SELECT string_agg(id || ':' || count || ':' || COALESCE(events, 0), ',' ORDER BY id) FROM reports", Object.class));
+        assertEquals(100L, countIn(ReportPartitionRepository.partitionName(old)));
+        assertEquals(0L, countIn(ReportPartitionRepository.DEFAULT_PARTITION));
+        assertPartitionsAhead();
+        assertTrue(reportIndexRepository.findIndexNames().containsAll(ReportIndexRepository.INDEXES.keySet()));
+        reportPartitionService.checkColumns();
+
+        Report report = reportRepository.save(new Report(REPORT_TYPE.RECIPE_USED, 1L, "Recipe 1"));
+        assertTrue(report.getId() > maxId);
+    }
+
+    // Two instances starting together: the second waits for the first
+    // conversion and then finds the table already partitioned.
+    @Test
+    void afterSingletonsInstantiated_ConvertsOnceWhenInstancesStartTogether() throws Exception {
+        createPlainTable(current.minusMonths(2));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> starts = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                starts.add(pool.submit(() -> {
+                    go.await();
+                    reportPartitionService.afterSingletonsInstantiated();
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> start : starts) {
+                start.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(reportPartitionRepository.isPartitioned());
+        assertEquals(300L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reports", Long.class));
+        assertPartitionsAhead();
+    }
+
+    @Test
+    void maintain_CreatesPartitionsAheadAndAbsorbsTheDefault() {
+        YearMonth ahead = current.plusMonths(2);
+        for (int i = 1; i <= 3; i++) {
+            String partition = ReportPartitionRepository.partitionName(current.plusMonths(i));
+            if (reportPartitionRepository.findPartitionNames().contains(partition)) {
+                reportPartitionRepository.dropPartition(partition);
+            }
+        }
+        Report report = new Report(REPORT_TYPE.INGREDIENT_USED, 2L, "Ingredient 2");
+        report.setTimestamp(ahead.atDay(3).atStartOfDay());
+        reportRepository.save(report);
+        assertEquals(1L, countIn(ReportPartitionRepository.DEFAULT_PARTITION));
+
+        reportPartitionService.maintain();
+
+        assertPartitionsAhead();
+        assertEquals(0L, countIn(ReportPartitionRepository.DEFAULT_PARTITION));
+        assertEquals(1L, countIn(ReportPartitionRepository.partitionName(ahead)));
+        assertTrue(reportRepository.existsById(report.getId()));
+    }
+
+    @Test
+    void checkColumns_FailsWhenTableAndEntityDiffer() {
+        reportPartitionService.checkColumns();
+
+        jdbcTemplate.execute("ALTER TABLE reports ADD COLUMN unmapped_note text");
+        try {
+            IllegalStateException error = assertThrows(IllegalStateException.class, reportPartitionService::checkColumns);
+            assertTrue(error.getMessage().contains("unmapped_note"), error.getMessage());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE reports DROP COLUMN unmapped_note");
+        }
+
+        jdbcTemplate.execute("ALTER TABLE reports RENAME COLUMN entity_name TO entity_label");
+        try {
+            IllegalStateException error = assertThrows(IllegalStateException.class, reportPartitionService::checkColumns);
+            assertTrue(error.getMessage().contains("[entity_name]"), error.getMessage());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE reports RENAME COLUMN entity_label TO entity_name");
+        }
+    }
+
+    // A plain reports table like the one ddl-auto creates, holding 300 rows,
+    // a third of them in the given month.
+    private void createPlainTable(YearMonth old) {
+        jdbcTemplate.execute("DROP TABLE reports CASCADE");
+        jdbcTemplate.execute("CREATE TABLE reports (" +
+                "id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "count integer, entity_id bigint NOT NULL, entity_name varchar(255) NOT NULL, " +
+                "report_type varchar(255) NOT NULL, timestamp timestamp(6) NOT NULL, events integer)");
+        jdbcTemplate.execute("INSERT INTO reports (report_type, entity_id, entity_name, timestamp, count, events) " +
+                "SELECT 'RECIPE_USED', i % 5, 'Recipe ' || (i % 5), " +
+                "CASE WHEN i % 3 = 0 THEN timestamp '" + old.atDay(10) + "' + i * interval '1 second' ELSE now() - i * interval '1 minute' END, " +
+                "i % 4 + 1, CASE WHEN i % 7 = 0 THEN 3 END FROM generate_series(1, 300) i");
+    }
+
+    private void assertPartitionsAhead() {
+        List<String> partitions = reportPartitionRepository.findPartitionNames();
+        for (int i = 0; i <= 3; i++) {
+            assertTrue(partitions.contains(ReportPartitionRepository.partitionName(current.plusMonths(i))), partitions.toString());
+        }
+    }
+
+    private long countIn(String partition) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+    }
+}
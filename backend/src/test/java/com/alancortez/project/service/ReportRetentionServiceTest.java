@@ -0,0 +1,179 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.ReportPartitionRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Runs the retention purge against real rows: a small chunk size forces
+// several DELETE chunks, and the checks cover which rows survive, that the
+// rollups still agree with the raw table, and that the rollup, sketch and
+// cache invalidators run. Uses its own schema in the configured database:
+//   mvn test -Dtest=ReportRetentionServiceTest -Ddb=true
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "reports.retention.chunk-size=7",
+                "reports.retention.days.RECIPE_USED=10"
+        }
+)
+@DatabaseTest(schema = ReportRetentionServiceTest.SCHEMA)
+public class ReportRetentionServiceTest {
+
+    static final String SCHEMA = "report_retention";
+
+    private static final int DAYS = 40;
+
+    @Autowired
+    private ReportRetentionService reportRetentionService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportPartitionService reportPartitionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private ReportRollupService reportRollupService;
+
+    @MockitoSpyBean
+    private ReportDistinctService reportDistinctService;
+
+    @MockitoSpyBean
+    private ReportQueryCache reportQueryCache;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private List<Report> seeded;
+
+    // Two reports of every type per day over the last DAYS days, written
+    // through the service so the rollups and sketches hold them too, then
+    // moved out of the default partition into their months.
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE reports");
+        reportRollupService.deleteAll();
+
+        seeded = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            for (REPORT_TYPE type : REPORT_TYPE.values()) {
+                for (int i = 0; i < 2; i++) {
+                    Report report = new Report(type, (long) i, "Entity " + i);
+                    report.setTimestamp(now.minusDays(day).minusMinutes(13 + 30L * i));
+                    seeded.add(report);
+                }
+            }
+        }
+        reportService.createReports(seeded);
+        reportPartitionService.maintain();
+
+        clearInvocations(reportRollupService, reportDistinctService, reportQueryCache);
+    }
+
+    @Test
+    void isOffByDefault() {
+        assertFalse(reportRetentionService.isEnabled());
+    }
+
+    @Test
+    void purgeExpired_DeletesOnlyRowsPastTheTypesWindow() {
+        LocalDateTime earliestCutoff = LocalDateTime.now().minusDays(10);
+
+        Map<String, Object> result = reportRetentionService.purgeExpired();
+
+        LocalDateTime latestCutoff = LocalDateTime.now().minusDays(10);
+        long expired = seeded.stream()
+                .filter(report -> report.getReportType() == REPORT_TYPE.RECIPE_USED)
+                .filter(report -> report.getTimestamp().isBefore(earliestCutoff))
+                .count();
+
+        assertEquals(expired, result.get("totalPurged"));
+        assertEquals(Map.of("RECIPE_USED", expired), result.get("purged"));
+        assertEquals(expired / 7 + 1, result.get("chunks"));
+
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            long kept = seeded.stream()
+                    .filter(report -> report.getReportType() == type)
+                    .filter(report -> type != REPORT_TYPE.RECIPE_USED || !report.getTimestamp().isBefore(earliestCutoff))
+                    .count();
+            assertEquals(kept, countRows(type), type.name());
+        }
+        assertEquals(0L, countRowsBefore(REPORT_TYPE.RECIPE_USED, earliestCutoff));
+
+        verify(reportRollupService).purgeBefore(eq(REPORT_TYPE.RECIPE_USED),
+                argThat(cutoff -> !cutoff.isBefore(earliestCutoff) && !cutoff.isAfter(latestCutoff)));
+        verify(reportRollupService, never()).purgeBefore(eq(REPORT_TYPE.INGREDIENT_USED), any(LocalDateTime.class));
+        verify(reportDistinctService).invalidateBefore(eq(REPORT_TYPE.RECIPE_USED), any(LocalDateTime.class));
+        verify(reportQueryCache, atLeastOnce()).invalidateAll();
+        assertRollupsMatchRaw();
+    }
+
+    @Test
+    void purgeBefore_DropsOldPartitionsAndChunksTheRest() {
+        LocalDateTime cutoff = now.minusDays(15);
+
+        Map<String, Object> result = reportRetentionService.purgeBefore(cutoff);
+
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            long kept = seeded.stream()
+                    .filter(report -> report.getReportType() == type)
+                    .filter(report -> !report.getTimestamp().isBefore(cutoff))
+                    .count();
+            assertEquals(kept, countRows(type), type.name());
+            assertEquals(0L, countRowsBefore(type, cutoff), type.name());
+            verify(reportRollupService).purgeBefore(type, cutoff);
+            verify(reportDistinctService).invalidateBefore(type, cutoff);
+        }
+        // Whether a whole month falls before the cutoff depends on today's date.
+        @SuppressWarnings("unchecked")
+        Map<String, Long> dropped = (Map<String, Long>) result.get("droppedPartitions");
+        for (String partition : dropped.keySet()) {
+            YearMonth month = ReportPartitionRepository.monthOf(partition);
+            assertFalse(month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff), partition);
+        }
+        verify(reportQueryCache, atLeastOnce()).invalidateAll();
+        assertRollupsMatchRaw();
+    }
+
+    private void assertRollupsMatchRaw() {
+        LocalDateTime start = now.minusDays(DAYS + 1);
+        for (REPORT_TYPE type : REPORT_TYPE.values()) {
+            Long raw = reportRepository.countByTypeAndDateRange(type, start, now);
+            assertEquals(raw == null ? 0L : raw,
+                    reportRollupService.countByTypeAndDateRange(type, start, now), "rollups " + type);
+        }
+    }
+
+    private long countRows(REPORT_TYPE type) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM reports WHERE report_type = ?", Long.class, type.name());
+    }
+
+    private long countRowsBefore(REPORT_TYPE type, LocalDateTime cutoff) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM reports WHERE report_type = ? AND timestamp < ?", Long.class, type.name(), cutoff);
+    }
+}
@@ -0,0 +1,170 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.DatabaseTest;
+import com.alancortez.project.model.Report;
+import com.alancortez.project.repository.DailyReportRollupRepository;
+import com.alancortez.project.repository.HourlyReportRollupRepository;
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks that the rollup-backed range queries give the same answers as the
+// raw reports table over ranges that start and end mid-hour and span whole
+// hours and days, both after the startup backfill and after incremental
+// writes. Uses its own schema in the configured database:
+//   mvn test -Dtest=ReportRollupParityTest -Ddb=true
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@DatabaseTest(schema = ReportRollupParityTest.SCHEMA)
+public class ReportRollupParityTest {
+
+    static final String SCHEMA = "report_rollup_parity";
+
+    private static final int ROWS = 5_000;
+    private static final int ENTITIES = 25;
+
+    @Autowired
+    private ReportRollupService reportRollupService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private HourlyReportRollupRepository hourlyReportRollupRepository;
+
+    @Autowired
+    private DailyReportRollupRepository dailyReportRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    // Reports written straight to the table, as they were before the rollup
+    // tables existed, so the rollups start out empty.
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE reports, report_rollup_hourly, report_rollup_daily");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                reportRepository.copyReports(syntheticReports(now.minusDays(6), now, ROWS, 7).iterator()));
+    }
+
+    @Test
+    void backfillFillsEmptyRollups() {
+        assertFalse(hourlyReportRollupRepository.hasAnyBuckets());
+
+        reportRollupService.afterSingletonsInstantiated();
+
+        assertTrue(hourlyReportRollupRepository.hasAnyBuckets());
+        assertTrue(dailyReportRollupRepository.hasAnyBuckets());
+        assertRollupsMatchRaw();
+    }
+
+    @Test
+    void backfillLeavesExistingRollupsAlone() {
+        reportRollupService.afterSingletonsInstantiated();
+        long buckets = hourlyReportRollupRepository.count();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                reportRepository.copyReports(syntheticReports(now.minusDays(1), now, 100, 8).iterator()));
+        reportRollupService.afterSingletonsInstantiated();
+
+        assertEquals(buckets, hourlyReportRollupRepository.count());
+    }
+
+    @Test
+    void incrementalWritesKeepRollupsInStep() {
+        reportRollupService.afterSingletonsInstantiated();
+
+        reportService.createReports(syntheticReports(now.minusDays(3), now, 500, 9));
+
+        assertRollupsMatchRaw();
+    }
+
+    private void assertRollupsMatchRaw() {
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{now.minusDays(5).withMinute(17).withSecond(3), now.minusMinutes(7)},
+                new LocalDateTime[]{now.minusDays(3).withMinute(41), now.minusDays(2).withMinute(12)},
+                new LocalDateTime[]{now.minusHours(5).withMinute(30), now.minusHours(2).withMinute(30)},
+                new LocalDateTime[]{now.minusDays(4).truncatedTo(ChronoUnit.DAYS), now.minusDays(1).truncatedTo(ChronoUnit.DAYS)}
+        );
+
+        for (LocalDateTime[] range : ranges) {
+            LocalDateTime start = range[0];
+            LocalDateTime end = range[1];
+            String label = start + " .. " + end;
+
+            Map<REPORT_TYPE, Long> rawSummary = new EnumMap<>(REPORT_TYPE.class);
+            for (Object[] row : reportRepository.getReportSummary(start, end)) {
+                rawSummary.put((REPORT_TYPE) row[0], ((Number) row[1]).longValue());
+            }
+            assertEquals(rawSummary, reportRollupService.getReportSummary(start, end), "summary " + label);
+
+            for (REPORT_TYPE type : REPORT_TYPE.values()) {
+                Long raw = reportRepository.countByTypeAndDateRange(type, start, end);
+                assertEquals(raw == null ? 0L : raw,
+                        reportRollupService.countByTypeAndDateRange(type, start, end), "count " + type + " " + label);
+
+                for (CHART_GROUPING grouping : List.of(CHART_GROUPING.HOUR, CHART_GROUPING.DAY)) {
+                    assertEquals(rawSeries(type, grouping, start, end),
+                            counts(reportRollupService.getTimeSeries(type, start, end, grouping)),
+                            "chart " + type + " by " + grouping + " " + label);
+                }
+            }
+        }
+    }
+
+    private Map<LocalDateTime, Long> rawSeries(REPORT_TYPE type, CHART_GROUPING grouping, LocalDateTime start, LocalDateTime end) {
+        Map<LocalDateTime, Long> result = new TreeMap<>();
+        for (Object[] row : reportRepository.getBucketedTimeSeries(type.name(), grouping.getPgUnit(), start, end)) {
+            LocalDateTime bucket = row[0] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[0];
+            result.put(bucket, ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+
+    private static Map<LocalDateTime, Long> counts(ChartSeries series) {
+        Map<LocalDateTime, Long> result = new TreeMap<>();
+        for (int i = 0; i < series.size(); i++) {
+            if (series.count(i) != 0) {
+                result.put(series.bucket(i), series.count(i));
+            }
+        }
+        return result;
+    }
+
+    private static List<Report> syntheticReports(LocalDateTime first, LocalDateTime last, int rows, long seed) {
+        Random random = new Random(seed);
+        long spanSeconds = ChronoUnit.SECONDS.between(first, last);
+        REPORT_TYPE[] types = REPORT_TYPE.values();
+
+        List<Report> reports = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long entity = random.nextInt(ENTITIES);
+            Report report = new Report(types[random.nextInt(types.length)], entity, "Entity " + entity);
+            report.setTimestamp(first.plusSeconds((long) (random.nextDouble() * spanSeconds)));
+            report.setCount(1 + random.nextInt(5));
+            reports.add(report);
+        }
+        return reports;
+    }
+}
@@ -0,0 +1,122 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.CHART_GROUPING;
+import com.alancortez.project.utils.REPORT_ENGINE;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.alancortez.project.utils.SERIES_METRIC;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportServiceTest {
+
+    @Mock
+    private ReportRollupService reportRollupService;
+
+    @Mock
+    private ReportColumnStore reportColumnStore;
+
+    @InjectMocks
+    private ReportService reportService;
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reportService, "chartMaxBuckets", 48L);
+        ReflectionTestUtils.setField(reportService, "seriesMaxSpecs", 50);
+        ReflectionTestUtils.setField(reportService, "seriesMaxTotalBuckets", 400L);
+    }
+
+    @Test
+    void getChartData_ServesRangesUpToTheBucketCap() {
+        LocalDateTime end = start.plusHours(47).plusMinutes(59);
+        ChartSeries series = ChartSeries.of(CHART_GROUPING.HOUR, start, end);
+        when(reportRollupService.getTimeSeries(REPORT_TYPE.RECIPE_USED, start, end, CHART_GROUPING.HOUR))
+                .thenReturn(series);
+
+        assertSame(series, reportService.getChartData(REPORT_TYPE.RECIPE_USED, start, end, "hour"));
+    }
+
+    @Test
+    void getChartData_RejectsRangesOverTheBucketCapBeforeQuerying() {
+        assertThrows(IllegalArgumentException.class, () -> reportService.getChartData(
+                REPORT_TYPE.RECIPE_USED, start, start.plusHours(48), "hour", REPORT_ENGINE.MEMORY));
+        assertThrows(IllegalArgumentException.class, () -> reportService.getChartData(
+                REPORT_TYPE.RECIPE_USED, LocalDateTime.of(1, 1, 1, 0, 0), start, "hour"));
+
+        verifyNoInteractions(reportRollupService, reportColumnStore);
+    }
+
+    @Test
+    void getSeries_RejectsAPassOverTheBucketCapBeforeQuerying() {
+        List<ReportService.SeriesSpec> specs = List.of(
+                spec(REPORT_TYPE.RECIPE_USED, start, start.plusHours(1)),
+                spec(REPORT_TYPE.RECIPE_USED, start, start.plusHours(48))
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> reportService.getSeries(specs, REPORT_ENGINE.SQL));
+        verifyNoInteractions(reportRollupService, reportColumnStore);
+    }
+
+    // Four passes of 48 buckets with one type each fill 384 slots; a fifth
+    // pass goes past the budget of 400 although every pass is under the cap.
+    @Test
+    void getSeries_RejectsRequestsOverTheTotalBucketBudgetBeforeQuerying() {
+        List<ReportService.SeriesSpec> specs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            LocalDateTime from = start.plusDays(i);
+            specs.add(spec(REPORT_TYPE.RECIPE_USED, from, from.plusHours(47)));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> reportService.getSeries(specs, REPORT_ENGINE.SQL));
+        verifyNoInteractions(reportRollupService, reportColumnStore);
+
+        when(reportRollupService.getTimeSeries(anySet(), any(), any(), eq(CHART_GROUPING.HOUR)))
+                .thenAnswer(invocation -> typeSeries(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+
+        Map<String, Object> result = reportService.getSeries(specs.subList(0, 4), REPORT_ENGINE.SQL);
+
+        assertEquals(4, result.get("passes"));
+    }
+
+    @Test
+    void chartSeries_RejectsRangesPastAnArrayInsteadOfOverflowing() {
+        LocalDateTime first = LocalDateTime.of(1, 1, 1, 0, 0);
+
+        assertEquals(17_759_544L, ChartSeries.buckets(CHART_GROUPING.HOUR, first, LocalDateTime.of(2026, 12, 31, 23, 0)));
+        assertEquals(0L, ChartSeries.buckets(CHART_GROUPING.DAY, start, start.minusDays(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ChartSeries.of(CHART_GROUPING.HOUR, LocalDateTime.MIN, LocalDateTime.MAX));
+    }
+
+    private static ReportService.SeriesSpec spec(REPORT_TYPE type, LocalDateTime from, LocalDateTime to) {
+        return new ReportService.SeriesSpec(type, CHART_GROUPING.HOUR, from, to, SERIES_METRIC.REPORTS);
+    }
+
+    private static Map<REPORT_TYPE, ReportRollupService.TypeSeries> typeSeries(
+            Set<REPORT_TYPE> types, LocalDateTime from, LocalDateTime to) {
+        Map<REPORT_TYPE, ReportRollupService.TypeSeries> result = new EnumMap<>(REPORT_TYPE.class);
+        for (REPORT_TYPE type : types) {
+            result.put(type, new ReportRollupService.TypeSeries(
+                    ChartSeries.of(CHART_GROUPING.HOUR, from, to), ChartSeries.of(CHART_GROUPING.HOUR, from, to)));
+        }
+        return result;
+    }
+}
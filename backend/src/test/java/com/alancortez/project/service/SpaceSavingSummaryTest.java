@@ -0,0 +1,89 @@
+package com.alancortez.project.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpaceSavingSummaryTest {
+
+    @Test
+    void offer_IsExactWhileEveryEntityFits() {
+        SpaceSavingSummary summary = new SpaceSavingSummary(4);
+        summary.offer(1L, "Pizza", 3);
+        summary.offer(2L, "Soup", 1);
+        summary.offer(1L, "Pizza Margherita", 2);
+        summary.offer(3L, "Salad", 0);
+
+        Map<Long, SpaceSavingSummary.Counter> held = byId(summary);
+        assertEquals(2, held.size());
+        assertEquals(5L, held.get(1L).count);
+        assertEquals(0L, held.get(1L).error);
+        assertEquals("Pizza Margherita", held.get(1L).entityName);
+        assertEquals(1L, held.get(2L).count);
+        assertEquals(6L, summary.total());
+        assertEquals(0L, summary.minCount());
+    }
+
+    @Test
+    void offer_BoundsEveryCountAndKeepsTheHeavyHitters() {
+        int capacity = 20;
+        SpaceSavingSummary summary = new SpaceSavingSummary(capacity);
+        Map<Long, Long> truth = new HashMap<>();
+        Random random = new Random(42);
+
+        // Skewed stream over 500 entities: a handful take most of the weight.
+        for (int i = 0; i < 50_000; i++) {
+            long entity = (long) Math.floor(Math.pow(random.nextDouble(), 4) * 500);
+            long weight = 1 + random.nextInt(3);
+            summary.offer(entity, "Entity " + entity, weight);
+            truth.merge(entity, weight, Long::sum);
+        }
+
+        long total = truth.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, summary.total());
+
+        Map<Long, SpaceSavingSummary.Counter> held = byId(summary);
+        assertEquals(capacity, held.size());
+        for (SpaceSavingSummary.Counter counter : held.values()) {
+            long actual = truth.get(counter.entityId);
+            assertTrue(counter.count - counter.error <= actual, "lower bound for " + counter.entityId);
+            assertTrue(actual <= counter.count, "upper bound for " + counter.entityId);
+            assertTrue(counter.error <= total / capacity, "error bound for " + counter.entityId);
+        }
+
+        for (Map.Entry<Long, Long> entity : truth.entrySet()) {
+            if (entity.getValue() > total / capacity) {
+                assertTrue(held.containsKey(entity.getKey()), "heavy hitter " + entity.getKey() + " not held");
+            }
+            if (!held.containsKey(entity.getKey())) {
+                assertTrue(entity.getValue() <= summary.minCount(), "unheld " + entity.getKey() + " above minCount");
+            }
+        }
+    }
+
+    @Test
+    void clear_ForgetsCountersAndTotal() {
+        SpaceSavingSummary summary = new SpaceSavingSummary(1);
+        summary.offer(1L, "Pizza", 2);
+        summary.offer(2L, "Soup", 1);
+        assertEquals(3L, summary.minCount());
+
+        summary.clear();
+
+        assertTrue(summary.counters().isEmpty());
+        assertEquals(0L, summary.total());
+        assertEquals(0L, summary.minCount());
+    }
+
+    private static Map<Long, SpaceSavingSummary.Counter> byId(SpaceSavingSummary summary) {
+        Map<Long, SpaceSavingSummary.Counter> held = new HashMap<>();
+        for (SpaceSavingSummary.Counter counter : summary.counters()) {
+            held.put(counter.entityId, counter);
+        }
+        return held;
+    }
+}
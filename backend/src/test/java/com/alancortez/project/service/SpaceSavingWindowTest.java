@@ -0,0 +1,106 @@
+package com.alancortez.project.service;
+
+import com.alancortez.project.utils.TOP_WINDOW;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// HOUR is twelve 5-minute slots, so a window read at `now` covers the
+// current slot and the eleven before it.
+public class SpaceSavingWindowTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 2, 10, 0);
+
+    @Test
+    void top_MergesCountsAcrossSlots() {
+        SpaceSavingWindow window = new SpaceSavingWindow(TOP_WINDOW.HOUR, 8);
+        window.offer(START, START, 1L, "Pizza", 3);
+        window.offer(START.plusMinutes(10), START.plusMinutes(7), 1L, "Pizza", 2);
+        window.offer(START.plusMinutes(10), START.plusMinutes(9), 2L, "Soup", 4);
+
+        Map<String, Object> top = window.top(START.plusMinutes(12), 5);
+
+        assertEquals(9L, top.get("total"));
+        assertEquals(0L, top.get("maxError"));
+        List<Map<String, Object>> entities = entities(top);
+        assertEquals(List.of(1L, 2L), entities.stream().map(row -> row.get("id")).toList());
+        assertEquals(5L, entities.get(0).get("count"));
+        assertEquals(true, entities.get(0).get("guaranteed"));
+    }
+
+    @Test
+    void top_DropsSlotsThatLeftTheWindow() {
+        SpaceSavingWindow window = new SpaceSavingWindow(TOP_WINDOW.HOUR, 8);
+        window.offer(START, START.plusMinutes(1), 1L, "Pizza", 3);
+        window.offer(START.plusMinutes(30), START.plusMinutes(30), 2L, "Soup", 1);
+
+        // 55 minutes on, the first slot is the oldest one still covered.
+        assertEquals(4L, window.top(START.plusMinutes(55), 5).get("total"));
+
+        Map<String, Object> expired = window.top(START.plusMinutes(60), 5);
+        assertEquals(1L, expired.get("total"));
+        assertEquals(List.of(2L), entities(expired).stream().map(row -> row.get("id")).toList());
+
+        assertEquals(0L, window.top(START.plusMinutes(95), 5).get("total"));
+    }
+
+    @Test
+    void offer_ClearsASlotWhenTheRingComesBackRound() {
+        SpaceSavingWindow window = new SpaceSavingWindow(TOP_WINDOW.HOUR, 8);
+        window.offer(START, START, 1L, "Pizza", 3);
+
+        // Twelve slots later the same ring index holds the new slot.
+        LocalDateTime later = START.plusMinutes(60);
+        window.offer(later, later, 2L, "Soup", 2);
+
+        Map<String, Object> top = window.top(later, 5);
+        assertEquals(2L, top.get("total"));
+        assertEquals(List.of(2L), entities(top).stream().map(row -> row.get("id")).toList());
+    }
+
+    @Test
+    void offer_IgnoresEventsOutsideTheWindow() {
+        SpaceSavingWindow window = new SpaceSavingWindow(TOP_WINDOW.HOUR, 8);
+        window.offer(START, START.plusMinutes(5), 1L, "Future", 3);
+        window.offer(START, START.minusMinutes(60), 2L, "Expired", 3);
+        window.offer(START, START.minusMinutes(55), 3L, "Oldest slot", 1);
+
+        Map<String, Object> top = window.top(START, 5);
+        assertEquals(1L, top.get("total"));
+        assertEquals(List.of(3L), entities(top).stream().map(row -> row.get("id")).toList());
+    }
+
+    @Test
+    void top_ReportsErrorOnceCountersOverflow() {
+        SpaceSavingWindow window = new SpaceSavingWindow(TOP_WINDOW.HOUR, 2);
+        window.offer(START, START, 1L, "Pizza", 10);
+        window.offer(START, START, 2L, "Soup", 1);
+        window.offer(START, START, 3L, "Salad", 1);
+
+        // Salad takes over Soup's counter: count 2, error 1.
+        Map<String, Object> top = window.top(START, 1);
+        List<Map<String, Object>> entities = entities(top);
+
+        assertEquals(2L, top.get("maxError"));
+        assertEquals(1L, entities.get(0).get("id"));
+        assertEquals(10L, entities.get(0).get("count"));
+        assertEquals(true, entities.get(0).get("guaranteed"));
+    }
+
+    @Test
+    void fromParam_RejectsUnknownWindows() {
+        assertEquals(TOP_WINDOW.HOUR, TOP_WINDOW.fromParam("HOUR"));
+        assertEquals(TOP_WINDOW.DAY, TOP_WINDOW.fromParam("day"));
+        assertEquals(TOP_WINDOW.WEEK, TOP_WINDOW.fromParam("week"));
+        assertThrows(IllegalArgumentException.class, () -> TOP_WINDOW.fromParam("month"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> entities(Map<String, Object> top) {
+        return (List<Map<String, Object>>) top.get("entities");
+    }
+}
@@ -0,0 +1,66 @@
+package com.alancortez.project.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Compares two JMH JSON result files, benchmark by benchmark and param by
+// param: score and allocated bytes per operation, before and after.
+//   java -cp target/benchmarks.jar com.alancortez.project.benchmark.BenchmarkComparison \
+//       target/jmh/<before>.json target/jmh/<after>.json
+public class BenchmarkComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison <before.json> <after.json>");
+            System.exit(2);
+        }
+
+        Map<String, JsonNode> before = read(Path.of(args[0]));
+        Map<String, JsonNode> after = read(Path.of(args[1]));
+
+        System.out.printf("%-70s %14s %14s %8s %14s %14s %8s%n",
+                "Benchmark", "Score before", "Score after", "Change", "B/op before", "B/op after", "Change");
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode old = before.get(entry.getKey());
+            if (old == null) {
+                continue;
+            }
+            JsonNode current = entry.getValue();
+            double scoreBefore = old.path("primaryMetric").path("score").asDouble();
+            double scoreAfter = current.path("primaryMetric").path("score").asDouble();
+            double bytesBefore = old.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+            double bytesAfter = current.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+
+            System.out.printf("%-70s %14.3f %14.3f %8s %14.0f %14.0f %8s%n",
+                    entry.getKey(), scoreBefore, scoreAfter, change(scoreBefore, scoreAfter),
+                    bytesBefore, bytesAfter, change(bytesBefore, bytesAfter));
+        }
+    }
+
+    // Keyed by benchmark name plus its params, e.g. "ChartDataBenchmark.chartData rows=10000 groupBy=day".
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.alancortez.project.benchmark.", ""));
+            result.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return "-";
+        }
+        return String.format("%+.1f%%", (after - before) / before * 100);
+    }
+}
@@ -0,0 +1,127 @@
+package com.alancortez.project.benchmark;
+
+import com.alancortez.project.repository.ReportRepository;
+import com.alancortez.project.repository.ReportRepositoryCustom;
+import com.alancortez.project.service.ChartSeries;
+import com.alancortez.project.service.ReportColumnStore;
+import com.alancortez.project.service.ReportService;
+import com.alancortez.project.utils.REPORT_ENGINE;
+import com.alancortez.project.utils.REPORT_TYPE;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// ReportService.getChartData on the memory engine over synthetic reports:
+// the last 30 days, 500 entities per type, a fixed seed so every run sees
+// the same rows. The column store is loaded the way it is at startup, from
+// a repository stub that replays the rows instead of a database.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ChartDataBenchmark {
+
+    private static final REPORT_TYPE[] TYPES = REPORT_TYPE.values();
+    private static final int ENTITIES = 500;
+    private static final int DAYS = 30;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"day", "hour"})
+    public String groupBy;
+
+    private ReportService reportService;
+    private ReportColumnStore reportColumnStore;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        end = LocalDateTime.now();
+        start = end.truncatedTo(ChronoUnit.DAYS).minusDays(DAYS);
+
+        reportColumnStore = new ReportColumnStore();
+        inject(reportColumnStore, "reportRepository", syntheticRepository(rows, start, end));
+        inject(reportColumnStore, "transactionManager", new NoTransactionManager());
+        inject(reportColumnStore, "enabled", true);
+        inject(reportColumnStore, "windowDays", DAYS + 5);
+        inject(reportColumnStore, "maxRows", 20_000_000L);
+        inject(reportColumnStore, "parallelism", 0);
+        reportColumnStore.afterSingletonsInstantiated();
+
+        reportService = new ReportService();
+        inject(reportService, "reportColumnStore", reportColumnStore);
+        inject(reportService, "chartMaxBuckets", 10_000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reportColumnStore.destroy();
+    }
+
+    @Benchmark
+    public ChartSeries chartData() {
+        return reportService.getChartData(REPORT_TYPE.RECIPE_USED, start, end, groupBy, REPORT_ENGINE.MEMORY);
+    }
+
+    // Only scanColumns is reached while the store loads.
+    private static ReportRepository syntheticRepository(int rows, LocalDateTime start, LocalDateTime end) {
+        return (ReportRepository) Proxy.newProxyInstance(
+                ReportRepository.class.getClassLoader(),
+                new Class<?>[]{ReportRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("scanColumns")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    replay(rows, start, end, (ReportRepositoryCustom.ColumnHandler) args[1]);
+                    return null;
+                });
+    }
+
+    // Rows come in timestamp order, as the real scan returns them.
+    private static void replay(int rows, LocalDateTime start, LocalDateTime end, ReportRepositoryCustom.ColumnHandler handler) {
+        Random random = new Random(42);
+        long spanSeconds = ChronoUnit.SECONDS.between(start, end);
+
+        for (int row = 0; row < rows; row++) {
+            REPORT_TYPE type = TYPES[random.nextInt(TYPES.length)];
+            int entityId = 1 + random.nextInt(ENTITIES);
+            LocalDateTime timestamp = start.plusSeconds(spanSeconds * row / rows);
+            handler.row(type.name(), entityId, type.name() + " " + entityId, timestamp, 1 + random.nextInt(5), 1);
+        }
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static final class NoTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
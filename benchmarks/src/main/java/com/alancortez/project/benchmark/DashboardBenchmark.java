@@ -0,0 +1,61 @@
+package com.alancortez.project.benchmark;
+
+import com.alancortez.project.Application;
+import com.alancortez.project.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Uncached ReportService.getDashboardData over the last 30 days, one
+// connection (sequential) vs several (parallel fan-out). Boots the backend
+// against the configured database (DATABASE_URL, DB_USERNAME, DB_PASSWORD),
+// which should be seeded first, so it only runs when named:
+//   java -jar target/benchmarks.jar DashboardBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DashboardBenchmark {
+
+    @Param({"1", "3"})
+    public int connections;
+
+    private ConfigurableApplicationContext context;
+    private ReportService reportService;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(
+                        "--spring.jpa.show-sql=false",
+                        "--reports.retention.enabled=false",
+                        "--reports.live.enabled=false",
+                        "--logging.level.root=WARN"
+                );
+        reportService = context.getBean(ReportService.class);
+
+        end = LocalDateTime.now();
+        start = end.minusDays(30).plusMinutes(17);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> dashboard() {
+        return reportService.getDashboardData(start, end, connections);
+    }
+}
@@ -0,0 +1,113 @@
+package com.alancortez.project.benchmark;
+
+import com.alancortez.project.model.*;
+import com.alancortez.project.utils.REPORT_TYPE;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of the lists the controllers return, with a mapper
+// built the way Spring Boot builds its own. Recipes carry five components,
+// each with its ingredient, and a short use history.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    private static final REPORT_TYPE[] TYPES = REPORT_TYPE.values();
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Report> reports;
+    private List<Recipe> recipes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.of(2025, 6, 30, 12, 0);
+
+        reports = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            REPORT_TYPE type = TYPES[random.nextInt(TYPES.length)];
+            Report report = new Report(type, (long) random.nextInt(500), "Entity " + i);
+            report.setId((long) i);
+            report.setTimestamp(now.minusSeconds(random.nextInt(30 * 86_400)));
+            report.setCount(1 + random.nextInt(5));
+            reports.add(report);
+        }
+
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ingredients.add(ingredient(i, random));
+        }
+
+        recipes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            recipes.add(recipe(i, ingredients, random));
+        }
+    }
+
+    @Benchmark
+    public byte[] reports() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(reports);
+    }
+
+    @Benchmark
+    public byte[] recipes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(recipes);
+    }
+
+    private static Ingredient ingredient(int index, Random random) {
+        IngredientStorageRequirement quantity = new IngredientStorageRequirement();
+        quantity.setCurrentQuantity(random.nextDouble() * 100);
+        quantity.setMaxQuantityLimit(100.0);
+        quantity.setAlertLowQuantity(10.0);
+        quantity.setTimesReachedLow(random.nextInt(10));
+
+        IngredientUnit unit = new IngredientUnit();
+        unit.setPricePerUnit(random.nextDouble() * 20);
+        unit.setUnitOfMeasurement("kg");
+
+        Ingredient ingredient = new Ingredient();
+        ingredient.setProductName("Ingredient " + index);
+        ingredient.setQuantityDetails(quantity);
+        ingredient.setUnitDetails(unit);
+        return ingredient;
+    }
+
+    private static Recipe recipe(int index, List<Ingredient> ingredients, Random random) {
+        Recipe recipe = new Recipe();
+        recipe.setRecipeName("Recipe " + index);
+        recipe.setUseCount(random.nextInt(100));
+
+        List<RecipeComponent> components = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            RecipeComponent component = new RecipeComponent();
+            component.setRecipe(recipe);
+            component.setIngredient(ingredients.get(random.nextInt(ingredients.size())));
+            component.setQuantity(1 + random.nextInt(10));
+            components.add(component);
+        }
+        recipe.setRecipeComponents(components);
+
+        List<RecipeUseHistory> history = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecipeUseHistory use = new RecipeUseHistory();
+            use.setRecipe(recipe);
+            use.setLastUsed(new Date(1_750_000_000_000L - random.nextInt(1_000_000_000)));
+            history.add(use);
+        }
+        recipe.setUseHistory(history);
+        return recipe;
+    }
+}
@@ -0,0 +1,95 @@
+package com.alancortez.project.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencies (microseconds, from the intended send time) and outcomes of one
+// operation during the measured part of a run. Rejected requests never left
+// the driver because max-in-flight was reached; they count as errors.
+final class EndpointStats {
+
+    private static final long MAX_TRACKED_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final String operation;
+    private final Histogram histogram = new ConcurrentHistogram(MAX_TRACKED_MICROS, 3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorKinds = new ConcurrentHashMap<>();
+
+    EndpointStats(String operation) {
+        this.operation = operation;
+    }
+
+    void recordSent() {
+        sent.increment();
+    }
+
+    void recordSuccess(long latencyNanos) {
+        record(latencyNanos);
+        succeeded.increment();
+    }
+
+    void recordError(long latencyNanos, String kind) {
+        record(latencyNanos);
+        recordRejected(kind);
+    }
+
+    void recordRejected(String kind) {
+        errors.increment();
+        errorKinds.computeIfAbsent(kind, k -> new LongAdder()).increment();
+    }
+
+    String getOperation() {
+        return operation;
+    }
+
+    Histogram getHistogram() {
+        return histogram;
+    }
+
+    long getSent() {
+        return sent.sum();
+    }
+
+    long getCompleted() {
+        return histogram.getTotalCount();
+    }
+
+    long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    double getErrorRate() {
+        long sent = getSent();
+        return sent == 0 ? 0.0 : getErrors() / (double) sent;
+    }
+
+    double getPercentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double getMaxMillis() {
+        return histogram.getMaxValue() / 1000.0;
+    }
+
+    Map<String, Long> getErrorKinds() {
+        Map<String, Long> kinds = new TreeMap<>();
+        errorKinds.forEach((kind, count) -> kinds.put(kind, count.sum()));
+        return kinds;
+    }
+
+    private void record(long latencyNanos) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_TRACKED_MICROS));
+    }
+}
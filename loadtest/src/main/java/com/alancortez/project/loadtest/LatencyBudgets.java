@@ -0,0 +1,67 @@
+package com.alancortez.project.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Pass/fail limits from budget.<operation>.<limit>, falling back to
+// budget.default.<limit>: p50-ms, p90-ms, p99-ms, max-ms and error-rate.
+// budget.min-throughput-ratio bounds successful over offered requests for
+// the whole run.
+final class LatencyBudgets {
+
+    private static final Map<String, Double> PERCENTILES = Map.of(
+            "p50-ms", 50.0, "p90-ms", 90.0, "p99-ms", 99.0
+    );
+
+    private final LoadTestConfig config;
+
+    LatencyBudgets(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    // One line per broken budget; empty when the run passed.
+    List<String> check(Collection<EndpointStats> stats) {
+        List<String> failures = new ArrayList<>();
+        long sent = 0;
+        long succeeded = 0;
+
+        for (EndpointStats endpoint : stats) {
+            sent += endpoint.getSent();
+            succeeded += endpoint.getSucceeded();
+            String operation = endpoint.getOperation();
+
+            for (Map.Entry<String, Double> percentile : PERCENTILES.entrySet()) {
+                Double limit = limit(operation, percentile.getKey());
+                double value = endpoint.getPercentileMillis(percentile.getValue());
+                if (limit != null && endpoint.getCompleted() > 0 && value > limit) {
+                    failures.add(String.format("%s %s %.1f ms > %.1f ms", operation, percentile.getKey(), value, limit));
+                }
+            }
+
+            Double maxLimit = limit(operation, "max-ms");
+            if (maxLimit != null && endpoint.getMaxMillis() > maxLimit) {
+                failures.add(String.format("%s max %.1f ms > %.1f ms", operation, endpoint.getMaxMillis(), maxLimit));
+            }
+
+            Double errorLimit = limit(operation, "error-rate");
+            if (errorLimit != null && endpoint.getErrorRate() > errorLimit) {
+                failures.add(String.format("%s error rate %.4f > %.4f %s",
+                        operation, endpoint.getErrorRate(), errorLimit, endpoint.getErrorKinds()));
+            }
+        }
+
+        double minRatio = config.getDouble("budget.min-throughput-ratio", 0);
+        double ratio = sent == 0 ? 0 : succeeded / (double) sent;
+        if (ratio < minRatio) {
+            failures.add(String.format("throughput %.3f of offered < %.3f", ratio, minRatio));
+        }
+        return failures;
+    }
+
+    private Double limit(String operation, String name) {
+        String value = config.get("budget." + operation + "." + name, config.get("budget.default." + name, null));
+        return value == null ? null : Double.valueOf(value);
+    }
+}
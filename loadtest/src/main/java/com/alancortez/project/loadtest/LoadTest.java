@@ -0,0 +1,76 @@
+package com.alancortez.project.loadtest;
+
+import com.alancortez.project.Application;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Entry point of target/loadtest.jar: database, backend, seed data, the
+// open-model run, then the report. Arguments other than --loadtest.* go to
+// the backend, e.g. --reports.ingest.mode=coalesce. Exits with 1 when a
+// budget fails.
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.load(args);
+        List<String> failures;
+
+        try (LoadTestDatabase database = LoadTestDatabase.start(config);
+             ConfigurableApplicationContext context = boot(database, args)) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            log.info("Backend up at {} on {} database {}",
+                    baseUrl, database.isEmbedded() ? "embedded" : "existing", database.getJdbcUrl());
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Workload workload = new LoadTestSeeder(client, baseUrl, config).seed();
+
+            OpenModelDriver driver = new OpenModelDriver(client, config);
+            Map<String, EndpointStats> stats = driver.run(workload);
+
+            failures = new LatencyBudgets(config).check(stats.values());
+            Path directory = Path.of("target", "loadtest",
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+            new LoadTestReport(directory, driver.getRate(), driver.getDurationSeconds())
+                    .write(stats.values(), failures, System.out);
+        }
+
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    // Session cookies go over plain HTTP here, so they cannot be secure-only.
+    private static ConfigurableApplicationContext boot(LoadTestDatabase database, String[] args) {
+        List<String> backendArgs = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + database.getJdbcUrl(),
+                "--spring.datasource.username=" + database.getUsername(),
+                "--spring.datasource.password=" + database.getPassword(),
+                "--server.port=0",
+                "--management.server.port=0",
+                "--server.servlet.session.cookie.secure=false",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=ERROR",
+                "--logging.level.com.alancortez.project.loadtest=INFO"
+        ));
+        Arrays.stream(args).filter(arg -> !arg.startsWith("--loadtest.")).forEach(backendArgs::add);
+
+        return new SpringApplicationBuilder(Application.class).run(backendArgs.toArray(String[]::new));
+    }
+}
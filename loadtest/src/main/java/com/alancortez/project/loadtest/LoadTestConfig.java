@@ -0,0 +1,79 @@
+package com.alancortez.project.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+// loadtest.properties from the classpath, overridden by -Dloadtest.<key>=<value>
+// system properties and then by --loadtest.<key>=<value> arguments. Keys are
+// read without the "loadtest." prefix.
+final class LoadTestConfig {
+
+    private static final String PREFIX = "loadtest.";
+
+    private final Properties properties = new Properties();
+
+    private LoadTestConfig() {
+    }
+
+    static LoadTestConfig load(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        try (InputStream in = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            if (in != null) {
+                config.properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PREFIX)) {
+                config.properties.setProperty(name, System.getProperty(name));
+            }
+        }
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--" + PREFIX) && equals > 0) {
+                config.properties.setProperty(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return config;
+    }
+
+    String get(String key, String defaultValue) {
+        String value = properties.getProperty(PREFIX + key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    int getInt(String key, int defaultValue) {
+        return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+    }
+
+    long getLong(String key, long defaultValue) {
+        return Long.parseLong(get(key, String.valueOf(defaultValue)));
+    }
+
+    double getDouble(String key, double defaultValue) {
+        return Double.parseDouble(get(key, String.valueOf(defaultValue)));
+    }
+
+    boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(get(key, String.valueOf(defaultValue)));
+    }
+
+    // Every key under prefix, with the prefix removed, in file order where
+    // the file gave one.
+    Map<String, String> getAll(String prefix) {
+        Map<String, String> values = new LinkedHashMap<>();
+        String full = PREFIX + prefix;
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(full)) {
+                values.put(name.substring(full.length()), properties.getProperty(name).trim());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,57 @@
+package com.alancortez.project.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+
+// The database the backend runs against: a throwaway embedded PostgreSQL,
+// or an existing one when db.jdbc-url is set (e.g. a locally launched
+// server that keeps its seed data between runs).
+final class LoadTestDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    private LoadTestDatabase(EmbeddedPostgres embedded, String jdbcUrl, String username, String password) {
+        this.embedded = embedded;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    static LoadTestDatabase start(LoadTestConfig config) throws IOException {
+        String jdbcUrl = config.get("db.jdbc-url", null);
+        if (jdbcUrl != null) {
+            return new LoadTestDatabase(null, jdbcUrl,
+                    config.get("db.username", "postgres"), config.get("db.password", ""));
+        }
+
+        EmbeddedPostgres embedded = EmbeddedPostgres.builder().start();
+        return new LoadTestDatabase(embedded, embedded.getJdbcUrl("postgres", "postgres"), "postgres", "");
+    }
+
+    boolean isEmbedded() {
+        return embedded != null;
+    }
+
+    String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.alancortez.project.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Console table plus, under the run's directory, summary.json and one
+// <operation>.hgrm percentile distribution per operation (milliseconds),
+// which HdrHistogram's plotter and other runs' files can be compared with.
+final class LoadTestReport {
+
+    private final Path directory;
+    private final double offeredRate;
+    private final double durationSeconds;
+
+    LoadTestReport(Path directory, double offeredRate, double durationSeconds) {
+        this.directory = directory;
+        this.offeredRate = offeredRate;
+        this.durationSeconds = durationSeconds;
+    }
+
+    void write(Collection<EndpointStats> stats, List<String> failures, PrintStream out) throws IOException {
+        Files.createDirectories(directory);
+
+        out.printf("%n%-20s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "Operation", "Requests", "Req/s", "Errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+        List<Map<String, Object>> operations = new ArrayList<>();
+        long sent = 0;
+        long succeeded = 0;
+
+        for (EndpointStats endpoint : stats) {
+            sent += endpoint.getSent();
+            succeeded += endpoint.getSucceeded();
+            out.printf("%-20s %9d %9.1f %7.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint.getOperation(), endpoint.getSent(), endpoint.getCompleted() / durationSeconds,
+                    endpoint.getErrorRate() * 100,
+                    endpoint.getPercentileMillis(50), endpoint.getPercentileMillis(90),
+                    endpoint.getPercentileMillis(99), endpoint.getPercentileMillis(99.9), endpoint.getMaxMillis());
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("operation", endpoint.getOperation());
+            row.put("requests", endpoint.getSent());
+            row.put("completed", endpoint.getCompleted());
+            row.put("throughput", endpoint.getCompleted() / durationSeconds);
+            row.put("errors", endpoint.getErrors());
+            row.put("errorRate", endpoint.getErrorRate());
+            row.put("errorKinds", endpoint.getErrorKinds());
+            row.put("p50Millis", endpoint.getPercentileMillis(50));
+            row.put("p90Millis", endpoint.getPercentileMillis(90));
+            row.put("p99Millis", endpoint.getPercentileMillis(99));
+            row.put("p999Millis", endpoint.getPercentileMillis(99.9));
+            row.put("maxMillis", endpoint.getMaxMillis());
+            operations.add(row);
+
+            try (PrintStream histogram = new PrintStream(
+                    Files.newOutputStream(directory.resolve(endpoint.getOperation() + ".hgrm")))) {
+                endpoint.getHistogram().outputPercentileDistribution(histogram, 1000.0);
+            }
+        }
+
+        out.printf("%nOffered %.1f req/s, succeeded %.1f req/s over %.0f s%n",
+                sent / durationSeconds, succeeded / durationSeconds, durationSeconds);
+        if (failures.isEmpty()) {
+            out.println("PASS: every budget met");
+        } else {
+            out.println("FAIL:");
+            failures.forEach(failure -> out.println("  " + failure));
+        }
+        out.println("Results written to " + directory);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("targetRate", offeredRate);
+        summary.put("durationSeconds", durationSeconds);
+        summary.put("offeredRate", sent / durationSeconds);
+        summary.put("successRate", succeeded / durationSeconds);
+        summary.put("passed", failures.isEmpty());
+        summary.put("failures", failures);
+        summary.put("operations", operations);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directory.resolve("summary.json").toFile(), summary);
+    }
+}
@@ -0,0 +1,247 @@
+package com.alancortez.project.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// Brings the database to the configured scale through the public API, the
+// way the data would have arrived in production: users, ingredients and
+// recipes one request each, report history through the NDJSON bulk load.
+// Users are logged in every run (and created when their login fails), so a
+// run with seed=false against an already seeded database still has sessions.
+final class LoadTestSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestSeeder.class);
+
+    private static final int BULK_CHUNK = 100_000;
+    private static final String PASSWORD = "loadtest123";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final String baseUrl;
+    private final LoadTestConfig config;
+    private final Random random = new Random(42);
+
+    LoadTestSeeder(HttpClient client, String baseUrl, LoadTestConfig config) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.config = config;
+    }
+
+    Workload seed() throws IOException, InterruptedException {
+        boolean seed = config.getBoolean("seed", true);
+
+        List<Workload.VirtualUser> managers = users("loadtest_manager_", config.getInt("seed.managers", 20), true);
+        List<Workload.VirtualUser> cooks = users("loadtest_cook_", config.getInt("seed.cooks", 180), false);
+
+        if (seed) {
+            int ingredients = config.getInt("seed.ingredients", 2000);
+            for (int i = 1; i <= ingredients; i++) {
+                send("POST", "/api/ingredients", Workload.ingredientBody("Ingredient " + i, random));
+            }
+            log.info("Seeded {} ingredients", ingredients);
+        }
+        List<Integer> ingredientIds = new ArrayList<>();
+        for (JsonNode ingredient : send("GET", "/api/ingredients", null)) {
+            ingredientIds.add(ingredient.path("ingredientID").asInt());
+        }
+
+        if (seed) {
+            int recipes = config.getInt("seed.recipes", 500);
+            int components = config.getInt("seed.components-per-recipe", 6);
+            for (int i = 1; i <= recipes; i++) {
+                send("POST", "/api/recipes", Workload.recipeBody("Recipe " + i, ingredientIds, components, random));
+            }
+            log.info("Seeded {} recipes", recipes);
+        }
+        List<Workload.Recipe> recipes = new ArrayList<>();
+        for (JsonNode recipe : send("GET", "/api/recipes", null)) {
+            recipes.add(new Workload.Recipe(recipe.path("recipeID").asInt(), recipe.path("recipeName").asText()));
+        }
+
+        if (seed) {
+            seedReports(config.getLong("seed.reports", 1_000_000), config.getInt("seed.report-days", 90),
+                    ingredientIds, recipes);
+        }
+
+        Map<String, Integer> weights = new HashMap<>();
+        config.getAll("mix.").forEach((operation, weight) -> weights.put(operation, Integer.parseInt(weight)));
+
+        return new Workload(baseUrl, Duration.ofMillis(config.getLong("request-timeout-ms", 30_000)), weights,
+                cooks, managers, ingredientIds, recipes);
+    }
+
+    private List<Workload.VirtualUser> users(String prefix, int count, boolean manager)
+            throws IOException, InterruptedException {
+        List<Workload.VirtualUser> users = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String userName = prefix + i;
+            String cookie = login(userName);
+            if (cookie == null) {
+                send("POST", "/api/user", Map.of(
+                        "userName", userName, "password", PASSWORD, "role", manager ? "ADMIN" : "STAFF"));
+                cookie = login(userName);
+            }
+            if (cookie == null) {
+                throw new IllegalStateException("Could not log in as " + userName);
+            }
+            users.add(new Workload.VirtualUser(userName, PASSWORD, manager, cookie));
+        }
+        return users;
+    }
+
+    // The session cookie, or null when the login was refused.
+    private String login(String userName) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+                request("POST", "/api/auth/login", Map.of("userName", userName, "password", PASSWORD)),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(header -> header.startsWith("JSESSIONID="))
+                .map(header -> header.split(";", 2)[0])
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Login returned no session cookie"));
+    }
+
+    // Usage history spread evenly over the last days, mostly recipe and
+    // ingredient use, sent in chunks as NDJSON generated on the fly.
+    private void seedReports(long total, int days, List<Integer> ingredientIds, List<Workload.Recipe> recipes)
+            throws IOException, InterruptedException {
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long spanSeconds = days * 86_400L;
+        long started = System.nanoTime();
+
+        for (long offset = 0; offset < total; offset += BULK_CHUNK) {
+            long from = offset;
+            long to = Math.min(total, offset + BULK_CHUNK);
+            Iterator<String> lines = new Iterator<>() {
+                long next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @Override
+                public String next() {
+                    LocalDateTime timestamp = end.minusSeconds(spanSeconds - spanSeconds * next / total);
+                    next++;
+                    return reportLine(timestamp, ingredientIds, recipes);
+                }
+            };
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/reports/bulk"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new LineInputStream(lines)))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Bulk report load failed with " + response.statusCode());
+            }
+        }
+        log.info("Seeded {} reports over {} days in {} s", total, days, (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    private String reportLine(LocalDateTime timestamp, List<Integer> ingredientIds, List<Workload.Recipe> recipes) {
+        int roll = random.nextInt(100);
+        String type;
+        int entityId;
+        String entityName;
+        if (roll < 40 || roll >= 97) {
+            Workload.Recipe recipe = recipes.get(random.nextInt(recipes.size()));
+            type = roll < 40 ? "RECIPE_USED" : "RECIPES_CREATED";
+            entityId = recipe.id();
+            entityName = recipe.name();
+        } else {
+            entityId = ingredientIds.get(random.nextInt(ingredientIds.size()));
+            type = roll < 90 ? "INGREDIENT_USED" : roll < 94 ? "TIMES_INGREDIENT_REACHED_LOW" : "INGREDIENTS_CREATED";
+            entityName = "Ingredient " + entityId;
+        }
+        return "{\"reportType\":\"" + type + "\",\"entityId\":" + entityId
+                + ",\"entityName\":" + quote(entityName) + ",\"timestamp\":\"" + timestamp + "\"}\n";
+    }
+
+    private String quote(String value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JsonNode send(String method, String path, Object body) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request(method, path, body), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(method + " " + path + " failed with " + response.statusCode());
+        }
+        return response.body().isEmpty() ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest request(String method, String path, Object body) throws IOException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, publisher)
+                .build();
+    }
+
+    private static final class LineInputStream extends InputStream {
+        private final Iterator<String> lines;
+        private byte[] current = new byte[0];
+        private int position;
+
+        LineInputStream(Iterator<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int read = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+        private boolean fill() {
+            while (position == current.length) {
+                if (!lines.hasNext()) {
+                    return false;
+                }
+                current = lines.next().getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.alancortez.project.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model load: arrivals follow a Poisson process at the configured rate
+// whether or not earlier requests have finished, as independent cooks and
+// managers would. Latency runs from the arrival's scheduled time, so a
+// stalled server (or driver) shows up as latency instead of a lower request
+// rate. Only arrivals after the warmup are measured.
+final class OpenModelDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenModelDriver.class);
+
+    private final HttpClient client;
+    private final double rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelDriver(HttpClient client, LoadTestConfig config) {
+        this.client = client;
+        this.rate = config.getDouble("rate", 100);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(config.getLong("warmup-seconds", 30));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(config.getLong("duration-seconds", 120));
+        this.maxInFlight = config.getInt("max-in-flight", 2000);
+    }
+
+    double getRate() {
+        return rate;
+    }
+
+    double getDurationSeconds() {
+        return durationNanos / 1e9;
+    }
+
+    Map<String, EndpointStats> run(Workload workload) throws InterruptedException {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (String operation : workload.getOperations()) {
+            stats.put(operation, new EndpointStats(operation));
+        }
+
+        Random random = new Random(7);
+        long started = System.nanoTime();
+        long measureFrom = started + warmupNanos;
+        long until = measureFrom + durationNanos;
+        log.info("Driving {} requests/s: {} s warmup, {} s measured",
+                rate, TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+
+        long arrival = started;
+        while (true) {
+            arrival += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+            if (arrival >= until) {
+                break;
+            }
+            long wait = arrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String operation = workload.pick(random);
+            HttpRequest request = workload.request(operation, random);
+            EndpointStats endpoint = arrival >= measureFrom ? stats.get(operation) : null;
+            if (endpoint != null) {
+                endpoint.recordSent();
+            }
+            if (inFlight.get() >= maxInFlight) {
+                if (endpoint != null) {
+                    endpoint.recordRejected("max-in-flight");
+                }
+                continue;
+            }
+
+            long scheduled = arrival;
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                inFlight.decrementAndGet();
+                if (endpoint == null) {
+                    return;
+                }
+                long latency = System.nanoTime() - scheduled;
+                if (error != null) {
+                    endpoint.recordError(latency, errorKind(error));
+                } else if (response.statusCode() >= 400) {
+                    endpoint.recordError(latency, "HTTP " + response.statusCode());
+                } else {
+                    endpoint.recordSuccess(latency);
+                }
+            });
+        }
+
+        // Requests still out when the run ends are waited for, up to their timeout.
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        return stats;
+    }
+
+    private static String errorKind(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof HttpTimeoutException ? "timeout" : cause.getClass().getSimpleName();
+    }
+}
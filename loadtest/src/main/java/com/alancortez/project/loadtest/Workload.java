@@ -0,0 +1,216 @@
+package com.alancortez.project.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The mixed traffic of cooks and managers, one request per arrival. Cooks
+// look up recipes and ingredients and report what they used; managers also
+// edit ingredients, add recipes and read the report screens. Each virtual
+// user keeps its own session cookie from the login done while seeding.
+final class Workload {
+
+    static final List<String> OPERATIONS = List.of(
+            "auth.login", "auth.session",
+            "ingredients.list", "ingredients.get", "ingredients.update",
+            "recipes.list", "recipes.get", "recipes.create",
+            "reports.submit", "reports.summary", "reports.chart", "reports.top", "reports.dashboard"
+    );
+
+    private static final Set<String> MANAGER_OPERATIONS = Set.of(
+            "ingredients.update", "recipes.create",
+            "reports.summary", "reports.chart", "reports.top", "reports.dashboard"
+    );
+
+    private static final String[] CHART_TYPES = {"RECIPE_USED", "INGREDIENT_USED"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Duration timeout;
+    private final List<VirtualUser> cooks;
+    private final List<VirtualUser> managers;
+    private final List<Integer> ingredientIds;
+    private final List<Recipe> recipes;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicInteger createdRecipes = new AtomicInteger();
+
+    Workload(String baseUrl, Duration timeout, Map<String, Integer> weights,
+             List<VirtualUser> cooks, List<VirtualUser> managers, List<Integer> ingredientIds, List<Recipe> recipes) {
+        if (cooks.isEmpty() || managers.isEmpty() || ingredientIds.isEmpty() || recipes.isEmpty()) {
+            throw new IllegalStateException("The workload needs cooks, managers, ingredients and recipes");
+        }
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.cooks = cooks;
+        this.managers = managers;
+        this.ingredientIds = ingredientIds;
+        this.recipes = recipes;
+
+        List<String> enabled = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (String operation : OPERATIONS) {
+            int weight = weights.getOrDefault(operation, 0);
+            if (weight > 0) {
+                total += weight;
+                enabled.add(operation);
+                cumulative.add(total);
+            }
+        }
+        if (enabled.isEmpty()) {
+            throw new IllegalStateException("Every operation in the mix has weight 0");
+        }
+        this.operations = enabled.toArray(String[]::new);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    List<String> getOperations() {
+        return List.of(operations);
+    }
+
+    String pick(Random random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, point + 1);
+        return operations[index >= 0 ? index : -index - 1];
+    }
+
+    HttpRequest request(String operation, Random random) {
+        VirtualUser user = MANAGER_OPERATIONS.contains(operation) || random.nextInt(10) == 0
+                ? managers.get(random.nextInt(managers.size()))
+                : cooks.get(random.nextInt(cooks.size()));
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        switch (operation) {
+            case "auth.login":
+                return post(user, "/api/auth/login", Map.of("userName", user.userName(), "password", user.password()));
+            case "auth.session":
+                return get(user, "/api/auth/session");
+            case "ingredients.list":
+                return get(user, "/api/ingredients");
+            case "ingredients.get":
+                return get(user, "/api/ingredients/" + randomIngredient(random));
+            case "ingredients.update": {
+                int id = randomIngredient(random);
+                return put(user, "/api/ingredients/" + id, ingredientBody("Ingredient " + id, random));
+            }
+            case "recipes.list":
+                return get(user, "/api/recipes");
+            case "recipes.get":
+                return get(user, "/api/recipes/" + randomRecipe(random).id());
+            case "recipes.create":
+                return post(user, "/api/recipes",
+                        recipeBody("Load Test Recipe " + createdRecipes.incrementAndGet(), ingredientIds, 3, random));
+            case "reports.submit":
+                if (random.nextInt(3) == 0) {
+                    int id = randomIngredient(random);
+                    return post(user, "/api/reports", report("INGREDIENT_USED", id, "Ingredient " + id));
+                }
+                Recipe recipe = randomRecipe(random);
+                return post(user, "/api/reports", report("RECIPE_USED", recipe.id(), recipe.name()));
+            case "reports.summary":
+                return get(user, "/api/reports/summary?start=" + now.minusDays(7) + "&end=" + now);
+            case "reports.chart":
+                return random.nextBoolean()
+                        ? get(user, "/api/reports/chart?reportType=" + CHART_TYPES[random.nextInt(2)]
+                                + "&groupBy=day&start=" + now.minusDays(30) + "&end=" + now)
+                        : get(user, "/api/reports/chart?reportType=" + CHART_TYPES[random.nextInt(2)]
+                                + "&groupBy=hour&start=" + now.minusDays(1) + "&end=" + now);
+            case "reports.top":
+                return get(user, "/api/reports/top?reportType=" + CHART_TYPES[random.nextInt(2)]
+                        + "&limit=10&start=" + now.minusDays(7) + "&end=" + now);
+            case "reports.dashboard":
+                return get(user, "/api/reports/dashboard");
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    static Map<String, Object> ingredientBody(String name, Random random) {
+        Map<String, Object> quantity = new LinkedHashMap<>();
+        quantity.put("currentQuantity", Math.round(random.nextDouble() * 1000) / 10.0);
+        quantity.put("maxQuantityLimit", 100.0);
+        quantity.put("alertLowQuantity", 10.0);
+        quantity.put("timesReachedLow", random.nextInt(5));
+
+        Map<String, Object> unit = new LinkedHashMap<>();
+        unit.put("pricePerUnit", Math.round(random.nextDouble() * 2000) / 100.0);
+        unit.put("unitOfMeasurement", random.nextBoolean() ? "kg" : "l");
+
+        Map<String, Object> ingredient = new LinkedHashMap<>();
+        ingredient.put("productName", name);
+        ingredient.put("quantityDetails", quantity);
+        ingredient.put("unitDetails", unit);
+        return ingredient;
+    }
+
+    static Map<String, Object> recipeBody(String name, List<Integer> ingredientIds, int components, Random random) {
+        List<Map<String, Object>> parts = new ArrayList<>();
+        for (int i = 0; i < components; i++) {
+            parts.add(Map.of(
+                    "ingredient", Map.of("ingredientID", ingredientIds.get(random.nextInt(ingredientIds.size()))),
+                    "quantity", 1 + random.nextInt(10)
+            ));
+        }
+
+        Map<String, Object> recipe = new LinkedHashMap<>();
+        recipe.put("recipeName", name);
+        recipe.put("recipeComponents", parts);
+        return recipe;
+    }
+
+    private static Map<String, Object> report(String reportType, int entityId, String entityName) {
+        return Map.of("reportType", reportType, "entityId", entityId, "entityName", entityName);
+    }
+
+    private int randomIngredient(Random random) {
+        return ingredientIds.get(random.nextInt(ingredientIds.size()));
+    }
+
+    private Recipe randomRecipe(Random random) {
+        return recipes.get(random.nextInt(recipes.size()));
+    }
+
+    private HttpRequest get(VirtualUser user, String path) {
+        return builder(user, path).GET().build();
+    }
+
+    private HttpRequest post(VirtualUser user, String path, Object body) {
+        return builder(user, path).POST(json(body)).build();
+    }
+
+    private HttpRequest put(VirtualUser user, String path, Object body) {
+        return builder(user, path).PUT(json(body)).build();
+    }
+
+    private HttpRequest.Builder builder(VirtualUser user, String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json");
+        if (user.cookie() != null) {
+            builder.header("Cookie", user.cookie());
+        }
+        return builder;
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record VirtualUser(String userName, String password, boolean manager, String cookie) {
+    }
+
+    record Recipe(int id, String name) {
+    }
+}